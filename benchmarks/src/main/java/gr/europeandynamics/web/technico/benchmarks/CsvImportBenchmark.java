@@ -0,0 +1,139 @@
+package gr.europeandynamics.web.technico.benchmarks;
+
+import gr.europeandynamics.web.technico.exceptions.CustomException;
+import gr.europeandynamics.web.technico.importers.CsvTokenizer;
+import gr.europeandynamics.web.technico.importers.RepairCSVImporter;
+import gr.europeandynamics.web.technico.models.Property;
+import gr.europeandynamics.web.technico.models.Repair;
+import gr.europeandynamics.web.technico.models.RepairStatus;
+import gr.europeandynamics.web.technico.models.RepairType;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares parsing a repairs CSV file with {@link CsvTokenizer} against the
+ * previous {@code readLine()} and {@code String.split(",")} path. Both
+ * benchmarks parse every line into a {@link Repair}, so the score is the time
+ * to parse the whole file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvImportBenchmark {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Param({"10000"})
+    private int lines;
+
+    private byte[] file;
+
+    private final RepairCSVImporter importer = new RepairCSVImporter();
+
+    @Setup
+    public void generate() {
+        RepairType[] types = RepairType.values();
+        RepairStatus[] statuses = RepairStatus.values();
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            int day = 1 + i % 28;
+            csv.append(1 + i % 500).append(',')
+                    .append(types[i % types.length]).append(',')
+                    .append("Short description ").append(i).append(',')
+                    .append(String.format("2024-03-%02d 09:30:00", day)).append(',')
+                    .append("A longer description of repair ").append(i).append(" in the main building").append(',')
+                    .append(String.format("2024-04-%02d 08:00:00", day)).append(',')
+                    .append(String.format("2024-05-%02d 17:00:00", day)).append(',')
+                    .append(100 + i % 900).append('.').append(i % 100 < 10 ? "0" : "").append(i % 100).append(',')
+                    .append(i % 2 == 0).append(',')
+                    .append(statuses[i % statuses.length]);
+            if (i % 3 != 0) {
+                csv.append(',').append(String.format("2024-04-%02d 08:15:00", day));
+            }
+            if (i % 3 == 2) {
+                csv.append(',').append(String.format("2024-05-%02d 16:45:00", day));
+            }
+            csv.append('\n');
+        }
+        file = csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void splitBased(Blackhole blackhole) throws IOException, CustomException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                blackhole.consume(parseLine(line));
+            }
+        }
+    }
+
+    @Benchmark
+    public void tokenizerBased(Blackhole blackhole) throws IOException, CustomException {
+        CsvTokenizer record = new CsvTokenizer(Channels.newChannel(new ByteArrayInputStream(file)),
+                CsvTokenizer.DEFAULT_BUFFER_SIZE);
+        while (record.next()) {
+            blackhole.consume(importer.parseRecord(record));
+        }
+    }
+
+    @Benchmark
+    public void tokenizeOnly(Blackhole blackhole) throws IOException {
+        CsvTokenizer record = new CsvTokenizer(Channels.newChannel(new ByteArrayInputStream(file)),
+                CsvTokenizer.DEFAULT_BUFFER_SIZE);
+        while (record.next()) {
+            blackhole.consume(record.fieldCount());
+        }
+    }
+
+    /**
+     * The split-based parsing the importers used before {@link CsvTokenizer}.
+     */
+    private static Repair parseLine(String line) throws CustomException {
+        String[] fields = line.split(",");
+        if (!(fields.length >= 10 && fields.length <= 12)) {
+            throw new CustomException("A repair line must contain 10 to 12 fields.");
+        }
+        Property property = new Property();
+        property.setId(Long.parseLong(fields[0]));
+
+        Repair repair = new Repair();
+        repair.setProperty(property);
+        repair.setRepairType(RepairType.valueOf(fields[1]));
+        repair.setShortDescription(fields[2]);
+        repair.setSubmissionDate(LocalDateTime.parse(fields[3], FORMATTER));
+        repair.setDescription(fields[4]);
+        repair.setProposedStartDate(LocalDateTime.parse(fields[5], FORMATTER));
+        repair.setProposedEndDate(LocalDateTime.parse(fields[6], FORMATTER));
+        repair.setProposedCost(new BigDecimal(fields[7]));
+        repair.setAcceptanceStatus(Boolean.parseBoolean(fields[8]));
+        repair.setRepairStatus(RepairStatus.valueOf(fields[9]));
+        repair.setActualStartDate(fields.length >= 11 ? LocalDateTime.parse(fields[10], FORMATTER) : null);
+        repair.setActualEndDate(fields.length == 12 ? LocalDateTime.parse(fields[11], FORMATTER) : null);
+        return repair;
+    }
+}
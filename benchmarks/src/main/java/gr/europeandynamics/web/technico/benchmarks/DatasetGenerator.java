@@ -0,0 +1,270 @@
+package gr.europeandynamics.web.technico.benchmarks;
+
+import gr.europeandynamics.web.technico.models.PropertyType;
+import gr.europeandynamics.web.technico.models.RepairStatus;
+import gr.europeandynamics.web.technico.models.RepairType;
+import gr.europeandynamics.web.technico.models.Role;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Writes users.csv, properties.csv and repairs.csv in the layouts that
+ * {@code UserCSVImporter}, {@code PropertyCSVImporter} and
+ * {@code RepairCSVImporter} accept. The output depends only on the options,
+ * so the same options always produce the same files. Rows are written one at
+ * a time through a reused buffer, so memory stays constant whatever the
+ * volume.
+ *
+ * The data follows these distributions:
+ * <ul>
+ * <li>Owners are drawn with a power-law skew, so most owners have one or two
+ * properties and a few have many. Repairs are drawn over properties in the
+ * same way.</li>
+ * <li>About 1% of the users are staff members.</li>
+ * <li>Repair statuses are 70% COMPLETE, 15% INPROGRESS, 10% PENDING and 5%
+ * DECLINED. A repair in progress has 11 columns, with its actual start date.
+ * A complete repair has 12, with its actual end date as well. Pending and
+ * declined repairs have 10.</li>
+ * <li>Submission dates are spread uniformly over the five years before
+ * {@code --until}. Costs are skewed towards small jobs.</li>
+ * </ul>
+ *
+ * Repairs refer to properties by ID. The IDs assume the properties are
+ * imported into an empty database, where they get the IDs 1 to N in file
+ * order.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar \
+ *     gr.europeandynamics.web.technico.benchmarks.DatasetGenerator \
+ *     --users=1000000 --properties=2000000 --repairs=10000000 --out=dataset
+ * </pre>
+ *
+ * Options, with their defaults: {@code --users=10000},
+ * {@code --properties} twice the users, {@code --repairs} five times the
+ * properties, {@code --seed=42}, {@code --skew=2.0}, where 1.0 is uniform,
+ * {@code --until=2025-01-01T00:00} and {@code --out=dataset}.
+ */
+public class DatasetGenerator {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final long FIRST_VAT = 100_000_000L;
+    private static final long FIRST_PHONE = 6_900_000_000L;
+    private static final int SUBMISSION_SECONDS = 5 * 365 * 24 * 60 * 60;
+    private static final int BUFFER_SIZE = 512;
+
+    private static final String[] FIRST_NAMES = {
+        "Dimitris", "Katerina", "Giannis", "Maria", "Nikos", "Eleni", "Georgios", "Sofia", "Kostas", "Anna",
+        "Christos", "Ioanna", "Panagiotis", "Vasiliki", "Michalis", "Georgia", "Thanasis", "Despoina"
+    };
+    private static final String[] SURNAMES = {
+        "Papadopoulos", "Nikolaidou", "Theodoropoulos", "Papadimitriou", "Georgiou", "Antoniou", "Konstantinidis",
+        "Karagianni", "Ioannidis", "Vlachou", "Oikonomou", "Makri", "Pappas", "Alexiou", "Dimitriou", "Christodoulou"
+    };
+    private static final String[] STREETS = {
+        "Egnatia", "Dodonis", "Tsimiski", "Athinon", "Patission", "Eleftherias", "Ermou", "Stadiou", "Panepistimiou",
+        "Akadimias", "Kifisias", "Syngrou", "Vasilissis Sofias", "Mitropoleos"
+    };
+    private static final String[] CITIES = {
+        "Athens", "Thessaloniki", "Patra", "Heraklion", "Larissa", "Volos", "Ioannina", "Chania", "Kavala", "Arta"
+    };
+    private static final String[] REPAIR_DESCRIPTIONS = {
+        "Repaint walls", "Fix leak", "Improve insulation", "Replace window frames", "Rewire circuits",
+        "Replace boiler", "Seal roof", "Repair balcony door", "Replace pipes", "Install new sockets"
+    };
+
+    private final long seed;
+    private final int users;
+    private final int properties;
+    private final int repairs;
+    private final double skew;
+    private final LocalDateTime until;
+    private final Path out;
+    private final StringBuilder row = new StringBuilder(256);
+
+    public DatasetGenerator(Map<String, String> options) {
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.users = Integer.parseInt(options.getOrDefault("users", "10000"));
+        this.properties = Integer.parseInt(options.getOrDefault("properties", String.valueOf(users * 2L)));
+        this.repairs = Integer.parseInt(options.getOrDefault("repairs", String.valueOf(properties * 5L)));
+        this.skew = Double.parseDouble(options.getOrDefault("skew", "2.0"));
+        this.until = LocalDateTime.parse(options.getOrDefault("until", "2025-01-01T00:00"));
+        this.out = Paths.get(options.getOrDefault("out", "dataset"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --option=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new DatasetGenerator(options).generate();
+    }
+
+    /**
+     * Writes the three files into the output directory. Each file draws from
+     * its own split of the seeded generator, so changing the size of one file
+     * does not change the contents of the others.
+     */
+    public void generate() throws IOException {
+        Files.createDirectories(out);
+        SplittableRandom random = new SplittableRandom(seed);
+        SplittableRandom userRandom = random.split();
+        SplittableRandom propertyRandom = random.split();
+        SplittableRandom repairRandom = random.split();
+        write("users.csv", users, userRandom, this::appendUser);
+        write("properties.csv", properties, propertyRandom, this::appendProperty);
+        write("repairs.csv", repairs, repairRandom, this::appendRepair);
+    }
+
+    @FunctionalInterface
+    private interface RowAppender {
+
+        void append(long index, SplittableRandom random);
+    }
+
+    private void write(String file, int rows, SplittableRandom fileRandom, RowAppender appender) throws IOException {
+        long start = System.nanoTime();
+        try (Writer writer = Files.newBufferedWriter(out.resolve(file), StandardCharsets.UTF_8)) {
+            char[] chars = new char[BUFFER_SIZE];
+            for (long i = 0; i < rows; i++) {
+                row.setLength(0);
+                appender.append(i, fileRandom);
+                row.append('\n');
+                int length = row.length();
+                if (length > chars.length) {
+                    chars = new char[length];
+                }
+                row.getChars(0, length, chars, 0);
+                writer.write(chars, 0, length);
+            }
+        }
+        System.out.printf("%s: %d rows in %d ms%n", out.resolve(file), rows, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * VAT, name, surname, address, phone number, email, password, role. The
+     * VAT number, phone number and email are unique by construction.
+     */
+    private void appendUser(long index, SplittableRandom random) {
+        String name = pick(FIRST_NAMES, random);
+        String surname = pick(SURNAMES, random);
+        row.append(FIRST_VAT + index).append(',')
+                .append(name).append(',')
+                .append(surname).append(',');
+        appendAddress(random);
+        row.append(',')
+                .append(FIRST_PHONE + index).append(',')
+                .append(name.toLowerCase()).append('.').append(surname.toLowerCase()).append(index)
+                .append("@example.com").append(',')
+                .append(name.toLowerCase()).append(random.nextInt(1000, 10_000)).append(',')
+                .append(random.nextInt(100) == 0 ? Role.STAFF_MEMBER : Role.PROPERTY_OWNER);
+    }
+
+    /**
+     * E9, address, construction year, property type, owner VAT.
+     */
+    private void appendProperty(long index, SplittableRandom random) {
+        row.append("PROP");
+        appendPadded(index + 1, 16);
+        row.append(',');
+        appendAddress(random);
+        row.append(',')
+                .append(2024 - (int) (Math.pow(random.nextDouble(), 1.5) * 90)).append(',')
+                .append(pickWeighted(PropertyType.values(), random, 50, 30, 20)).append(',')
+                .append(FIRST_VAT + skewed(users, random));
+    }
+
+    /**
+     * Property ID, type, short description, submission date, description,
+     * proposed start and end dates, proposed cost, acceptance, status and,
+     * depending on the status, the actual start and end dates.
+     */
+    private void appendRepair(long index, SplittableRandom random) {
+        RepairStatus status = pickWeighted(RepairStatus.values(), random, 10, 5, 15, 70);
+        String description = pick(REPAIR_DESCRIPTIONS, random);
+        LocalDateTime submitted = until.minusSeconds(random.nextInt(SUBMISSION_SECONDS));
+        LocalDateTime proposedStart = submitted.plusDays(random.nextInt(1, 15)).withHour(9).withMinute(0).withSecond(0);
+        LocalDateTime proposedEnd = proposedStart.plusDays(random.nextInt(1, 31)).withHour(17);
+        double cost = 50 + Math.pow(random.nextDouble(), 3) * 19_950;
+
+        row.append(1 + skewed(properties, random)).append(',')
+                .append(pickWeighted(RepairType.values(), random, 30, 15, 15, 25, 15)).append(',')
+                .append(description).append(',');
+        appendDateTime(submitted);
+        row.append(',').append(description).append(" at repair ").append(index + 1).append(',');
+        appendDateTime(proposedStart);
+        row.append(',');
+        appendDateTime(proposedEnd);
+        row.append(',').append(Math.round(cost * 100) / 100.0).append(',')
+                .append(status == RepairStatus.INPROGRESS || status == RepairStatus.COMPLETE).append(',')
+                .append(status);
+        if (status == RepairStatus.INPROGRESS || status == RepairStatus.COMPLETE) {
+            LocalDateTime actualStart = proposedStart.plusDays(random.nextInt(0, 4));
+            row.append(',');
+            appendDateTime(actualStart);
+            if (status == RepairStatus.COMPLETE) {
+                row.append(',');
+                appendDateTime(actualStart.plus(Duration.between(proposedStart, proposedEnd))
+                        .plusDays(random.nextInt(0, 8)));
+            }
+        }
+    }
+
+    private void appendAddress(SplittableRandom random) {
+        row.append(random.nextInt(1, 200)).append(' ')
+                .append(pick(STREETS, random)).append(" Street ")
+                .append(pick(CITIES, random)).append(' ')
+                .append(random.nextInt(10_000, 90_000));
+    }
+
+    private void appendDateTime(LocalDateTime dateTime) {
+        FORMATTER.formatTo(dateTime, row);
+    }
+
+    private void appendPadded(long value, int width) {
+        String digits = Long.toString(value);
+        for (int i = digits.length(); i < width; i++) {
+            row.append('0');
+        }
+        row.append(digits);
+    }
+
+    /**
+     * Draws an index below a bound with a power-law skew towards the low
+     * indexes.
+     */
+    private long skewed(int bound, SplittableRandom random) {
+        return Math.min(bound - 1, (long) (Math.pow(random.nextDouble(), skew) * bound));
+    }
+
+    private static String pick(String[] values, SplittableRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static <E extends Enum<E>> E pickWeighted(E[] values, SplittableRandom random, int... weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int draw = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            draw -= weights[i];
+            if (draw < 0) {
+                return values[i];
+            }
+        }
+        return values[values.length - 1];
+    }
+}
@@ -0,0 +1,122 @@
+package gr.europeandynamics.web.technico.benchmarks;
+
+import gr.europeandynamics.web.technico.exceptions.CustomException;
+import gr.europeandynamics.web.technico.importers.CsvTokenizer;
+import gr.europeandynamics.web.technico.importers.PropertyCSVImporter;
+import gr.europeandynamics.web.technico.importers.RepairCSVImporter;
+import gr.europeandynamics.web.technico.importers.RowImporter;
+import gr.europeandynamics.web.technico.importers.UserCSVImporter;
+import gr.europeandynamics.web.technico.models.PropertyType;
+import gr.europeandynamics.web.technico.models.RepairStatus;
+import gr.europeandynamics.web.technico.models.RepairType;
+import gr.europeandynamics.web.technico.models.Role;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the record parsing of the three CSV importers, from the tokenized
+ * record to the parsed entity, on an in-memory file of each kind. Every
+ * invocation parses the whole file, and the score is the number of records
+ * parsed per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImporterBenchmark {
+
+    private static final int LINES = 10_000;
+
+    private final UserCSVImporter userImporter = new UserCSVImporter();
+    private final PropertyCSVImporter propertyImporter = new PropertyCSVImporter();
+    private final RepairCSVImporter repairImporter = new RepairCSVImporter();
+
+    private byte[] users;
+    private byte[] properties;
+    private byte[] repairs;
+
+    @Setup
+    public void generate() {
+        Role[] roles = Role.values();
+        PropertyType[] propertyTypes = PropertyType.values();
+        RepairType[] repairTypes = RepairType.values();
+        RepairStatus[] repairStatuses = RepairStatus.values();
+        StringBuilder userCsv = new StringBuilder();
+        StringBuilder propertyCsv = new StringBuilder();
+        StringBuilder repairCsv = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            String vat = String.valueOf(100_000_000 + i);
+            userCsv.append(vat).append(',')
+                    .append("Maria").append(',')
+                    .append("Papadopoulou").append(',')
+                    .append("Ermou ").append(i).append(" Athens").append(',')
+                    .append(6_900_000_000L + i).append(',')
+                    .append("maria.papadopoulou").append(i).append("@example.com").append(',')
+                    .append("mariabb").append(i).append(',')
+                    .append(roles[i % roles.length]).append('\n');
+            propertyCsv.append(String.format("E9%018d", i)).append(',')
+                    .append("Ermou ").append(i).append(" Athens").append(',')
+                    .append(1950 + i % 75).append(',')
+                    .append(propertyTypes[i % propertyTypes.length]).append(',')
+                    .append(vat).append('\n');
+            int day = 1 + i % 28;
+            repairCsv.append(1 + i % 500).append(',')
+                    .append(repairTypes[i % repairTypes.length]).append(',')
+                    .append("Short description ").append(i).append(',')
+                    .append(String.format("2024-03-%02d 09:30:00", day)).append(',')
+                    .append("A longer description of repair ").append(i).append(" in the main building").append(',')
+                    .append(String.format("2024-04-%02d 08:00:00", day)).append(',')
+                    .append(String.format("2024-05-%02d 17:00:00", day)).append(',')
+                    .append(100 + i % 900).append(".50").append(',')
+                    .append(i % 2 == 0).append(',')
+                    .append(repairStatuses[i % repairStatuses.length]).append('\n');
+        }
+        users = userCsv.toString().getBytes(StandardCharsets.UTF_8);
+        properties = propertyCsv.toString().getBytes(StandardCharsets.UTF_8);
+        repairs = repairCsv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void userRecords(Blackhole blackhole) throws IOException, CustomException {
+        parse(userImporter, users, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void propertyRecords(Blackhole blackhole) throws IOException, CustomException {
+        parse(propertyImporter, properties, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void repairRecords(Blackhole blackhole) throws IOException, CustomException {
+        parse(repairImporter, repairs, blackhole);
+    }
+
+    private static void parse(RowImporter<?> importer, byte[] file, Blackhole blackhole)
+            throws IOException, CustomException {
+        CsvTokenizer record = new CsvTokenizer(Channels.newChannel(new ByteArrayInputStream(file)),
+                CsvTokenizer.DEFAULT_BUFFER_SIZE);
+        while (record.next()) {
+            blackhole.consume(importer.parseRecord(record));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package gr.europeandynamics.web.technico.benchmarks;
+
+import gr.europeandynamics.web.technico.dtos.AuthenticatedUser;
+import gr.europeandynamics.web.technico.models.Role;
+import gr.europeandynamics.web.technico.security.CredentialCache;
+import gr.europeandynamics.web.technico.security.PasswordHasher;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the steps of a login under concurrent load: a
+ * full password hash verification, which the login pool runs for logins it
+ * has not seen, against the cached answers for repeated successful and failed
+ * logins, and the email validation that runs before every login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(8)
+@Fork(1)
+public class LoginBenchmark {
+
+    private static final String EMAIL_REGEX
+            = "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$";
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_REGEX);
+
+    private static final String EMAIL = "maria.papadopoulou@example.com";
+    private static final String PASSWORD = "mariabb45";
+    private static final String WRONG_PASSWORD = "mariabb46";
+
+    private final PasswordHasher passwordHasher = new PasswordHasher();
+    private final CredentialCache credentialCache = new CredentialCache();
+
+    private String passwordHash;
+
+    @Setup
+    public void prepare() {
+        passwordHash = passwordHasher.hash(PASSWORD);
+        credentialCache.rememberVerified(EMAIL, PASSWORD,
+                new AuthenticatedUser(1L, "123456789", EMAIL, Role.PROPERTY_OWNER), credentialCache.generation(EMAIL));
+        credentialCache.rememberWrongPassword("other@example.com", WRONG_PASSWORD,
+                credentialCache.generation("other@example.com"));
+    }
+
+    @Benchmark
+    public boolean hashVerification() {
+        return passwordHasher.verify(PASSWORD, passwordHash);
+    }
+
+    @Benchmark
+    public Optional<AuthenticatedUser> cachedSuccessfulLogin() {
+        return credentialCache.findVerified(EMAIL, PASSWORD);
+    }
+
+    @Benchmark
+    public boolean cachedFailedLogin() {
+        return credentialCache.isRejected("other@example.com", WRONG_PASSWORD);
+    }
+
+    @Benchmark
+    public boolean emailRegexCompiledPerCall() {
+        return Pattern.compile(EMAIL_REGEX).matcher(EMAIL).matches();
+    }
+
+    @Benchmark
+    public boolean emailRegexPrecompiled() {
+        return EMAIL_PATTERN.matcher(EMAIL).matches();
+    }
+}
@@ -0,0 +1,416 @@
+package gr.europeandynamics.web.technico.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import gr.europeandynamics.web.technico.models.Property;
+import gr.europeandynamics.web.technico.models.PropertyType;
+import gr.europeandynamics.web.technico.models.RepairStatus;
+import gr.europeandynamics.web.technico.models.RepairType;
+import gr.europeandynamics.web.technico.models.Role;
+import gr.europeandynamics.web.technico.models.User;
+import gr.europeandynamics.web.technico.repositories.NaturalKeyCache;
+import gr.europeandynamics.web.technico.repositories.PropertyRepositoryImpl;
+import gr.europeandynamics.web.technico.repositories.RepairQuery;
+import gr.europeandynamics.web.technico.repositories.RepairRepositoryImpl;
+import gr.europeandynamics.web.technico.repositories.UserRepositoryImpl;
+import gr.europeandynamics.web.technico.security.PasswordHasher;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import jakarta.persistence.PersistenceContext;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Times the repository methods against an embedded H2 database in MySQL mode.
+ * The {@code Persistence} unit is booted as it is deployed, second-level
+ * cache included, except that it uses RESOURCE_LOCAL transactions and an H2
+ * connection instead of the JTA data source.
+ *
+ * The database is seeded with SQL set operations, at one property per ten
+ * repairs and one user per two properties. Every method is then called with
+ * arguments drawn from a seeded random generator, in a cleared persistence
+ * context, first for the warmup calls and then for the measured ones. The
+ * result is printed, or written to {@code --out}, as JSON with the p50, p99
+ * and mean time of every method and the SQL statements it prepared per call.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar \
+ *     gr.europeandynamics.web.technico.benchmarks.RepositoryBenchmark \
+ *     --repairs=1000000 --iterations=200 --out=repositories.json
+ * </pre>
+ *
+ * Options, with their defaults: {@code --repairs=10000},
+ * {@code --warmup=20}, {@code --iterations=200}, {@code --seed=42},
+ * {@code --url=jdbc:h2:mem:...} and {@code --unbounded-limit=100000}, above
+ * which the methods that return a fixed share of the whole table are skipped.
+ * For 10M repairs, use a file database such as
+ * {@code --url=jdbc:h2:file:/tmp/technico;MODE=MySQL;NON_KEYWORDS=USER,VALUE}
+ * and a larger heap.
+ */
+public class RepositoryBenchmark {
+
+    private static final String DEFAULT_URL
+            = "jdbc:h2:mem:technico;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1";
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int SUBMISSION_MINUTES = 3 * 365 * 24 * 60;
+
+    private final Map<String, String> options;
+    private final int repairs;
+    private final int properties;
+    private final int users;
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+    private Statistics statistics;
+
+    private UserRepositoryImpl userRepository;
+    private PropertyRepositoryImpl propertyRepository;
+    private RepairRepositoryImpl repairRepository;
+
+    public RepositoryBenchmark(Map<String, String> options) {
+        this.options = options;
+        this.repairs = Integer.parseInt(options.getOrDefault("repairs", "10000"));
+        this.properties = Math.max(1, repairs / 10);
+        this.users = Math.max(1, properties / 2);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --option=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new RepositoryBenchmark(options).run();
+    }
+
+    private void run() throws Exception {
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "20"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "200"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int unboundedLimit = Integer.parseInt(options.getOrDefault("unbounded-limit", "100000"));
+
+        boot();
+        long seedStart = System.nanoTime();
+        seed();
+        long seedMillis = (System.nanoTime() - seedStart) / 1_000_000;
+
+        List<Result> results = new ArrayList<>();
+        for (Case benchmark : cases()) {
+            if (benchmark.unbounded() && repairs > unboundedLimit) {
+                results.add(Result.skipped(benchmark.name()));
+                continue;
+            }
+            try {
+                results.add(measure(benchmark, new Random(seed), warmup, iterations));
+            } catch (Exception e) {
+                rollback();
+                results.add(Result.failed(benchmark.name(), e));
+            }
+        }
+
+        Report report = new Report(options.getOrDefault("url", DEFAULT_URL), repairs, properties, users,
+                warmup, iterations, seed, seedMillis, results);
+        ObjectMapper mapper = new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        String out = options.get("out");
+        if (out == null) {
+            System.out.println(mapper.writeValueAsString(report));
+        } else {
+            mapper.writeValue(new File(out), report);
+        }
+        entityManager.close();
+        entityManagerFactory.close();
+    }
+
+    private Result measure(Case benchmark, Random random, int warmup, int iterations) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            call(benchmark, random);
+        }
+        long[] nanos = new long[iterations];
+        long statements = 0;
+        long rows = 0;
+        for (int i = 0; i < iterations; i++) {
+            Call call = call(benchmark, random);
+            nanos[i] = call.nanos();
+            statements += call.statements();
+            rows += call.rows();
+        }
+        return Result.of(benchmark.name(), nanos, statements, rows);
+    }
+
+    private void rollback() {
+        if (entityManager.getTransaction().isActive()) {
+            entityManager.getTransaction().rollback();
+        }
+    }
+
+    /**
+     * Boots the Persistence unit on H2 and creates the repositories on one
+     * entity manager, the way the container would inject them.
+     */
+    private void boot() throws ReflectiveOperationException {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("jakarta.persistence.transactionType", "RESOURCE_LOCAL");
+        overrides.put("jakarta.persistence.jdbc.driver", "org.h2.Driver");
+        overrides.put("jakarta.persistence.jdbc.url", options.getOrDefault("url", DEFAULT_URL));
+        overrides.put("jakarta.persistence.jdbc.user", "sa");
+        overrides.put("jakarta.persistence.jdbc.password", "");
+        overrides.put("jakarta.persistence.validation.mode", "none");
+        overrides.put("hibernate.show_sql", "false");
+        overrides.put("hibernate.format_sql", "false");
+        overrides.put("hibernate.generate_statistics", "true");
+        entityManagerFactory = Persistence.createEntityManagerFactory("Persistence", overrides);
+        entityManager = entityManagerFactory.createEntityManager();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        NaturalKeyCache naturalKeyCache = new NaturalKeyCache();
+        userRepository = inject(new UserRepositoryImpl(), naturalKeyCache);
+        propertyRepository = inject(new PropertyRepositoryImpl(), naturalKeyCache);
+        repairRepository = inject(new RepairRepositoryImpl(), naturalKeyCache);
+    }
+
+    private <T> T inject(T repository, NaturalKeyCache naturalKeyCache) throws IllegalAccessException {
+        for (Field field : repository.getClass().getDeclaredFields()) {
+            if (field.isAnnotationPresent(PersistenceContext.class)) {
+                field.setAccessible(true);
+                field.set(repository, entityManager);
+            } else if (field.getType() == NaturalKeyCache.class) {
+                field.setAccessible(true);
+                field.set(repository, naturalKeyCache);
+            }
+        }
+        return repository;
+    }
+
+    /**
+     * Seeds users, properties and repairs with one INSERT ... SELECT each,
+     * and moves the ID sequences past the seeded rows.
+     */
+    private void seed() {
+        String passwordHash = new PasswordHasher(1_000).hash("password1");
+        entityManager.getTransaction().begin();
+        entityManager.createNativeQuery("INSERT INTO User "
+                + "(id, vat, name, surname, address, phone_number, email, password_hash, isDeleted, role, version) "
+                + "SELECT X, CAST(100000000 + X AS VARCHAR), 'Name' || X, 'Surname' || X, 'Address ' || X, "
+                + "CAST(6900000000 + X AS VARCHAR), 'user' || X || '@example.com', '" + passwordHash + "', FALSE, "
+                + "CASE WHEN MOD(X, 100) = 0 THEN '" + Role.STAFF_MEMBER + "' ELSE '" + Role.PROPERTY_OWNER + "' END, 0 "
+                + "FROM SYSTEM_RANGE(1, " + users + ")").executeUpdate();
+        entityManager.createNativeQuery("INSERT INTO Property "
+                + "(id, e9, property_address, construction_year, property_type, isDeleted, deleted_by_cascade, "
+                + "user_vat, version) "
+                + "SELECT X, 'E9' || LPAD(CAST(X AS VARCHAR), 18, '0'), 'Address ' || X, 1950 + MOD(X, 75), "
+                + cycle("X", PropertyType.values()) + ", FALSE, FALSE, "
+                + "CAST(100000000 + 1 + MOD(X - 1, " + users + ") AS VARCHAR), 0 "
+                + "FROM SYSTEM_RANGE(1, " + properties + ")").executeUpdate();
+        entityManager.createNativeQuery("INSERT INTO Repair "
+                + "(id, property_id, repair_type, short_description, description, submission_date, "
+                + "proposed_start_date, proposed_end_date, proposed_cost, acceptance_status, repair_status, "
+                + "actual_start_date, actual_end_date, isDeleted, deleted_by_cascade, version) "
+                + "SELECT X, 1 + MOD(X - 1, " + properties + "), " + cycle("X", RepairType.values()) + ", "
+                + "'Repair ' || X, 'Description of repair ' || X, S, "
+                + "DATEADD(DAY, 7, S), DATEADD(DAY, 21, S), 50 + MOD(X, 2000), "
+                + "MOD(X, 100) >= 3, "
+                + "CASE WHEN MOD(X, 100) < 2 THEN '" + RepairStatus.PENDING + "' "
+                + "WHEN MOD(X, 100) < 3 THEN '" + RepairStatus.DECLINED + "' "
+                + "WHEN MOD(X, 100) < 5 THEN '" + RepairStatus.INPROGRESS + "' "
+                + "ELSE '" + RepairStatus.COMPLETE + "' END, "
+                + "DATEADD(DAY, 7, S), DATEADD(DAY, 21, S), FALSE, FALSE, 0 "
+                + "FROM (SELECT X, DATEADD(MINUTE, -MOD(X * 7919, " + SUBMISSION_MINUTES + "), "
+                + "TIMESTAMP '" + now.format(TIMESTAMP) + "') S FROM SYSTEM_RANGE(1, " + repairs + "))").executeUpdate();
+        restartSequence("user_seq", users);
+        restartSequence("property_seq", properties);
+        restartSequence("repair_seq", repairs);
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+    }
+
+    private void restartSequence(String sequence, int rows) {
+        entityManager.createNativeQuery("ALTER SEQUENCE " + sequence + " RESTART WITH " + (rows + 1)).executeUpdate();
+    }
+
+    private static String cycle(String column, Enum<?>[] values) {
+        StringBuilder sql = new StringBuilder("CASE MOD(" + column + ", " + values.length + ")");
+        for (int i = 0; i < values.length; i++) {
+            sql.append(" WHEN ").append(i).append(" THEN '").append(values[i].name()).append('\'');
+        }
+        return sql.append(" END").toString();
+    }
+
+    /**
+     * Lists the timed calls. Each case draws its arguments, loading any
+     * entity it needs, before the call that is timed.
+     */
+    private List<Case> cases() {
+        return List.of(
+                new Case("UserRepository.getById", false,
+                        random -> () -> userRepository.getById(userId(random))),
+                new Case("UserRepository.getUserByVat", false,
+                        random -> () -> userRepository.getUserByVat(vat(userId(random)))),
+                new Case("UserRepository.getUserByEmail", false,
+                        random -> () -> userRepository.getUserByEmail("user" + userId(random) + "@example.com")),
+                new Case("UserRepository.getPage", false,
+                        random -> () -> userRepository.getPage(userId(random), 50)),
+                new Case("PropertyRepository.getById", false,
+                        random -> () -> propertyRepository.getById(propertyId(random))),
+                new Case("PropertyRepository.findPropertyByE9", false,
+                        random -> () -> propertyRepository.findPropertyByE9(e9(propertyId(random)))),
+                new Case("PropertyRepository.findPropertiesByVAT", false,
+                        random -> () -> propertyRepository.findPropertiesByVAT(vat(userId(random)))),
+                new Case("PropertyRepository.findEntityTag", false,
+                        random -> () -> propertyRepository.findEntityTag(propertyId(random))),
+                new Case("PropertyRepository.getPage", false,
+                        random -> () -> propertyRepository.getPage(propertyId(random), 50)),
+                new Case("PropertyRepository.getSummaryPage", false,
+                        random -> () -> propertyRepository.getSummaryPage(propertyId(random), 50)),
+                new Case("RepairRepository.getById", false,
+                        random -> () -> repairRepository.getById(1L + random.nextInt(repairs))),
+                new Case("RepairRepository.findEntityTag", false,
+                        random -> () -> repairRepository.findEntityTag(1L + random.nextInt(repairs))),
+                new Case("RepairRepository.getPage", false,
+                        random -> () -> repairRepository.getPage((long) random.nextInt(repairs), 50)),
+                new Case("RepairRepository.getSummaryPage", false,
+                        random -> () -> repairRepository.getSummaryPage((long) random.nextInt(repairs), 50)),
+                new Case("RepairRepository.findPendingRepairsByUser", false, random -> {
+                    User user = entityManager.find(User.class, userId(random));
+                    return () -> repairRepository.findPendingRepairsByUser(user);
+                }),
+                new Case("RepairRepository.findRepairsByUserId", false,
+                        random -> () -> repairRepository.findRepairsByUserId(userId(random))),
+                new Case("RepairRepository.findRepairsByPropertyId", false, random -> {
+                    Property property = entityManager.find(Property.class, propertyId(random));
+                    return () -> repairRepository.findRepairsByPropertyId(property);
+                }),
+                new Case("RepairRepository.findRepairsByDates", false, random -> {
+                    LocalDateTime start = now.minusMinutes(random.nextInt(SUBMISSION_MINUTES));
+                    return () -> repairRepository.findRepairsByDates(start, start.plusDays(1), null);
+                }),
+                new Case("RepairRepository.findRepairSummariesByDates", false, random -> {
+                    LocalDateTime start = now.minusMinutes(random.nextInt(SUBMISSION_MINUTES));
+                    return () -> repairRepository.findRepairSummariesByDates(start, start.plusDays(1), null);
+                }),
+                new Case("RepairRepository.findRepairsByDates(user)", false, random -> {
+                    LocalDateTime start = now.minusMinutes(random.nextInt(SUBMISSION_MINUTES));
+                    long userId = userId(random);
+                    return () -> repairRepository.findRepairsByDates(start, start.plusDays(90), userId);
+                }),
+                new Case("RepairRepository.findInprogressRepairsToday", false,
+                        random -> () -> repairRepository.findInprogressRepairsToday()),
+                new Case("RepairRepository.searchSummaries", false, random -> {
+                    RepairQuery query = RepairQuery.builder()
+                            .statuses(List.of(RepairStatus.PENDING, RepairStatus.INPROGRESS))
+                            .submittedFrom(now.minusDays(1 + random.nextInt(3 * 365)))
+                            .sort(RepairQuery.SortField.SUBMISSION_DATE)
+                            .limit(50)
+                            .build();
+                    return () -> repairRepository.searchSummaries(query);
+                }),
+                new Case("RepairRepository.findPendingRepairs", true,
+                        random -> () -> repairRepository.findPendingRepairs()),
+                new Case("RepairRepository.findInProgressRepairs", true,
+                        random -> () -> repairRepository.findInProgressRepairs()),
+                new Case("RepairRepository.findAcceptedRepairs", true,
+                        random -> () -> repairRepository.findAcceptedRepairs()));
+    }
+
+    private long userId(Random random) {
+        return 1L + random.nextInt(users);
+    }
+
+    private long propertyId(Random random) {
+        return 1L + random.nextInt(properties);
+    }
+
+    private static String vat(long userId) {
+        return String.valueOf(100_000_000 + userId);
+    }
+
+    private static String e9(long propertyId) {
+        return String.format("E9%018d", propertyId);
+    }
+
+    private Call call(Case benchmark, Random random) throws Exception {
+        entityManager.clear();
+        Callable<?> callable = benchmark.arrange().apply(random);
+        long statementsBefore = statistics.getPrepareStatementCount();
+        long start = System.nanoTime();
+        Object result = callable.call();
+        long nanos = System.nanoTime() - start;
+        return new Call(nanos, statistics.getPrepareStatementCount() - statementsBefore, rows(result));
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return 1;
+    }
+
+    private record Case(String name, boolean unbounded, Function<Random, Callable<?>> arrange) {
+    }
+
+    private record Call(long nanos, long statements, long rows) {
+    }
+
+    /**
+     * The timing of one repository method.
+     */
+    public record Result(String method, Integer calls, Double p50Micros, Double p99Micros, Double meanMicros,
+            Double statementsPerCall, Double rowsPerCall, String skipped, String error) {
+
+        static Result of(String method, long[] nanos, long statements, long rows) {
+            long[] sorted = nanos.clone();
+            Arrays.sort(sorted);
+            double mean = Arrays.stream(sorted).average().orElse(0);
+            return new Result(method, sorted.length, micros(percentile(sorted, 50)), micros(percentile(sorted, 99)),
+                    micros(mean), (double) statements / sorted.length, (double) rows / sorted.length, null, null);
+        }
+
+        static Result skipped(String method) {
+            return new Result(method, 0, null, null, null, null, null,
+                    "returns a share of the whole table, above --unbounded-limit", null);
+        }
+
+        static Result failed(String method, Exception e) {
+            return new Result(method, 0, null, null, null, null, null, null, e.toString());
+        }
+
+        private static long percentile(long[] sorted, int percentile) {
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        private static double micros(double nanos) {
+            return Math.round(nanos / 100.0) / 10.0;
+        }
+    }
+
+    /**
+     * A run of the benchmark.
+     */
+    public record Report(String url, int repairs, int properties, int users, int warmup, int iterations,
+            long seed, long seedMillis, List<Result> results) {
+    }
+}
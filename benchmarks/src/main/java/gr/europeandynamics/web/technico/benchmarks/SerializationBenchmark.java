@@ -0,0 +1,124 @@
+package gr.europeandynamics.web.technico.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.europeandynamics.web.technico.dtos.RepairSummary;
+import gr.europeandynamics.web.technico.models.Property;
+import gr.europeandynamics.web.technico.models.PropertyType;
+import gr.europeandynamics.web.technico.models.Repair;
+import gr.europeandynamics.web.technico.models.RepairStatus;
+import gr.europeandynamics.web.technico.models.RepairType;
+import gr.europeandynamics.web.technico.models.Role;
+import gr.europeandynamics.web.technico.models.User;
+import gr.europeandynamics.web.technico.services.ObjectMapperContextResolver;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how repairs are rendered: serializing a repair, with its property
+ * and owner nested in it, and a page of such repairs with the mapper the
+ * resources use, the same page as the summaries the list endpoints return,
+ * and the {@code toString} of a repair and of a user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final ObjectMapper mapper = new ObjectMapperContextResolver().getContext(Repair.class);
+
+    private Repair repair;
+    private List<Repair> page;
+    private List<RepairSummary> summaryPage;
+
+    @Setup
+    public void prepare() {
+        LocalDateTime now = LocalDateTime.of(2024, 3, 15, 9, 30);
+        User owner = new User();
+        owner.setId(1L);
+        owner.setVat("123456789");
+        owner.setName("Maria");
+        owner.setSurname("Papadopoulou");
+        owner.setAddress("Ermou 12, Athens");
+        owner.setPhoneNumber("6912345678");
+        owner.setEmail("maria.papadopoulou@example.com");
+        owner.setRole(Role.PROPERTY_OWNER);
+
+        Property property = new Property();
+        property.setId(1L);
+        property.setE9("E9000000000000000001");
+        property.setPropertyAddress("Ermou 12, Athens");
+        property.setConstructionYear(1985);
+        property.setPropertyType(PropertyType.APARTMENTBUILDING);
+        property.setUser(owner);
+
+        page = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Repair item = new Repair();
+            item.setId((long) i + 1);
+            item.setRepairType(RepairType.values()[i % RepairType.values().length]);
+            item.setShortDescription("Short description " + i);
+            item.setDescription("A longer description of repair " + i + " in the main building");
+            item.setSubmissionDate(now.minusDays(i % 30));
+            item.setProposedStartDate(now.plusDays(1 + i % 30));
+            item.setProposedEndDate(now.plusDays(31 + i % 30));
+            item.setProposedCost(BigDecimal.valueOf(10_050 + i, 2));
+            item.setAcceptanceStatus(i % 2 == 0);
+            item.setRepairStatus(RepairStatus.values()[i % RepairStatus.values().length]);
+            item.setProperty(property);
+            page.add(item);
+        }
+        repair = page.get(0);
+
+        summaryPage = new ArrayList<>(PAGE_SIZE);
+        for (Repair item : page) {
+            summaryPage.add(new RepairSummary(item.getId(), item.getRepairType(), item.getRepairStatus(),
+                    item.getAcceptanceStatus(), item.getShortDescription(), item.getSubmissionDate(),
+                    item.getProposedStartDate(), item.getProposedEndDate(), item.getProposedCost(),
+                    property.getId(), property.getE9(), property.getPropertyAddress(), owner.getVat()));
+        }
+    }
+
+    @Benchmark
+    public byte[] repairToJson() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(repair);
+    }
+
+    @Benchmark
+    public byte[] repairPageToJson() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] repairSummaryPageToJson() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(summaryPage);
+    }
+
+    @Benchmark
+    public String repairToString() {
+        return repair.toString();
+    }
+
+    @Benchmark
+    public String userToString() {
+        return repair.getProperty().getUser().toString();
+    }
+}
@@ -0,0 +1,52 @@
+package gr.europeandynamics.web.technico.benchmarks;
+
+import gr.europeandynamics.web.technico.dtos.AuthenticatedUser;
+import gr.europeandynamics.web.technico.models.Role;
+import gr.europeandynamics.web.technico.security.TokenClaims;
+import gr.europeandynamics.web.technico.security.TokenService;
+import java.time.Clock;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures issuing a session token on login and verifying it, which every
+ * request to a staff member route pays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBenchmark {
+
+    private final AuthenticatedUser user = new AuthenticatedUser(42L, "123456789", "staff@example.com", Role.STAFF_MEMBER);
+    private final TokenService tokenService = new TokenService(new byte[32], TokenService.DEFAULT_TTL, Clock.systemUTC());
+
+    private String token;
+
+    @Setup
+    public void issueToken() {
+        token = tokenService.issue(user).token();
+    }
+
+    @Benchmark
+    public TokenService.IssuedToken issue() {
+        return tokenService.issue(user);
+    }
+
+    @Benchmark
+    public Optional<TokenClaims> verify() {
+        return tokenService.verify(token);
+    }
+}
@@ -0,0 +1,221 @@
+package gr.europeandynamics.web.technico.benchmarks;
+
+import gr.europeandynamics.web.technico.exceptions.CustomException;
+import gr.europeandynamics.web.technico.models.Property;
+import gr.europeandynamics.web.technico.models.PropertyType;
+import gr.europeandynamics.web.technico.models.Repair;
+import gr.europeandynamics.web.technico.models.RepairStatus;
+import gr.europeandynamics.web.technico.models.RepairType;
+import gr.europeandynamics.web.technico.models.Role;
+import gr.europeandynamics.web.technico.models.User;
+import gr.europeandynamics.web.technico.validators.PropertyValidator;
+import gr.europeandynamics.web.technico.validators.RepairValidator;
+import gr.europeandynamics.web.technico.validators.UserValidator;
+import gr.europeandynamics.web.technico.validators.Violation;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares validating a batch of valid users and repairs with the rule sets
+ * of the validators against the previous checks, which matched regular
+ * expressions with {@code String.matches} and read the clock once per date
+ * check. The previous checks are kept here as the baseline. Properties, whose
+ * checks did not change, are measured with the rule set only. The score is
+ * the time to validate the whole batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidatorBenchmark {
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(
+            "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$");
+
+    @Param({"1000"})
+    private int rows;
+
+    private final UserValidator userValidator = new UserValidator();
+    private final PropertyValidator propertyValidator = new PropertyValidator();
+    private final RepairValidator repairValidator = new RepairValidator();
+
+    private List<User> users;
+    private List<Property> properties;
+    private List<Repair> repairs;
+
+    @Setup
+    public void generate() {
+        users = new ArrayList<>(rows);
+        properties = new ArrayList<>(rows);
+        repairs = new ArrayList<>(rows);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < rows; i++) {
+            User user = new User();
+            user.setVat(String.valueOf(100_000_000 + i));
+            user.setName("Maria");
+            user.setSurname("Papadopoulou");
+            user.setAddress("Ermou " + i + ", Athens");
+            user.setPhoneNumber("69" + (10_000_000 + i));
+            user.setEmail("maria.papadopoulou" + i + "@example.com");
+            user.setPassword("mariabb" + i);
+            user.setRole(Role.PROPERTY_OWNER);
+            users.add(user);
+
+            Property property = new Property();
+            property.setE9(String.format("E9%018d", i));
+            property.setPropertyAddress("Ermou " + i + ", Athens");
+            property.setConstructionYear(1950 + i % 75);
+            property.setPropertyType(PropertyType.values()[i % PropertyType.values().length]);
+            property.setUser(user);
+            properties.add(property);
+
+            Repair repair = new Repair();
+            repair.setRepairType(RepairType.values()[i % RepairType.values().length]);
+            repair.setRepairStatus(RepairStatus.values()[i % RepairStatus.values().length]);
+            repair.setSubmissionDate(now.minusDays(1 + i % 30));
+            repair.setProposedStartDate(now.plusDays(1 + i % 30));
+            repair.setProposedEndDate(now.plusDays(31 + i % 30));
+            repair.setProposedCost(BigDecimal.valueOf(100 + i));
+            repair.setActualStartDate(now.plusDays(2 + i % 30));
+            repair.setActualEndDate(now.plusDays(32 + i % 30));
+            repairs.add(repair);
+        }
+    }
+
+    @Benchmark
+    public void usersRegex(Blackhole blackhole) {
+        for (User user : users) {
+            blackhole.consume(regexCheck(user));
+        }
+    }
+
+    @Benchmark
+    public void usersRuleSet(Blackhole blackhole) throws CustomException {
+        for (User user : users) {
+            userValidator.validateUser(user);
+        }
+        blackhole.consume(users);
+    }
+
+    @Benchmark
+    public List<List<Violation>> usersRuleSetBatch() {
+        return userValidator.validateAll(users);
+    }
+
+    @Benchmark
+    public void propertiesRuleSet(Blackhole blackhole) throws CustomException {
+        for (Property property : properties) {
+            propertyValidator.validateProperty(property);
+        }
+        blackhole.consume(properties);
+    }
+
+    @Benchmark
+    public List<List<Violation>> propertiesRuleSetBatch() {
+        return propertyValidator.validateAll(properties);
+    }
+
+    @Benchmark
+    public void repairsClockPerCheck(Blackhole blackhole) {
+        for (Repair repair : repairs) {
+            blackhole.consume(clockPerCheck(repair));
+        }
+    }
+
+    @Benchmark
+    public void repairsRuleSet(Blackhole blackhole) throws CustomException {
+        for (Repair repair : repairs) {
+            repairValidator.validateRepair(repair);
+        }
+        blackhole.consume(repairs);
+    }
+
+    @Benchmark
+    public List<List<Violation>> repairsRuleSetBatch() {
+        return repairValidator.validateAll(repairs);
+    }
+
+    /**
+     * The previous user checks, returning the first broken rule.
+     */
+    private static String regexCheck(User user) {
+        String vat = user.getVat();
+        if (vat == null || vat.length() != 9 || !vat.matches("\\d+")) {
+            return "vat";
+        }
+        if (user.getName() == null || user.getName().isBlank() || user.getName().length() > 50) {
+            return "name";
+        }
+        if (user.getSurname() == null || user.getSurname().isBlank() || user.getSurname().length() > 50) {
+            return "surname";
+        }
+        if (user.getAddress() != null && user.getAddress().length() > 50) {
+            return "address";
+        }
+        String phoneNumber = user.getPhoneNumber();
+        if (phoneNumber != null && (phoneNumber.length() > 14 || !phoneNumber.matches("\\d+"))) {
+            return "phoneNumber";
+        }
+        String email = user.getEmail();
+        if (email == null || email.isBlank() || !EMAIL_PATTERN.matcher(email).matches()) {
+            return "email";
+        }
+        String password = user.getPassword();
+        if (password == null || password.length() < 8 || password.length() > 50
+                || !password.matches(".*\\d.*") || !password.matches(".*[A-Za-z].*")) {
+            return "password";
+        }
+        return user.getRole() == null ? "role" : null;
+    }
+
+    /**
+     * The previous repair checks, returning the first broken rule.
+     */
+    private static String clockPerCheck(Repair repair) {
+        if (repair.getRepairType() == null) {
+            return "repairType";
+        }
+        if (repair.getSubmissionDate() == null || repair.getSubmissionDate().isAfter(LocalDateTime.now())) {
+            return "submissionDate";
+        }
+        if (repair.getProposedStartDate() != null && repair.getProposedStartDate().isBefore(LocalDateTime.now())) {
+            return "proposedStartDate";
+        }
+        if (repair.getProposedEndDate() != null && (repair.getProposedEndDate().isBefore(LocalDateTime.now())
+                || repair.getProposedStartDate() != null && repair.getProposedEndDate().isBefore(repair.getProposedStartDate()))) {
+            return "proposedEndDate";
+        }
+        if (repair.getProposedCost() != null && repair.getProposedCost().compareTo(BigDecimal.ZERO) < 0) {
+            return "proposedCost";
+        }
+        if (repair.getRepairStatus() == null) {
+            return "repairStatus";
+        }
+        if (repair.getActualStartDate() != null && repair.getActualStartDate().isBefore(LocalDateTime.now())) {
+            return "actualStartDate";
+        }
+        if (repair.getActualEndDate() != null && (repair.getActualEndDate().isBefore(LocalDateTime.now())
+                || repair.getActualStartDate() != null && repair.getActualEndDate().isBefore(repair.getActualStartDate()))) {
+            return "actualEndDate";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,14 @@
+package gr.europeandynamics.web.technico.dtos;
+
+import gr.europeandynamics.web.technico.models.Role;
+
+/**
+ * The user a login was verified for.
+ *
+ * @param id the ID of the user
+ * @param vat the VAT number of the user
+ * @param email the email address the user logged in with
+ * @param role the role of the user
+ */
+public record AuthenticatedUser(Long id, String vat, String email, Role role) {
+}
@@ -0,0 +1,17 @@
+package gr.europeandynamics.web.technico.dtos;
+
+/**
+ * The hit and miss counts of a second-level cache region since the
+ * application started.
+ *
+ * @param region the name of the cache region
+ * @param hits the number of lookups served from the region
+ * @param misses the number of lookups that went to the database
+ * @param puts the number of entries stored in the region
+ * @param elementsInMemory the number of entries currently held, or -1 if the
+ * provider does not report it
+ * @param hitRatio the share of lookups served from the region
+ */
+public record CacheRegionStats(String region, long hits, long misses, long puts, long elementsInMemory,
+        double hitRatio) {
+}
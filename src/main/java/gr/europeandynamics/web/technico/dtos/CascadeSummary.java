@@ -0,0 +1,25 @@
+package gr.europeandynamics.web.technico.dtos;
+
+/**
+ * The rows changed by an operation that cascades from a user to their
+ * properties and repairs, or from a property to its repairs.
+ *
+ * @param users the number of users changed
+ * @param properties the number of properties changed
+ * @param repairs the number of repairs changed
+ */
+public record CascadeSummary(long users, long properties, long repairs) {
+
+    public static final CascadeSummary NONE = new CascadeSummary(0, 0, 0);
+
+    /**
+     * Adds the counts of another operation, such as the next chunk of the
+     * same cascade.
+     *
+     * @param other the counts to add
+     * @return the summed counts
+     */
+    public CascadeSummary plus(CascadeSummary other) {
+        return new CascadeSummary(users + other.users, properties + other.properties, repairs + other.repairs);
+    }
+}
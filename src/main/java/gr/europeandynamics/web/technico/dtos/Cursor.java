@@ -0,0 +1,105 @@
+package gr.europeandynamics.web.technico.dtos;
+
+import gr.europeandynamics.web.technico.exceptions.CustomException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque cursors handed out by paginated endpoints.
+ * A cursor holds the ID of the last row of a page and, for listings sorted
+ * by another column, the value of that column as well.
+ */
+public final class Cursor {
+
+    private static final String ID_PREFIX = "id:";
+    private static final String AT_PREFIX = "at:";
+    private static final char SEPARATOR = '|';
+
+    private Cursor() {
+    }
+
+    /**
+     * Encodes the ID of the last row of a page into a cursor.
+     *
+     * @param id the ID of the last row
+     * @return the opaque cursor
+     */
+    public static String encode(Long id) {
+        return toBase64(ID_PREFIX + id);
+    }
+
+    /**
+     * Encodes the sort value and the ID of the last row of a page into a
+     * cursor.
+     *
+     * @param sortValue the sort column value of the last row
+     * @param id the ID of the last row
+     * @return the opaque cursor
+     */
+    public static String encode(LocalDateTime sortValue, Long id) {
+        return toBase64(AT_PREFIX + sortValue + SEPARATOR + ID_PREFIX + id);
+    }
+
+    /**
+     * Decodes a cursor back into the ID of the row to continue after.
+     *
+     * @param cursor the opaque cursor, may be null or blank for the first page
+     * @return the ID to continue after, or null for the first page
+     * @throws CustomException if the cursor is malformed
+     */
+    public static Long decode(String cursor) throws CustomException {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String decoded = fromBase64(cursor);
+        String idPart = decoded.substring(decoded.indexOf(SEPARATOR) + 1);
+        if (!idPart.startsWith(ID_PREFIX)) {
+            throw new CustomException("Invalid cursor.");
+        }
+        try {
+            return Long.valueOf(idPart.substring(ID_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new CustomException("Invalid cursor.");
+        }
+    }
+
+    /**
+     * Decodes the sort value of a cursor produced by
+     * {@link #encode(LocalDateTime, Long)}.
+     *
+     * @param cursor the opaque cursor, may be null or blank for the first page
+     * @return the sort value to continue after, or null for the first page
+     * @throws CustomException if the cursor is malformed or carries no sort
+     * value
+     */
+    public static LocalDateTime decodeSortValue(String cursor) throws CustomException {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String decoded = fromBase64(cursor);
+        int separator = decoded.indexOf(SEPARATOR);
+        if (!decoded.startsWith(AT_PREFIX) || separator < 0) {
+            throw new CustomException("Invalid cursor.");
+        }
+        try {
+            return LocalDateTime.parse(decoded.substring(AT_PREFIX.length(), separator));
+        } catch (DateTimeParseException e) {
+            throw new CustomException("Invalid cursor.");
+        }
+    }
+
+    private static String toBase64(String value) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String fromBase64(String cursor) throws CustomException {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new CustomException("Invalid cursor.");
+        }
+    }
+}
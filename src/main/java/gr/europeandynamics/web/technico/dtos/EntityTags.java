@@ -0,0 +1,164 @@
+package gr.europeandynamics.web.technico.dtos;
+
+import gr.europeandynamics.web.technico.exceptions.CustomException;
+import gr.europeandynamics.web.technico.models.Property;
+import gr.europeandynamics.web.technico.models.Repair;
+import gr.europeandynamics.web.technico.models.User;
+import gr.europeandynamics.web.technico.security.ContentCoding;
+
+/**
+ * Builds and parses the entity tags of repairs and properties. A tag is the
+ * version of the entity followed by the versions of the entities embedded in
+ * its representation, separated by dots: a repair embeds its property and the
+ * owner of the property, so its tag changes when any of the three changes.
+ * A tag can therefore be computed from the version columns alone, without
+ * loading or serializing the entities.
+ *
+ * The tags are strong. A compressed response has other bytes than an
+ * uncompressed one, so its tag is suffixed with a dash and the content coding,
+ * as in {@code "5.3.2-gzip"}, by the compression of the response. The suffix
+ * is ignored when a tag sent back by a client is compared.
+ */
+public final class EntityTags {
+
+    private static final char SEPARATOR = '.';
+    private static final char CODING_SEPARATOR = '-';
+    private static final String WEAK_PREFIX = "W/";
+
+    private EntityTags() {
+    }
+
+    /**
+     * Builds the tag of a repair.
+     *
+     * @param repair the repair
+     * @return the entity tag value, without quotes
+     */
+    public static String of(Repair repair) {
+        Property property = repair.getProperty();
+        User owner = property == null ? null : property.getUser();
+        return of(repair.getVersion(), property == null ? null : property.getVersion(),
+                owner == null ? null : owner.getVersion());
+    }
+
+    /**
+     * Builds the tag of a property.
+     *
+     * @param property the property
+     * @return the entity tag value, without quotes
+     */
+    public static String of(Property property) {
+        User owner = property.getUser();
+        return of(property.getVersion(), owner == null ? null : owner.getVersion());
+    }
+
+    /**
+     * Builds a tag out of the version of an entity and the versions of the
+     * entities it embeds.
+     *
+     * @param versions the versions, the entity's own first; null for an
+     * embedded entity that is absent
+     * @return the entity tag value, without quotes
+     */
+    public static String of(Number... versions) {
+        StringBuilder tag = new StringBuilder(24);
+        for (Number version : versions) {
+            if (version != null) {
+                if (!tag.isEmpty()) {
+                    tag.append(SEPARATOR);
+                }
+                tag.append(version.longValue());
+            }
+        }
+        return tag.toString();
+    }
+
+    /**
+     * Builds the tag of a representation compressed with a content coding.
+     *
+     * @param tag the entity tag value, without quotes
+     * @param coding the content coding token
+     * @return the entity tag value of the compressed representation, without
+     * quotes
+     */
+    public static String withCoding(String tag, String coding) {
+        return tag + CODING_SEPARATOR + coding;
+    }
+
+    /**
+     * Finds the tag of an If-None-Match header that matches the current tag
+     * of an entity. The tags are compared weakly, as If-None-Match requires,
+     * and regardless of the content coding they were sent with, since every
+     * coding carries the same entity.
+     *
+     * @param ifNoneMatch the If-None-Match header, may be null
+     * @param tag the current entity tag value, without quotes
+     * @return the matching tag value as the client sent it, without quotes
+     * and weakness, or null if none matches
+     */
+    public static String findMatch(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return tag;
+            }
+            if (value.startsWith(WEAK_PREFIX)) {
+                value = value.substring(WEAK_PREFIX.length());
+            }
+            if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                value = value.substring(1, value.length() - 1);
+                if (withoutCoding(value).equals(tag)) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extracts the version of the entity itself from an If-Match header. Only
+     * a single strong tag is accepted, since an update is a single UPDATE
+     * conditioned on one version and If-Match compares tags strongly. A
+     * content coding suffix is ignored. The versions of the embedded entities
+     * are not compared, because an update only writes the columns of the
+     * entity itself.
+     *
+     * @param ifMatch the If-Match header, may be null
+     * @return the version to update, or null if the header is absent or
+     * {@code *}, so that any current version matches
+     * @throws CustomException if the header is not a single strong tag built
+     * by this class, which can never match
+     */
+    public static Long version(String ifMatch) throws CustomException {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new CustomException("Invalid entity tag.");
+        }
+        String value = withoutCoding(tag.substring(1, tag.length() - 1));
+        int separator = value.indexOf(SEPARATOR);
+        try {
+            return Long.valueOf(separator < 0 ? value : value.substring(0, separator));
+        } catch (NumberFormatException e) {
+            throw new CustomException("Invalid entity tag.");
+        }
+    }
+
+    /**
+     * Strips the suffix of a known content coding off a tag value.
+     */
+    private static String withoutCoding(String value) {
+        for (ContentCoding coding : ContentCoding.values()) {
+            String suffix = CODING_SEPARATOR + coding.getToken();
+            if (value.endsWith(suffix)) {
+                return value.substring(0, value.length() - suffix.length());
+            }
+        }
+        return value;
+    }
+}
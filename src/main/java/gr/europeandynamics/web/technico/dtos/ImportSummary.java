@@ -0,0 +1,25 @@
+package gr.europeandynamics.web.technico.dtos;
+
+import java.util.List;
+
+/**
+ * The outcome of a bulk import. Only the first rejected rows are listed, the
+ * counts always cover the whole import.
+ *
+ * @param accepted the number of stored rows
+ * @param rejected the number of rejected rows
+ * @param errors the first rejected rows and the reasons they were rejected
+ * @param errorsTruncated whether more rows were rejected than listed
+ */
+public record ImportSummary(long accepted, long rejected, List<RejectedRow> errors, boolean errorsTruncated) {
+
+    /**
+     * A rejected row.
+     *
+     * @param row the number of the record in the imported body, counting from
+     * 1
+     * @param reason why the row was rejected
+     */
+    public record RejectedRow(long row, String reason) {
+    }
+}
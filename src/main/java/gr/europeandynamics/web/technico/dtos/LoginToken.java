@@ -0,0 +1,12 @@
+package gr.europeandynamics.web.technico.dtos;
+
+/**
+ * The session token issued on login. Clients send it back in an
+ * {@code Authorization: Bearer} header.
+ *
+ * @param token the signed token
+ * @param expiresAt when the token expires, in seconds since the epoch
+ * @param user the user the token was issued to
+ */
+public record LoginToken(String token, long expiresAt, AuthenticatedUser user) {
+}
@@ -0,0 +1,49 @@
+package gr.europeandynamics.web.technico.dtos;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A single page of a keyset paginated listing. The {@code nextCursor} is an
+ * opaque token to be passed back as {@code ?after=} to fetch the following
+ * page, or null when this is the last page.
+ *
+ * @param <T> the type of the page items
+ */
+public record Page<T>(List<T> items, String nextCursor) {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    /**
+     * Normalizes a requested page size to the allowed range.
+     *
+     * @param limit the requested page size, may be null
+     * @return the default limit if none was requested, otherwise the limit
+     * clamped between 1 and {@link #MAX_LIMIT}
+     */
+    public static int clampLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Builds a page out of rows fetched with one extra row beyond the page
+     * size, which tells whether a next page exists without a count query.
+     *
+     * @param rows the fetched rows, at most {@code limit + 1}
+     * @param limit the page size
+     * @param cursorOf extracts the cursor of a row
+     * @param <T> the type of the page items
+     * @return the page with the cursor of its last item if more rows follow
+     */
+    public static <T> Page<T> of(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, cursorOf.apply(items.get(limit - 1)));
+    }
+}
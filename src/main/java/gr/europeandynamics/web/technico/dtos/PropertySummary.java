@@ -0,0 +1,18 @@
+package gr.europeandynamics.web.technico.dtos;
+
+import gr.europeandynamics.web.technico.models.PropertyType;
+
+/**
+ * A property as listed by the list endpoints, with the VAT number of its
+ * owner in place of the full user. The full property is retrieved by its ID.
+ *
+ * @param id the ID of the property
+ * @param e9 the E9 of the property
+ * @param propertyAddress the address of the property
+ * @param constructionYear the construction year of the property
+ * @param propertyType the type of the property
+ * @param ownerVat the VAT number of the owner of the property
+ */
+public record PropertySummary(Long id, String e9, String propertyAddress, int constructionYear,
+        PropertyType propertyType, String ownerVat) {
+}
@@ -0,0 +1,17 @@
+package gr.europeandynamics.web.technico.dtos;
+
+/**
+ * The execution counts and times of one query since the application started.
+ *
+ * @param query the HQL or SQL of the query
+ * @param executions the number of times the query ran
+ * @param rows the number of rows the executions returned in total
+ * @param totalMillis the time spent executing the query in total
+ * @param averageMillis the average time of an execution
+ * @param maxMillis the time of the slowest execution
+ * @param cacheHits the number of executions served from the query cache
+ * @param cacheMisses the number of executions the query cache could not serve
+ */
+public record QueryStats(String query, long executions, long rows, long totalMillis, double averageMillis,
+        long maxMillis, long cacheHits, long cacheMisses) {
+}
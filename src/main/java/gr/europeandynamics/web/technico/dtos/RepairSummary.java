@@ -0,0 +1,31 @@
+package gr.europeandynamics.web.technico.dtos;
+
+import gr.europeandynamics.web.technico.models.RepairStatus;
+import gr.europeandynamics.web.technico.models.RepairType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A repair as listed by the list endpoints: its own scheduling columns and
+ * the identifiers of its property and owner, in place of the full property
+ * and user. The full repair is retrieved by its ID.
+ *
+ * @param id the ID of the repair
+ * @param repairType the type of the repair
+ * @param repairStatus the status of the repair
+ * @param acceptanceStatus whether the owner accepted the proposal
+ * @param shortDescription the short description of the repair
+ * @param submissionDate when the repair was submitted
+ * @param proposedStartDate the proposed start date
+ * @param proposedEndDate the proposed end date
+ * @param proposedCost the proposed cost
+ * @param propertyId the ID of the property
+ * @param propertyE9 the E9 of the property
+ * @param propertyAddress the address of the property
+ * @param ownerVat the VAT number of the owner of the property
+ */
+public record RepairSummary(Long id, RepairType repairType, RepairStatus repairStatus, Boolean acceptanceStatus,
+        String shortDescription, LocalDateTime submissionDate, LocalDateTime proposedStartDate,
+        LocalDateTime proposedEndDate, BigDecimal proposedCost, Long propertyId, String propertyE9,
+        String propertyAddress, String ownerVat) {
+}
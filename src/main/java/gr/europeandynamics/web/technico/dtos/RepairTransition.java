@@ -0,0 +1,55 @@
+package gr.europeandynamics.web.technico.dtos;
+
+import gr.europeandynamics.web.technico.models.RepairStatus;
+
+/**
+ * A requested change of the status of a repair. The change only applies if
+ * the repair still has the expected status, so a transition that raced with
+ * another one is reported instead of overwriting it.
+ *
+ * @param id the ID of the repair
+ * @param from the status the repair is expected to have
+ * @param to the status to move the repair to
+ * @param acceptance the acceptance status to set along with the status, or
+ * null to keep the current one
+ */
+public record RepairTransition(Long id, RepairStatus from, RepairStatus to, Boolean acceptance) {
+
+    /**
+     * The largest batch of transitions, which keeps the IN lists of its
+     * statements well below the placeholder limit of the driver.
+     */
+    public static final int MAX_BATCH = 5000;
+
+    public enum Outcome {
+        APPLIED,
+        NOT_FOUND,
+        /**
+         * The transition from {@code from} to {@code to} is not allowed.
+         */
+        ILLEGAL_TRANSITION,
+        /**
+         * The repair does not have the expected status.
+         */
+        STATUS_MISMATCH,
+        /**
+         * An earlier transition in the same batch targets the same repair.
+         */
+        DUPLICATE,
+        /**
+         * The ID or one of the statuses is missing.
+         */
+        INVALID
+    }
+
+    /**
+     * The outcome of a transition.
+     *
+     * @param id the ID of the repair
+     * @param outcome what happened
+     * @param status the status of the repair after the batch, or null if the
+     * repair does not exist
+     */
+    public record Result(Long id, Outcome outcome, RepairStatus status) {
+    }
+}
@@ -0,0 +1,24 @@
+package gr.europeandynamics.web.technico.dtos;
+
+import java.util.List;
+
+/**
+ * The SQL the application has issued since it started, in total and by
+ * query.
+ *
+ * @param sessions the number of sessions opened
+ * @param preparedStatements the number of JDBC statements prepared
+ * @param queryExecutions the number of HQL and native query executions
+ * @param entityLoads the number of entities loaded from the database
+ * @param entityFetches the number of entities fetched by a separate
+ * statement, such as the owner of a property loaded one by one
+ * @param collectionFetches the number of collections fetched by a separate
+ * statement
+ * @param slowestQuery the query of the slowest execution
+ * @param slowestQueryMillis the time of the slowest execution
+ * @param queries the statistics of each query, slowest in total first
+ */
+public record SqlStats(long sessions, long preparedStatements, long queryExecutions, long entityLoads,
+        long entityFetches, long collectionFetches, String slowestQuery, long slowestQueryMillis,
+        List<QueryStats> queries) {
+}
@@ -0,0 +1,13 @@
+package gr.europeandynamics.web.technico.dtos;
+
+import java.util.List;
+
+/**
+ * The outcome of a batch of repair status transitions.
+ *
+ * @param applied the number of transitions applied
+ * @param rejected the number of transitions not applied
+ * @param results the outcome of each transition, in the order of the batch
+ */
+public record TransitionSummary(long applied, long rejected, List<RepairTransition.Result> results) {
+}
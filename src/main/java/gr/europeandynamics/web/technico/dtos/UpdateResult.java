@@ -0,0 +1,30 @@
+package gr.europeandynamics.web.technico.dtos;
+
+/**
+ * The outcome of a conditional update.
+ *
+ * @param outcome what happened
+ * @param entity the updated entity, or null unless the outcome is
+ * {@link Outcome#UPDATED}
+ * @param <T> the type of the entity
+ */
+public record UpdateResult<T>(Outcome outcome, T entity) {
+
+    public enum Outcome {
+        UPDATED,
+        NOT_FOUND,
+        /**
+         * The entity exists but its version differs from the expected one.
+         */
+        VERSION_CONFLICT,
+        INVALID
+    }
+
+    public static <T> UpdateResult<T> updated(T entity) {
+        return new UpdateResult<>(Outcome.UPDATED, entity);
+    }
+
+    public static <T> UpdateResult<T> of(Outcome outcome) {
+        return new UpdateResult<>(outcome, null);
+    }
+}
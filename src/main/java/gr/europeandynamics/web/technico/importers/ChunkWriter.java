@@ -0,0 +1,65 @@
+package gr.europeandynamics.web.technico.importers;
+
+import gr.europeandynamics.web.technico.repositories.BulkImportRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes the rows collected by the importers a chunk per transaction. If a
+ * chunk fails, for example because one row violates a unique constraint, the
+ * chunk is retried row by row so that only the offending rows are skipped.
+ */
+@Slf4j
+@ApplicationScoped
+public class ChunkWriter {
+
+    public static final int CHUNK_SIZE = 1000;
+
+    @Inject
+    private BulkImportRepository bulkImportRepository;
+
+    /**
+     * Persists a chunk of parsed rows. Rows that cannot be stored are
+     * reported as rejected.
+     *
+     * @param chunk the rows to persist
+     * @param resetId clears the id an entity was given by a failed attempt, so
+     * it can be persisted again
+     * @param report collects the rejected rows
+     * @param <T> the entity type
+     * @return the number of persisted entities
+     */
+    public <T> int write(List<ImportRow<T>> chunk, Consumer<T> resetId, ImportReport report) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        try {
+            return bulkImportRepository.persistChunk(chunk.stream().map(ImportRow::value).toList());
+        } catch (RuntimeException e) {
+            log.warn("Chunk of {} rows failed, retrying row by row: {}", chunk.size(), e.getMessage());
+        }
+        int persisted = 0;
+        for (ImportRow<T> row : chunk) {
+            resetId.accept(row.value());
+            try {
+                bulkImportRepository.persistOne(row.value());
+                persisted++;
+            } catch (RuntimeException e) {
+                log.warn("Skipping row {}: {}", row.value(), e.getMessage());
+                report.reject(row.number(), "Could not be stored: " + rootCause(e).getMessage());
+            }
+        }
+        return persisted;
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,467 @@
+package gr.europeandynamics.web.technico.importers;
+
+import gr.europeandynamics.web.technico.exceptions.CustomException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * An RFC 4180 CSV tokenizer over a byte buffer. Each call to {@link #next()}
+ * advances to the next record and only records the offsets of its fields;
+ * nothing is allocated per field unless the caller asks for a String. Fields
+ * can be enclosed in double quotes, in which case they may contain commas,
+ * line breaks and escaped {@code ""} quotes.
+ *
+ * The tokenizer either works on a fixed buffer holding complete records or
+ * pulls from a channel through a reusable direct buffer, which grows only if
+ * a single record does not fit in it. The typed getters parse the fixed
+ * layouts used by the CSV files directly from the bytes, without going
+ * through a String or a formatter.
+ *
+ * Instances are not thread safe, and the fields of a record are only valid
+ * until the next call to {@link #next()}.
+ */
+public final class CsvTokenizer {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final int DATE_TIME_LENGTH = 19;
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer buffer;
+    private boolean endOfInput;
+
+    private int recordStart;
+    private int nextRecordStart;
+    private long recordNumber;
+
+    private int fieldCount;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] escaped = new boolean[16];
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Creates a tokenizer over a buffer holding complete records, from its
+     * position to its limit.
+     *
+     * @param block the buffer to tokenize
+     */
+    public CsvTokenizer(ByteBuffer block) {
+        this.channel = null;
+        this.buffer = block;
+        this.endOfInput = true;
+        this.nextRecordStart = block.position();
+    }
+
+    /**
+     * Creates a tokenizer that reads from a channel through a direct buffer of
+     * the given size.
+     *
+     * @param channel the channel to read from
+     * @param bufferSize the initial size of the buffer
+     */
+    public CsvTokenizer(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.buffer.limit(0);
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return true if a record was read, false at the end of the input
+     * @throws IOException if reading from the channel fails
+     */
+    public boolean next() throws IOException {
+        recordStart = nextRecordStart;
+        while (true) {
+            int end = tokenize(recordStart);
+            if (end >= 0) {
+                nextRecordStart = end;
+                recordNumber++;
+                return true;
+            }
+            if (endOfInput) {
+                return false;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Returns the number of the current record, counting from 1.
+     *
+     * @return the record number
+     */
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns whether a field is absent or empty.
+     *
+     * @param field the index of the field
+     * @return true if the record has no such field or the field is empty
+     */
+    public boolean isEmpty(int field) {
+        return field >= fieldCount || starts[field] == ends[field];
+    }
+
+    /**
+     * Returns a field as a String, with escaped quotes unescaped.
+     *
+     * @param field the index of the field
+     * @return the field value
+     */
+    public String getString(int field) {
+        checkField(field);
+        int length = copy(field);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a field as a decimal long.
+     *
+     * @param field the index of the field
+     * @return the parsed value
+     * @throws CustomException if the field is empty or not a valid long
+     */
+    public long getLong(int field) throws CustomException {
+        checkField(field);
+        int start = starts[field];
+        int end = ends[field];
+        boolean negative = start < end && buffer.get(start) == '-';
+        int digitsStart = negative ? start + 1 : start;
+        if (digitsStart == end || end - digitsStart > MAX_LONG_DIGITS) {
+            return parseLongSlow(field);
+        }
+        long value = 0;
+        for (int i = digitsStart; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new CustomException("Invalid number: " + getString(field));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a field as a decimal int.
+     *
+     * @param field the index of the field
+     * @return the parsed value
+     * @throws CustomException if the field is empty or not a valid int
+     */
+    public int getInt(int field) throws CustomException {
+        long value = getLong(field);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new CustomException("Invalid number: " + getString(field));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a field as a plain decimal such as {@code 1200} or
+     * {@code -35.50}. Values with an exponent or more than 18 digits fall back
+     * to {@link BigDecimal#BigDecimal(String)}.
+     *
+     * @param field the index of the field
+     * @return the parsed value
+     * @throws CustomException if the field is empty or not a valid decimal
+     */
+    public BigDecimal getDecimal(int field) throws CustomException {
+        checkField(field);
+        int start = starts[field];
+        int end = ends[field];
+        boolean negative = start < end && buffer.get(start) == '-';
+        int i = negative || (start < end && buffer.get(start) == '+') ? start + 1 : start;
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || ++digits > MAX_LONG_DIGITS) {
+                return parseDecimalSlow(field);
+            }
+            unscaled = unscaled * 10 + digit;
+            if (scale >= 0) {
+                scale++;
+            }
+        }
+        if (digits == 0) {
+            throw new CustomException("Invalid decimal: " + getString(field));
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    /**
+     * Parses a field in the fixed {@code yyyy-MM-dd HH:mm:ss} layout.
+     *
+     * @param field the index of the field
+     * @return the parsed date and time
+     * @throws CustomException if the field does not follow the layout or is
+     * not a valid date and time
+     */
+    public LocalDateTime getDateTime(int field) throws CustomException {
+        checkField(field);
+        int start = starts[field];
+        if (ends[field] - start != DATE_TIME_LENGTH
+                || buffer.get(start + 4) != '-' || buffer.get(start + 7) != '-'
+                || buffer.get(start + 10) != ' ' || buffer.get(start + 13) != ':'
+                || buffer.get(start + 16) != ':') {
+            throw new CustomException("Invalid date: " + getString(field));
+        }
+        try {
+            return LocalDateTime.of(
+                    digits(field, start, 4),
+                    digits(field, start + 5, 2),
+                    digits(field, start + 8, 2),
+                    digits(field, start + 11, 2),
+                    digits(field, start + 14, 2),
+                    digits(field, start + 17, 2));
+        } catch (DateTimeException e) {
+            throw new CustomException("Invalid date: " + getString(field));
+        }
+    }
+
+    /**
+     * Parses a field as a boolean, with the semantics of
+     * {@link Boolean#parseBoolean(String)}.
+     *
+     * @param field the index of the field
+     * @return true if the field equals "true" ignoring case
+     */
+    public boolean getBoolean(int field) {
+        checkField(field);
+        int start = starts[field];
+        return ends[field] - start == 4
+                && (buffer.get(start) | 0x20) == 't'
+                && (buffer.get(start + 1) | 0x20) == 'r'
+                && (buffer.get(start + 2) | 0x20) == 'u'
+                && (buffer.get(start + 3) | 0x20) == 'e';
+    }
+
+    /**
+     * Matches a field against the names of enum constants without creating a
+     * String.
+     *
+     * @param field the index of the field
+     * @param values the constants to match, as returned by {@code values()}
+     * @param <E> the enum type
+     * @return the constant whose name equals the field
+     * @throws CustomException if no constant matches
+     */
+    public <E extends Enum<E>> E getEnum(int field, E[] values) throws CustomException {
+        checkField(field);
+        int start = starts[field];
+        int length = ends[field] - start;
+        for (E value : values) {
+            String name = value.name();
+            if (name.length() == length && matches(start, name)) {
+                return value;
+            }
+        }
+        throw new CustomException("Invalid value: " + getString(field));
+    }
+
+    /**
+     * Tokenizes the record starting at the given offset.
+     *
+     * @param from the offset of the record
+     * @return the offset of the following record, or -1 if the buffer ends
+     * before the record does
+     */
+    private int tokenize(int from) {
+        fieldCount = 0;
+        int limit = buffer.limit();
+        if (from >= limit) {
+            return -1;
+        }
+        int i = from;
+        while (true) {
+            if (i < limit && buffer.get(i) == QUOTE) {
+                int start = i + 1;
+                int j = start;
+                boolean hasEscapes = false;
+                while (true) {
+                    if (j >= limit) {
+                        if (!endOfInput) {
+                            return -1;
+                        }
+                        break;
+                    }
+                    if (buffer.get(j) == QUOTE) {
+                        if (j + 1 >= limit && !endOfInput) {
+                            return -1;
+                        }
+                        if (j + 1 < limit && buffer.get(j + 1) == QUOTE) {
+                            hasEscapes = true;
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    j++;
+                }
+                addField(start, j, hasEscapes);
+                i = j + 1;
+                while (i < limit && !isDelimiter(buffer.get(i))) {
+                    i++;
+                }
+            } else {
+                int start = i;
+                while (i < limit && !isDelimiter(buffer.get(i))) {
+                    i++;
+                }
+                addField(start, i, false);
+            }
+            if (i >= limit) {
+                return endOfInput ? limit : -1;
+            }
+            byte delimiter = buffer.get(i);
+            if (delimiter == COMMA) {
+                i++;
+                continue;
+            }
+            if (delimiter == CR) {
+                if (i + 1 >= limit) {
+                    return endOfInput ? limit : -1;
+                }
+                return buffer.get(i + 1) == LF ? i + 2 : i + 1;
+            }
+            return i + 1;
+        }
+    }
+
+    /**
+     * Makes room in the buffer and reads more input from the channel. The
+     * unfinished record is moved to the start of the buffer, and the buffer
+     * is doubled if the record alone fills it.
+     */
+    private void fill() throws IOException {
+        int remaining = buffer.limit() - recordStart;
+        if (recordStart == 0 && buffer.limit() == buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+            buffer.position(0);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.position(recordStart);
+            buffer.compact();
+        }
+        recordStart = 0;
+        buffer.position(remaining);
+        buffer.limit(buffer.capacity());
+        int read = 0;
+        while (read == 0) {
+            read = channel.read(buffer);
+        }
+        if (read < 0) {
+            endOfInput = true;
+        }
+        buffer.limit(buffer.position());
+        buffer.position(0);
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == COMMA || b == LF || b == CR;
+    }
+
+    private void addField(int start, int end, boolean hasEscapes) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+            escaped = Arrays.copyOf(escaped, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        escaped[fieldCount] = hasEscapes;
+        fieldCount++;
+    }
+
+    private void checkField(int field) {
+        if (field >= fieldCount) {
+            throw new IndexOutOfBoundsException("Record " + recordNumber + " has no field " + field);
+        }
+    }
+
+    /**
+     * Copies a field into the scratch array, unescaping doubled quotes.
+     *
+     * @return the number of copied bytes
+     */
+    private int copy(int field) {
+        int start = starts[field];
+        int end = ends[field];
+        if (scratch.length < end - start) {
+            scratch = new byte[Math.max(end - start, scratch.length * 2)];
+        }
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            scratch[length++] = b;
+            if (b == QUOTE && escaped[field]) {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private boolean matches(int start, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (buffer.get(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int digits(int field, int start, int count) throws CustomException {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new CustomException("Invalid date: " + getString(field));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private long parseLongSlow(int field) throws CustomException {
+        try {
+            return Long.parseLong(getString(field));
+        } catch (NumberFormatException e) {
+            throw new CustomException("Invalid number: " + getString(field));
+        }
+    }
+
+    private BigDecimal parseDecimalSlow(int field) throws CustomException {
+        try {
+            return new BigDecimal(getString(field));
+        } catch (NumberFormatException e) {
+            throw new CustomException("Invalid decimal: " + getString(field));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package gr.europeandynamics.web.technico.importers;
+
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * The formats an {@link ImportPipeline} accepts: CSV records as read by
+ * {@link CsvTokenizer}, or one JSON object per line.
+ */
+public enum ImportFormat {
+    CSV(ImportFormat.TEXT_CSV),
+    NDJSON(ImportFormat.APPLICATION_NDJSON);
+
+    public static final String TEXT_CSV = "text/csv";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final String mediaType;
+
+    ImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Finds the format of a request body by its media type, ignoring any
+     * parameters such as the charset.
+     *
+     * @param mediaType the media type of the body
+     * @return the matching format, CSV if the media type is unknown or absent
+     */
+    public static ImportFormat of(MediaType mediaType) {
+        if (mediaType != null) {
+            String type = mediaType.getType() + "/" + mediaType.getSubtype();
+            for (ImportFormat format : values()) {
+                if (format.mediaType.equalsIgnoreCase(type)) {
+                    return format;
+                }
+            }
+        }
+        return CSV;
+    }
+}
@@ -0,0 +1,493 @@
+package gr.europeandynamics.web.technico.importers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import gr.europeandynamics.web.technico.exceptions.CustomException;
+import gr.europeandynamics.web.technico.importers.RecordBlockReader.RecordBlock;
+import gr.europeandynamics.web.technico.services.ObjectMapperContextResolver;
+import gr.europeandynamics.web.technico.validators.Violation;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Imports CSV or NDJSON input through three stages connected by bounded
+ * queues: a reader that cuts the input into blocks of complete records, a
+ * pool of workers that parse and validate the blocks in parallel, and a
+ * writer that collects the parsed rows into chunks and persists them. A full
+ * queue blocks the stage feeding it, so a slow writer throttles the readers
+ * instead of letting rows pile up in memory, and an input of any size is
+ * imported in bounded memory.
+ *
+ * The reader and each worker get a managed thread of their own, so no stage
+ * can starve another of threads. The writer runs on the calling thread so
+ * that it keeps its transaction and request context.
+ * A run returns once every row has been written, which lets callers chain
+ * imports that depend on each other. The first failure of any stage stops
+ * the writer and is thrown by the run, and no stage outlives its run.
+ */
+@Slf4j
+@ApplicationScoped
+public class ImportPipeline {
+
+    public static final int BLOCK_SIZE = 64 * 1024;
+    public static final int MAX_RECORD_LENGTH = 1024 * 1024;
+    public static final int QUEUE_CAPACITY = 64;
+
+    private static final RecordBlock END_OF_BLOCKS = new RecordBlock(new byte[0], 0);
+    private static final List<ImportRow<?>> END_OF_ROWS = new ArrayList<>(0);
+
+    private final ObjectMapperContextResolver mapperResolver = new ObjectMapperContextResolver();
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    /**
+     * Runs a CSV import through the pipeline and logs the statistics of each
+     * stage.
+     *
+     * @param name the name of the import, used in the logged statistics
+     * @param channel the source of the records to import
+     * @param importer parses and writes the rows
+     * @param <T> the type of the imported rows
+     * @return the statistics of the import
+     * @throws IOException if the records cannot be read, or the import is
+     * interrupted
+     */
+    public <T> ImportStats run(String name, ReadableByteChannel channel, RowImporter<T> importer) throws IOException {
+        return run(name, channel, ImportFormat.CSV, importer, new ImportReport());
+    }
+
+    /**
+     * Runs an import through the pipeline, reporting every accepted and
+     * rejected row, and logs the statistics of each stage.
+     *
+     * @param name the name of the import, used in the logged statistics
+     * @param channel the source of the records to import
+     * @param format the format of the records
+     * @param importer parses and writes the rows
+     * @param report collects the accepted and rejected rows
+     * @param <T> the type of the imported rows
+     * @return the statistics of the import
+     * @throws IOException if the records cannot be read, or the import is
+     * interrupted
+     */
+    public <T> ImportStats run(String name, ReadableByteChannel channel, ImportFormat format,
+            RowImporter<T> importer, ImportReport report) throws IOException {
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors());
+        Run<T> run = new Run<>(name, channel, format, importer, report, workers);
+        return run.execute();
+    }
+
+    /**
+     * Opens a classpath resource as a channel. Resources on the file system
+     * are opened as a {@link FileChannel}, others through their stream.
+     *
+     * @param path the path of the resource
+     * @return the opened channel
+     * @throws IOException if the resource does not exist or cannot be opened
+     */
+    public static ReadableByteChannel openResource(String path) throws IOException {
+        URL url = ImportPipeline.class.getClassLoader().getResource(path);
+        if (url == null) {
+            throw new FileNotFoundException(path);
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return FileChannel.open(Path.of(url.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+        return Channels.newChannel(url.openStream());
+    }
+
+    /**
+     * The state of a single pipeline run.
+     */
+    private class Run<T> {
+
+        private final String name;
+        private final ReadableByteChannel channel;
+        private final ImportFormat format;
+        private final RowImporter<T> importer;
+        private final ImportReport report;
+        private final ObjectReader jsonReader;
+        private final int workers;
+        private RowWriter<T> writer;
+        private final List<Thread> stages = new ArrayList<>();
+
+        private final BlockingQueue<RecordBlock> recordBlocks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final BlockingQueue<List<ImportRow<?>>> rowBlocks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final QueueDepth recordQueueDepth = new QueueDepth();
+        private final QueueDepth rowQueueDepth = new QueueDepth();
+
+        private final AtomicLong recordsRead = new AtomicLong();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong rowsParsed = new AtomicLong();
+        private final AtomicLong rowsRejected = new AtomicLong();
+        private final AtomicLong readNanos = new AtomicLong();
+        private final AtomicLong parseNanos = new AtomicLong();
+        private final AtomicInteger activeWorkers;
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        Run(String name, ReadableByteChannel channel, ImportFormat format, RowImporter<T> importer,
+                ImportReport report, int workers) {
+            this.name = name;
+            this.channel = channel;
+            this.format = format;
+            this.importer = importer;
+            this.report = report;
+            this.jsonReader = mapperResolver.getContext(importer.rowType()).readerFor(importer.rowType());
+            this.workers = workers;
+            this.activeWorkers = new AtomicInteger(workers);
+        }
+
+        ImportStats execute() throws IOException {
+            long start = System.nanoTime();
+            writer = importer.openWriter();
+            stages.add(threadFactory.newThread(this::read));
+            for (int i = 0; i < workers; i++) {
+                stages.add(threadFactory.newThread(this::parse));
+            }
+            stages.forEach(Thread::start);
+            long[] written;
+            try {
+                written = write();
+            } finally {
+                stop();
+            }
+            Exception stageFailure = failure.get();
+            if (stageFailure instanceof IOException e) {
+                throw e;
+            }
+            if (stageFailure instanceof RuntimeException e) {
+                throw e;
+            }
+            ImportStats stats = new ImportStats(name, workers, bytesRead.get(), recordsRead.get(),
+                    rowsParsed.get(), rowsRejected.get(), written[0], readNanos.get(), parseNanos.get(),
+                    written[1], System.nanoTime() - start, recordQueueDepth.max(), rowQueueDepth.max(),
+                    recordQueueDepth.average(), rowQueueDepth.average());
+            stats.log();
+            return stats;
+        }
+
+        /**
+         * The reader stage: cuts the input into blocks of complete records.
+         */
+        private void read() {
+            long start = System.nanoTime();
+            try {
+                RecordBlockReader blockReader = new RecordBlockReader(channel, format, BLOCK_SIZE,
+                        MAX_RECORD_LENGTH, number -> {
+                            recordsRead.incrementAndGet();
+                            reject(number, "Record is longer than " + MAX_RECORD_LENGTH + " bytes.");
+                        });
+                RecordBlock block;
+                while ((block = blockReader.next()) != null) {
+                    bytesRead.addAndGet(block.bytes().length);
+                    recordQueueDepth.put(recordBlocks, block);
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                readNanos.set(System.nanoTime() - start);
+                for (int i = 0; i < workers; i++) {
+                    putQuietly(recordBlocks, END_OF_BLOCKS);
+                }
+            }
+        }
+
+        /**
+         * The parse stage: parses blocks of records until the end of the
+         * input, validates the rows of each block as a batch and prepares the
+         * valid ones. The last worker to finish signals the writer.
+         */
+        private void parse() {
+            try {
+                RecordBlock block;
+                while ((block = recordBlocks.take()) != END_OF_BLOCKS) {
+                    long start = System.nanoTime();
+                    List<ImportRow<T>> parsed = new ArrayList<>();
+                    long records = format == ImportFormat.CSV
+                            ? parseCsv(block, parsed)
+                            : parseJson(block, parsed);
+                    List<ImportRow<?>> rows = validateAndPrepare(parsed);
+                    recordsRead.addAndGet(records);
+                    rowsParsed.addAndGet(rows.size());
+                    parseNanos.addAndGet(System.nanoTime() - start);
+                    rowQueueDepth.put(rowBlocks, rows);
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (activeWorkers.decrementAndGet() == 0) {
+                    putQuietly(rowBlocks, END_OF_ROWS);
+                }
+            }
+        }
+
+        /**
+         * Tokenizes a block of CSV records and parses every record that is
+         * not blank.
+         *
+         * @return the number of records in the block
+         */
+        private long parseCsv(RecordBlock block, List<ImportRow<T>> rows) throws IOException {
+            CsvTokenizer record = block.tokenizer();
+            while (record.next()) {
+                long number = block.firstRecord() + record.recordNumber() - 1;
+                if (record.fieldCount() == 1 && record.isEmpty(0)) {
+                    continue;
+                }
+                try {
+                    rows.add(new ImportRow<>(number, importer.parseRecord(record)));
+                } catch (CustomException | RuntimeException e) {
+                    reject(number, reason(e));
+                }
+            }
+            return record.recordNumber();
+        }
+
+        /**
+         * Parses every line of a block of NDJSON records that is not blank.
+         *
+         * @return the number of records in the block
+         */
+        private long parseJson(RecordBlock block, List<ImportRow<T>> rows) {
+            byte[] bytes = block.bytes();
+            long number = block.firstRecord();
+            int start = 0;
+            while (start < bytes.length) {
+                int end = start;
+                while (end < bytes.length && bytes[end] != '\n') {
+                    end++;
+                }
+                if (!isBlank(bytes, start, end)) {
+                    try {
+                        T row = jsonReader.readValue(bytes, start, end - start);
+                        rows.add(new ImportRow<>(number, row));
+                    } catch (JsonProcessingException e) {
+                        reject(number, "Invalid JSON: " + e.getOriginalMessage());
+                    } catch (IOException | RuntimeException e) {
+                        reject(number, reason(e));
+                    }
+                }
+                number++;
+                start = end + 1;
+            }
+            return number - block.firstRecord();
+        }
+
+        /**
+         * Validates the parsed rows of a block in one batch, rejects the
+         * invalid ones with all of their violations and prepares the others.
+         *
+         * @return the valid and prepared rows
+         */
+        private List<ImportRow<?>> validateAndPrepare(List<ImportRow<T>> parsed) {
+            List<T> values = new ArrayList<>(parsed.size());
+            for (ImportRow<T> row : parsed) {
+                values.add(row.value());
+            }
+            List<List<Violation>> violations = importer.validateAll(values);
+            List<ImportRow<?>> rows = new ArrayList<>(parsed.size());
+            for (int i = 0; i < parsed.size(); i++) {
+                ImportRow<T> row = parsed.get(i);
+                if (!violations.get(i).isEmpty()) {
+                    reject(row.number(), describe(violations.get(i)));
+                    continue;
+                }
+                try {
+                    importer.prepare(row.value());
+                    rows.add(row);
+                } catch (CustomException | RuntimeException e) {
+                    reject(row.number(), reason(e));
+                }
+            }
+            return rows;
+        }
+
+        private void reject(long number, String reason) {
+            rowsRejected.incrementAndGet();
+            report.reject(number, reason);
+        }
+
+        /**
+         * The writer stage: collects parsed rows into chunks and writes them.
+         * It stops at the first block after another stage failed, leaving the
+         * failure to be thrown by the run.
+         *
+         * @return the number of written rows and the time spent writing
+         * @throws InterruptedIOException if the writer is interrupted
+         */
+        @SuppressWarnings("unchecked")
+        private long[] write() throws InterruptedIOException {
+            long written = 0;
+            long writeNanos = 0;
+            List<ImportRow<T>> chunk = new ArrayList<>(ChunkWriter.CHUNK_SIZE);
+            try {
+                List<ImportRow<?>> block;
+                while ((block = rowBlocks.take()) != END_OF_ROWS) {
+                    if (failure.get() != null) {
+                        return new long[]{written, writeNanos};
+                    }
+                    for (ImportRow<?> row : block) {
+                        chunk.add((ImportRow<T>) row);
+                        if (chunk.size() == ChunkWriter.CHUNK_SIZE) {
+                            long start = System.nanoTime();
+                            written += writeChunk(chunk);
+                            writeNanos += System.nanoTime() - start;
+                            chunk = new ArrayList<>(ChunkWriter.CHUNK_SIZE);
+                        }
+                    }
+                }
+                long start = System.nanoTime();
+                written += writeChunk(chunk);
+                writeNanos += System.nanoTime() - start;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import of " + name + " was interrupted after "
+                        + written + " rows.");
+            }
+            return new long[]{written, writeNanos};
+        }
+
+        /**
+         * Interrupts every stage and waits for it to end. A stage still
+         * running after the writer returned is blocked on a queue nobody
+         * drains any more, or is about to end anyway.
+         */
+        private void stop() {
+            stages.forEach(Thread::interrupt);
+            boolean interrupted = Thread.interrupted();
+            for (Thread stage : stages) {
+                while (stage.isAlive()) {
+                    try {
+                        stage.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private int writeChunk(List<ImportRow<T>> chunk) {
+            int written = writer.writeChunk(chunk, report);
+            report.accept(written);
+            return written;
+        }
+
+        private <E> void putQuietly(BlockingQueue<E> queue, E element) {
+            try {
+                queue.put(element);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static boolean isBlank(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(bytes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String reason(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private static String describe(List<Violation> violations) {
+        if (violations.size() == 1) {
+            return violations.get(0).message();
+        }
+        StringBuilder reason = new StringBuilder();
+        for (Violation violation : violations) {
+            if (reason.length() > 0) {
+                reason.append(' ');
+            }
+            reason.append(violation.message());
+        }
+        return reason.toString();
+    }
+
+    /**
+     * Samples the depth of a queue every time a block is put into it.
+     */
+    private static class QueueDepth {
+
+        private final AtomicInteger max = new AtomicInteger();
+        private final AtomicLong samples = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+
+        <E> void put(BlockingQueue<E> queue, E element) throws InterruptedException {
+            queue.put(element);
+            int depth = queue.size();
+            max.accumulateAndGet(depth, Math::max);
+            samples.incrementAndGet();
+            total.addAndGet(depth);
+        }
+
+        int max() {
+            return max.get();
+        }
+
+        double average() {
+            long count = samples.get();
+            return count == 0 ? 0 : (double) total.get() / count;
+        }
+    }
+
+    /**
+     * The statistics of a pipeline run. Stage times are the time each stage
+     * spent working, summed over all workers for the parse stage.
+     */
+    public record ImportStats(String name, int workers, long bytesRead, long recordsRead,
+            long rowsParsed, long rowsRejected, long rowsWritten, long readNanos, long parseNanos,
+            long writeNanos, long elapsedNanos, int maxRecordQueueDepth, int maxRowQueueDepth,
+            double averageRecordQueueDepth, double averageRowQueueDepth) {
+
+        void log() {
+            ImportPipeline.log.info("Imported {}: {} records read, {} rows parsed, {} rejected, {} written in {} ms ({} rows/s)",
+                    name, recordsRead, rowsParsed, rowsRejected, rowsWritten,
+                    elapsedNanos / 1_000_000, perSecond(rowsWritten, elapsedNanos));
+            ImportPipeline.log.info("Import {} stages: read {} KB/s, parse {} records/s on {} workers, write {} rows/s",
+                    name, perSecond(bytesRead, readNanos) / 1024, perSecond(recordsRead, parseNanos / workers),
+                    workers, perSecond(rowsWritten, writeNanos));
+            ImportPipeline.log.info("Import {} queues: record blocks max {} avg {}, row blocks max {} avg {} (capacity {})",
+                    name, maxRecordQueueDepth, String.format("%.1f", averageRecordQueueDepth),
+                    maxRowQueueDepth, String.format("%.1f", averageRowQueueDepth), QUEUE_CAPACITY);
+        }
+
+        private static long perSecond(long count, long nanos) {
+            return nanos <= 0 ? 0 : count * 1_000_000_000L / nanos;
+        }
+    }
+}
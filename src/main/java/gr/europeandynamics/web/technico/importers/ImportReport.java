@@ -0,0 +1,60 @@
+package gr.europeandynamics.web.technico.importers;
+
+import gr.europeandynamics.web.technico.dtos.ImportSummary;
+import gr.europeandynamics.web.technico.dtos.ImportSummary.RejectedRow;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the accepted and rejected rows of an import from all the stages of
+ * an {@link ImportPipeline}. Only the first {@link #MAX_ERRORS} rejections are
+ * kept with their reasons, so that a bad upload cannot exhaust memory.
+ */
+public class ImportReport {
+
+    public static final int MAX_ERRORS = 100;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final List<RejectedRow> errors = new ArrayList<>();
+
+    public void accept(int rows) {
+        accepted.addAndGet(rows);
+    }
+
+    /**
+     * Records a rejected row.
+     *
+     * @param row the number of the rejected record
+     * @param reason why the row was rejected
+     */
+    public void reject(long row, String reason) {
+        rejected.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(new RejectedRow(row, reason));
+            }
+        }
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Creates the summary of the import, with the listed rejections ordered
+     * by row.
+     *
+     * @return the summary of the import
+     */
+    public ImportSummary toSummary() {
+        List<RejectedRow> listed;
+        synchronized (errors) {
+            listed = new ArrayList<>(errors);
+        }
+        listed.sort(Comparator.comparingLong(RejectedRow::row));
+        return new ImportSummary(accepted.get(), rejected.get(), listed, rejected.get() > listed.size());
+    }
+}
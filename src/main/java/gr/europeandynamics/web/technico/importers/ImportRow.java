@@ -0,0 +1,12 @@
+package gr.europeandynamics.web.technico.importers;
+
+/**
+ * A parsed row together with the number of the record it was read from, so
+ * that rows rejected while writing can still be reported by their record.
+ *
+ * @param number the number of the record, counting from 1
+ * @param value the parsed row
+ * @param <T> the type of the row
+ */
+public record ImportRow<T>(long number, T value) {
+}
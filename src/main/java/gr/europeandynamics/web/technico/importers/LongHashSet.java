@@ -0,0 +1,121 @@
+package gr.europeandynamics.web.technico.importers;
+
+/**
+ * A set of primitive longs using open addressing with linear probing. It
+ * holds the keys an import resolves against, such as every property ID,
+ * with 8 bytes per slot and without boxing a Long per key.
+ *
+ * Instances are not thread safe.
+ */
+public final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+    private static final double LOAD_FACTOR = 0.5;
+
+    private long[] slots;
+    private int size;
+    private boolean containsZero;
+
+    /**
+     * Creates a set sized for the given number of keys.
+     *
+     * @param expectedSize the expected number of keys
+     */
+    public LongHashSet(int expectedSize) {
+        slots = new long[capacityFor(expectedSize)];
+    }
+
+    /**
+     * Adds a key to the set.
+     *
+     * @param key the key to add
+     * @return true if the key was not already in the set
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            boolean added = !containsZero;
+            containsZero = true;
+            if (added) {
+                size++;
+            }
+            return added;
+        }
+        int mask = slots.length - 1;
+        int index = hash(key) & mask;
+        while (slots[index] != EMPTY) {
+            if (slots[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[index] = key;
+        size++;
+        if (size > slots.length * LOAD_FACTOR) {
+            rehash(slots.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the set contains a key.
+     *
+     * @param key the key to look up
+     * @return true if the key is in the set
+     */
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return containsZero;
+        }
+        int mask = slots.length - 1;
+        int index = hash(key) & mask;
+        long slot;
+        while ((slot = slots[index]) != EMPTY) {
+            if (slot == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = slots;
+        slots = new long[capacity];
+        int mask = capacity - 1;
+        for (long key : old) {
+            if (key != EMPTY) {
+                int index = hash(key) & mask;
+                while (slots[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = key;
+            }
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Spreads sequential IDs over the table with the 64-bit finalizer of
+     * MurmurHash3.
+     */
+    private static int hash(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -4,29 +4,41 @@ import gr.europeandynamics.web.technico.exceptions.CustomException;
 import gr.europeandynamics.web.technico.models.Property;
 import gr.europeandynamics.web.technico.models.PropertyType;
 import gr.europeandynamics.web.technico.models.User;
-import gr.europeandynamics.web.technico.services.PropertyServiceImpl;
-import gr.europeandynamics.web.technico.services.UserServiceImpl;
+import gr.europeandynamics.web.technico.repositories.BulkImportRepository;
+import gr.europeandynamics.web.technico.validators.PropertyValidator;
+import gr.europeandynamics.web.technico.validators.Violation;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.Optional;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @ApplicationScoped
-public class PropertyCSVImporter implements FilesImporter {
+public class PropertyCSVImporter implements RowImporter<Property> {
+
+    private static final PropertyType[] PROPERTY_TYPES = PropertyType.values();
+
+    @Inject
+    private BulkImportRepository bulkImportRepository;
+
+    @Inject
+    private PropertyValidator propertyValidator;
 
     @Inject
-    private UserServiceImpl userService;
+    private ChunkWriter chunkWriter;
 
     @Inject
-    private PropertyServiceImpl propertyService;
+    private ImportPipeline importPipeline;
 
     /**
-     * Imports property data from the specified CSV file. The method reads the file,
-     * parses each line, and calls {@code propertyService.createProperty()} to
-     * store valid property entries.
+     * Imports property data from the specified CSV file through the
+     * {@link ImportPipeline}. Lines are parsed and validated in parallel and
+     * the valid properties are persisted in chunks of
+     * {@link ChunkWriter#CHUNK_SIZE}, one transaction per chunk.
      *
      * If the line is malformed, such as an invalid number format or unknown property type,
      * the importer skips the line.
@@ -35,45 +47,8 @@ public class PropertyCSVImporter implements FilesImporter {
      */
     @Override
     public void importFile(String filePath) {
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(
-                PropertyCSVImporter.class.getClassLoader().getResourceAsStream(filePath)))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] fields = line.split(",");
-
-                if (fields.length != 5) {
-                    //The line is malformed, skip it
-                    continue;
-                }
-
-                String e9 = fields[0];
-                String propertyAddress = fields[1];
-
-                int constructionYear;
-                try {
-                    constructionYear = Integer.parseInt(fields[2]);
-                } catch (NumberFormatException e) {
-                    // Invalid CSV format: construction year must be an integer, skip line
-                    continue;
-                }
-                PropertyType propertyType;
-                try {
-                    propertyType = PropertyType.valueOf(fields[3]);
-                } catch (IllegalArgumentException e) {
-                    // Invalid CSV format: invalid property type, skip line
-                    continue;
-                }
-                String userVat = fields[4];
-
-                Optional<User> userOptional = userService.getUserByVat(userVat);
-                if (!userOptional.isPresent()) {
-                    // Owner not found, skip line
-                    continue;
-                }
-                User user = userOptional.get();
-
-                propertyService.createProperty(e9, propertyAddress, constructionYear, propertyType, user.getVat());
-            }
+        try (ReadableByteChannel channel = ImportPipeline.openResource(filePath)) {
+            importPipeline.run("properties", channel, this);
         } catch (OutOfMemoryError e) {
             System.out.println("Java run out of memory: " + e.getMessage());
         } catch (FileNotFoundException e) {
@@ -83,4 +58,87 @@ public class PropertyCSVImporter implements FilesImporter {
         }
     }
 
+    /**
+     * Parses a CSV record into a Property. The owner is only identified by
+     * its VAT number and is resolved when the chunk is written.
+     *
+     * @param record the tokenized CSV record
+     * @return the parsed Property
+     * @throws CustomException if the record is malformed
+     */
+    @Override
+    public Property parseRecord(CsvTokenizer record) throws CustomException {
+        if (record.fieldCount() != 5) {
+            throw new CustomException("A property line must contain 5 fields.");
+        }
+
+        User owner = new User();
+        owner.setVat(record.getString(4));
+
+        Property property = new Property();
+        property.setE9(record.getString(0));
+        property.setPropertyAddress(record.getString(1));
+        property.setConstructionYear(record.getInt(2));
+        property.setPropertyType(record.getEnum(3, PROPERTY_TYPES));
+        property.setUser(owner);
+        return property;
+    }
+
+    @Override
+    public Class<Property> rowType() {
+        return Property.class;
+    }
+
+    /**
+     * Validates a batch of parsed properties, each of which must also name
+     * the VAT number of its owner.
+     *
+     * @param properties the properties to validate
+     * @return every violation of each property, in the order of the
+     * properties
+     */
+    @Override
+    public List<List<Violation>> validateAll(List<Property> properties) {
+        List<List<Violation>> violations = propertyValidator.validateAll(properties);
+        for (int i = 0; i < properties.size(); i++) {
+            User owner = properties.get(i).getUser();
+            if (owner == null || owner.getVat() == null) {
+                List<Violation> withOwner = new ArrayList<>(violations.get(i).size() + 1);
+                withOwner.add(new Violation("user.vat", "The owner VAT number is missing."));
+                withOwner.addAll(violations.get(i));
+                violations.set(i, withOwner);
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Opens a writer that resolves the owners of the parsed properties and
+     * persists the ones whose owner exists, a chunk per transaction. The VAT
+     * numbers of all users are loaded once when the writer is opened, so
+     * owners are resolved without a query per row.
+     *
+     * @return the writer of the import run
+     */
+    @Override
+    public RowWriter<Property> openWriter() {
+        Map<String, Long> userIds = new HashMap<>();
+        bulkImportRepository.forEachUserVat(userIds::put);
+        return (properties, report) -> writeChunk(properties, report, userIds);
+    }
+
+    private int writeChunk(List<ImportRow<Property>> properties, ImportReport report, Map<String, Long> userIds) {
+        List<ImportRow<Property>> resolved = new ArrayList<>(properties.size());
+        for (ImportRow<Property> row : properties) {
+            String vat = row.value().getUser().getVat();
+            Long userId = userIds.get(vat);
+            if (userId == null) {
+                report.reject(row.number(), "No user with VAT number " + vat);
+                continue;
+            }
+            row.value().setUser(bulkImportRepository.getUserReference(userId, vat));
+            resolved.add(row);
+        }
+        return chunkWriter.write(resolved, property -> property.setId(null), report);
+    }
 }
@@ -0,0 +1,206 @@
+package gr.europeandynamics.web.technico.importers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.LongConsumer;
+
+/**
+ * Cuts a channel into blocks of complete records, so that the blocks can be
+ * parsed independently by the workers of an {@link ImportPipeline}. The
+ * channel is read through a reusable direct buffer, and a block ends at the
+ * last line feed that ends a record: for CSV, the last one outside of a quoted
+ * field, for NDJSON simply the last one. Quoted fields follow the rules of
+ * {@link CsvTokenizer}: a quote only opens a field at the start of the field,
+ * and a doubled quote inside a quoted field is an escaped quote.
+ *
+ * A record longer than the buffer grows the buffer instead of being split, up
+ * to a maximum record length. A longer record, typically the result of an
+ * unbalanced quote, is skipped and reported instead of being buffered whole.
+ */
+final class RecordBlockReader {
+
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final ReadableByteChannel channel;
+    private final boolean quotedFields;
+    private final int maxRecordLength;
+    private final LongConsumer tooLong;
+    private ByteBuffer buffer;
+    private boolean endOfInput;
+    private long recordsRead;
+
+    private boolean quoted;
+    private boolean fieldStart;
+    private int recordsScanned;
+    private int scanned;
+
+    /**
+     * Creates a reader that cuts blocks of at most the given size, unless a
+     * single record is larger.
+     *
+     * @param channel the channel to read from
+     * @param format the format of the records
+     * @param blockSize the size of the read buffer
+     * @param maxRecordLength the length in bytes above which a record is
+     * skipped
+     * @param tooLong is told the number of every skipped record
+     */
+    RecordBlockReader(ReadableByteChannel channel, ImportFormat format, int blockSize, int maxRecordLength,
+            LongConsumer tooLong) {
+        this.channel = channel;
+        this.quotedFields = format == ImportFormat.CSV;
+        this.maxRecordLength = maxRecordLength;
+        this.tooLong = tooLong;
+        this.buffer = ByteBuffer.allocateDirect(Math.min(blockSize, maxRecordLength));
+    }
+
+    /**
+     * Reads the next block of complete records.
+     *
+     * @return the next block, or null at the end of the input
+     * @throws IOException if reading from the channel fails
+     */
+    RecordBlock next() throws IOException {
+        while (true) {
+            fill();
+            int limit = buffer.position();
+            if (limit == 0) {
+                return null;
+            }
+            quoted = false;
+            fieldStart = true;
+            recordsScanned = 0;
+            int boundary = Math.max(scan(0, limit, false), 0);
+            int records = recordsScanned;
+            if (endOfInput && boundary < limit) {
+                boundary = limit;
+                records++;
+            }
+            if (boundary == 0) {
+                if (buffer.capacity() >= maxRecordLength) {
+                    skipRecord();
+                } else {
+                    grow();
+                }
+                continue;
+            }
+            byte[] bytes = new byte[boundary];
+            buffer.flip();
+            buffer.get(bytes);
+            buffer.limit(limit);
+            buffer.compact();
+            RecordBlock block = new RecordBlock(bytes, recordsRead + 1);
+            recordsRead += records;
+            return block;
+        }
+    }
+
+    /**
+     * Scans bytes of the buffer for the line feeds that end a record,
+     * continuing from the quote state the previous scan ended in, and counts
+     * them in {@link #recordsScanned}. A quote that ends the buffer inside a
+     * quoted field may be the first half of an escaped quote, so the scan
+     * stops before it, at {@link #scanned}, unless the input has ended.
+     *
+     * @param from the offset to scan from
+     * @param limit the offset to scan up to
+     * @param first whether to stop at the first line feed that ends a record
+     * @return the offset after the last line feed that ends a record, or after
+     * the first one if {@code first} is set, or -1 if there is none
+     */
+    private int scan(int from, int limit, boolean first) {
+        int boundary = -1;
+        scanned = limit;
+        for (int i = from; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (quoted) {
+                if (b == QUOTE) {
+                    if (i + 1 == limit && !endOfInput) {
+                        scanned = i;
+                        break;
+                    }
+                    if (i + 1 < limit && buffer.get(i + 1) == QUOTE) {
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                }
+                continue;
+            }
+            if (b == QUOTE && fieldStart && quotedFields) {
+                quoted = true;
+                fieldStart = false;
+                continue;
+            }
+            fieldStart = b == COMMA || b == LF || b == CR;
+            if (b == LF) {
+                boundary = i + 1;
+                recordsScanned++;
+                if (first) {
+                    scanned = boundary;
+                    break;
+                }
+            }
+        }
+        return boundary;
+    }
+
+    /**
+     * Discards the record the full buffer starts with, reading on until the
+     * line feed that ends it, and reports its number. The quote state carries
+     * on from the scan that found the buffer full.
+     */
+    private void skipRecord() throws IOException {
+        long number = recordsRead + 1;
+        int end = -1;
+        while (end < 0 && !endOfInput) {
+            buffer.flip();
+            buffer.position(scanned);
+            buffer.compact();
+            fill();
+            end = scan(0, buffer.position(), true);
+        }
+        int limit = buffer.position();
+        buffer.flip();
+        buffer.position(end < 0 ? limit : end);
+        buffer.compact();
+        recordsRead++;
+        tooLong.accept(number);
+    }
+
+    /**
+     * Fills the buffer from the channel until it is full or the input ends.
+     */
+    private void fill() throws IOException {
+        while (!endOfInput && buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                endOfInput = true;
+            }
+        }
+    }
+
+    private void grow() {
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.min(buffer.capacity() * 2, maxRecordLength));
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    /**
+     * A block of complete records.
+     *
+     * @param bytes the records, including their line breaks
+     * @param firstRecord the number of the first record of the block, counting
+     * from 1
+     */
+    record RecordBlock(byte[] bytes, long firstRecord) {
+
+        CsvTokenizer tokenizer() {
+            return new CsvTokenizer(ByteBuffer.wrap(bytes));
+        }
+    }
+}
@@ -1,166 +1,56 @@
 package gr.europeandynamics.web.technico.importers;
 
+import gr.europeandynamics.web.technico.exceptions.CustomException;
 import gr.europeandynamics.web.technico.models.Property;
 import gr.europeandynamics.web.technico.models.Repair;
 import gr.europeandynamics.web.technico.models.RepairStatus;
 import gr.europeandynamics.web.technico.models.RepairType;
-import gr.europeandynamics.web.technico.repositories.RepairRepositoryImpl;
-import gr.europeandynamics.web.technico.services.PropertyServiceImpl;
-import gr.europeandynamics.web.technico.services.UserServiceImpl;
+import gr.europeandynamics.web.technico.repositories.BulkImportRepository;
+import gr.europeandynamics.web.technico.validators.RuleSet;
+import gr.europeandynamics.web.technico.validators.Violation;
 import jakarta.inject.Inject;
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Optional;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
 
-public class RepairCSVImporter implements FilesImporter {
+public class RepairCSVImporter implements RowImporter<Repair> {
+
+    private static final RepairType[] REPAIR_TYPES = RepairType.values();
+    private static final RepairStatus[] REPAIR_STATUSES = RepairStatus.values();
+
+    private static final RuleSet<Repair> RULES = RuleSet.<Repair>builder()
+            .rule("property.id", (repair, now) -> repair.getProperty() == null || repair.getProperty().getId() == null
+                    ? "The property ID is missing." : null)
+            .rule("repairType", (repair, now) -> repair.getRepairType() == null || repair.getRepairStatus() == null
+                    ? "The repair type and status are required." : null)
+            .rule("submissionDate", (repair, now) -> repair.getSubmissionDate() == null
+                    ? "The submission date is required." : null)
+            .build();
 
     @Inject
-    private UserServiceImpl userService;
+    private BulkImportRepository bulkImportRepository;
 
     @Inject
-    private PropertyServiceImpl propertyService;
+    private ChunkWriter chunkWriter;
 
     @Inject
-    private RepairRepositoryImpl repairRepository;
+    private ImportPipeline importPipeline;
 
     /**
-     * Imports the repair data from a specified CSV file. This method reads the 
-     * file, parses each line, validates the data, and saves it to the repository. 
+     * Imports the repair data from a specified CSV file through the 
+     * {@link ImportPipeline}. Lines are parsed and validated in parallel and 
+     * the repairs are persisted in chunks of {@link ChunkWriter#CHUNK_SIZE}, 
+     * one transaction per chunk. 
      * If any line is malformed or contains invalid data, it is skipped.
      * 
      * @param filePath the path to the CSV file to be imported
      */
     @Override
     public void importFile(String filePath) {
-
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(
-                PropertyCSVImporter.class.getClassLoader().getResourceAsStream(filePath)))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] fields = line.split(",");
-
-                if (!(fields.length >= 10 && fields.length <= 12)) {
-                    //The line is malformed, skip it
-                    continue;
-                }
-
-                Long propertyId;
-                try {
-                    propertyId = Long.parseLong(fields[0]);
-                } catch (NumberFormatException e) {
-                    // Invalid CSV format: propertyId must be Long, skip line
-                    continue;
-                }
-
-                RepairType repairType;
-                try {
-                    repairType = RepairType.valueOf(fields[1]);
-                } catch (IllegalArgumentException e) {
-                    // Invalid CSV format: invalid repair type, skip line
-                    continue;
-                }
-
-                String shortDiscription = fields[2];
-
-                LocalDateTime submitionDate;
-                try {
-                    submitionDate = LocalDateTime.parse(fields[3], formatter);
-                } catch (IllegalArgumentException e) {
-                    // Invalid CSV format: invalid date format, skip line
-                    continue;
-                }
-
-                String description = fields[4];
-                LocalDateTime proposedStartDate;
-                try {
-                    proposedStartDate = LocalDateTime.parse(fields[5], formatter);
-                } catch (IllegalArgumentException e) {
-                    // Invalid CSV format: invalid date format, skip line
-                    continue;
-                }
-
-                LocalDateTime proposedEndDate;
-                try {
-                    proposedEndDate = LocalDateTime.parse(fields[6], formatter);
-                } catch (IllegalArgumentException e) {
-                    // Invalid CSV format: invalid date format, skip line
-                    continue;
-                }
-
-                BigDecimal proposedCost;
-                try {
-                    proposedCost = new BigDecimal(fields[7]);
-                } catch (IllegalArgumentException e) {
-                    // Invalid CSV format: invalid cost format, skip line
-                    continue;
-                }
-
-                boolean acceptanceStatus;
-                try {
-                    acceptanceStatus = Boolean.parseBoolean(fields[8]);
-                } catch (IllegalArgumentException e) {
-                    // Invalid CSV format: invalid status format, skip line
-                    continue;
-                }
-
-                RepairStatus repairStatus;
-                try {
-                    repairStatus = RepairStatus.valueOf(fields[9]);
-                } catch (IllegalArgumentException e) {
-                    // Invalid CSV format: invalid repair status, skip line
-                    continue;
-                }
-
-                LocalDateTime actualStartDate = null;
-                if (fields.length >= 11) {
-                    try {
-                        actualStartDate = LocalDateTime.parse(fields[10], formatter);
-                    } catch (IllegalArgumentException e) {
-                        // Invalid CSV format: invalid date format, skip line
-                        continue;
-                    }
-                }
-
-                LocalDateTime actualEndDate = null;
-                if (fields.length == 12) {
-                    try {
-                        actualEndDate = LocalDateTime.parse(fields[11], formatter);
-                    } catch (IllegalArgumentException e) {
-                        // Invalid CSV format: invalid date format, skip line
-                        continue;
-                    }
-                }
-
-                Optional<Property> propertyOptional = propertyService.findPropertyByID(propertyId);
-                if (!propertyOptional.isPresent()) {
-                    // Property not found, skip line
-                    continue;
-                }
-                Property property = propertyOptional.get();
-
-                Repair repair = new Repair();
-                repair.setProperty(property);
-                repair.setRepairType(repairType);
-                repair.setShortDescription(shortDiscription);
-                repair.setSubmissionDate(submitionDate);
-                repair.setDescription(description);
-                repair.setProposedStartDate(proposedStartDate);
-                repair.setProposedEndDate(proposedEndDate);
-                repair.setProposedCost(proposedCost);
-                repair.setAcceptanceStatus(acceptanceStatus);
-                repair.setRepairStatus(repairStatus);
-                repair.setActualStartDate(actualStartDate);
-                repair.setActualEndDate(actualEndDate);
-
-                repairRepository.save(repair);
-            }
+        try (ReadableByteChannel channel = ImportPipeline.openResource(filePath)) {
+            importPipeline.run("repairs", channel, this);
         } catch (OutOfMemoryError e) {
             System.out.println("Java run out of memory: " + e.getMessage());
         } catch (FileNotFoundException e) {
@@ -170,4 +60,86 @@ public class RepairCSVImporter implements FilesImporter {
         }
     }
 
+    /**
+     * Parses a CSV record into a Repair. The record holds 10 fields, optionally
+     * followed by the actual start and end dates. The property is only
+     * identified by its ID and is resolved when the chunk is written.
+     *
+     * @param record the tokenized CSV record
+     * @return the parsed Repair
+     * @throws CustomException if the record is malformed
+     */
+    @Override
+    public Repair parseRecord(CsvTokenizer record) throws CustomException {
+        if (!(record.fieldCount() >= 10 && record.fieldCount() <= 12)) {
+            throw new CustomException("A repair line must contain 10 to 12 fields.");
+        }
+
+        Property property = new Property();
+        property.setId(record.getLong(0));
+
+        Repair repair = new Repair();
+        repair.setProperty(property);
+        repair.setRepairType(record.getEnum(1, REPAIR_TYPES));
+        repair.setShortDescription(record.getString(2));
+        repair.setSubmissionDate(record.getDateTime(3));
+        repair.setDescription(record.getString(4));
+        repair.setProposedStartDate(record.getDateTime(5));
+        repair.setProposedEndDate(record.getDateTime(6));
+        repair.setProposedCost(record.getDecimal(7));
+        repair.setAcceptanceStatus(record.getBoolean(8));
+        repair.setRepairStatus(record.getEnum(9, REPAIR_STATUSES));
+        repair.setActualStartDate(record.isEmpty(10) ? null : record.getDateTime(10));
+        repair.setActualEndDate(record.isEmpty(11) ? null : record.getDateTime(11));
+        return repair;
+    }
+
+    @Override
+    public Class<Repair> rowType() {
+        return Repair.class;
+    }
+
+    /**
+     * Checks that a batch of repairs carries the fields that the CSV layout
+     * makes mandatory, which only a repair read from JSON can lack. The dates
+     * are not checked against the current time, since imported repairs are
+     * usually historical.
+     *
+     * @param repairs the repairs to validate
+     * @return every violation of each repair, in the order of the repairs
+     */
+    @Override
+    public List<List<Violation>> validateAll(List<Repair> repairs) {
+        return RULES.validateAll(repairs, null);
+    }
+
+    /**
+     * Opens a writer that resolves the properties of the parsed repairs and
+     * persists the ones whose property exists, a chunk per transaction. The
+     * IDs of all properties are loaded once when the writer is opened, so a
+     * repair is checked without a query and attached to a reference of its
+     * property instead of the loaded property.
+     *
+     * @return the writer of the import run
+     */
+    @Override
+    public RowWriter<Repair> openWriter() {
+        LongHashSet propertyIds = new LongHashSet(1024);
+        bulkImportRepository.forEachPropertyId(propertyIds::add);
+        return (repairs, report) -> writeChunk(repairs, report, propertyIds);
+    }
+
+    private int writeChunk(List<ImportRow<Repair>> repairs, ImportReport report, LongHashSet propertyIds) {
+        List<ImportRow<Repair>> resolved = new ArrayList<>(repairs.size());
+        for (ImportRow<Repair> row : repairs) {
+            Long propertyId = row.value().getProperty().getId();
+            if (!propertyIds.contains(propertyId)) {
+                report.reject(row.number(), "No property with ID " + propertyId);
+                continue;
+            }
+            row.value().setProperty(bulkImportRepository.getPropertyReference(propertyId));
+            resolved.add(row);
+        }
+        return chunkWriter.write(resolved, repair -> repair.setId(null), report);
+    }
 }
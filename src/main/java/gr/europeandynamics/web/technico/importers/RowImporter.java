@@ -0,0 +1,42 @@
+package gr.europeandynamics.web.technico.importers;
+
+import gr.europeandynamics.web.technico.exceptions.CustomException;
+import gr.europeandynamics.web.technico.validators.Violation;
+import java.util.List;
+
+/**
+ * An importer that splits its work into the stages of an
+ * {@link ImportPipeline}: parsing single records, validating the parsed rows
+ * of a block as a batch and preparing the valid ones, which must be free of
+ * any database access so it can run on worker threads, and writing chunks of
+ * parsed rows through a {@link RowWriter}, which runs on the importing
+ * thread.
+ *
+ * @param <T> the type of the imported rows
+ */
+public interface RowImporter<T> extends FilesImporter {
+
+    Class<T> rowType();
+
+    T parseRecord(CsvTokenizer record) throws CustomException;
+
+    /**
+     * Validates a batch of parsed rows.
+     *
+     * @param rows the parsed rows
+     * @return every violation of each row, in the order of the rows
+     */
+    List<List<Violation>> validateAll(List<T> rows);
+
+    /**
+     * Completes a valid row before it is written, for work too costly to run
+     * on the writing thread.
+     *
+     * @param row the parsed and validated row
+     * @throws CustomException if the row cannot be prepared
+     */
+    default void prepare(T row) throws CustomException {
+    }
+
+    RowWriter<T> openWriter();
+}
@@ -0,0 +1,17 @@
+package gr.europeandynamics.web.technico.importers;
+
+import java.util.List;
+
+/**
+ * Writes the chunks of a single import run. A writer is opened by
+ * {@link RowImporter#openWriter()} when the run starts and holds whatever the
+ * run resolves its rows against, so that state never outlives the run or
+ * leaks into a concurrent one.
+ *
+ * @param <T> the type of the imported rows
+ */
+@FunctionalInterface
+public interface RowWriter<T> {
+
+    int writeChunk(List<ImportRow<T>> rows, ImportReport report);
+}
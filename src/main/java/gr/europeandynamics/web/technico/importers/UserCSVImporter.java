@@ -1,25 +1,54 @@
 package gr.europeandynamics.web.technico.importers;
 
+import gr.europeandynamics.web.technico.exceptions.CustomException;
 import gr.europeandynamics.web.technico.models.Role;
-import gr.europeandynamics.web.technico.services.UserServiceImpl;
+import gr.europeandynamics.web.technico.models.User;
+import gr.europeandynamics.web.technico.security.PasswordHasher;
+import gr.europeandynamics.web.technico.services.CredentialService;
+import gr.europeandynamics.web.technico.validators.UserValidator;
+import gr.europeandynamics.web.technico.validators.Violation;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 @ApplicationScoped
-public class UserCSVImporter implements FilesImporter {
+public class UserCSVImporter implements RowImporter<User> {
+
+    private static final Role[] ROLES = Role.values();
+    private static final Violation REJECTED_HASH = new Violation("password",
+            "Password hash must have the iteration count, salt and key length of new hashes.");
+
+    @Inject
+    private UserValidator userValidator;
+
+    @Inject
+    private PasswordHasher passwordHasher;
 
     @Inject
-    private UserServiceImpl userService;
+    private CredentialService credentialService;
+
+    @Inject
+    private ChunkWriter chunkWriter;
+
+    @Inject
+    private ImportPipeline importPipeline;
 
      /**
-     * Imports user data from the specified CSV file. The method reads the file, 
-     * parses each line, and calls the {@code userService.createUser()} method 
-     * to store valid user entries. It expects the CSV file to contain exactly 
-     * 8 fields per line.
+     * Imports user data from the specified CSV file through the 
+     * {@link ImportPipeline}. Lines are parsed and validated in parallel and 
+     * the valid users are persisted in chunks of {@link ChunkWriter#CHUNK_SIZE}, 
+     * one transaction per chunk.
+     * 
+     * The password column holds either a plain password, which is hashed, or 
+     * a hash in the encoding of {@link PasswordHasher}, which is stored as is. 
+     * Hashing costs tens of milliseconds per user, so importing hashes, for 
+     * instance ones exported from another installation, is far cheaper. A 
+     * hash is only accepted with the parameters of new hashes, so an import 
+     * can neither weaken a password nor make its logins costlier.
      * 
      * If the line is malformed or the file is not found, the method handles 
      * the error and continues with the next line or operation.
@@ -29,29 +58,8 @@ public class UserCSVImporter implements FilesImporter {
     @Override
     public void importFile(String filePath) {
 
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(
-                UserCSVImporter.class.getClassLoader().getResourceAsStream(filePath)))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-
-                String[] fields = line.split(",");
-
-                if (fields.length != 8) {
-                    //The line is malformed, skip it
-                    continue;
-                }
-
-                String vat = fields[0];
-                String name = fields[1];
-                String surname = fields[2];
-                String address = fields[3];
-                String phoneNumber = fields[4];
-                String email = fields[5];
-                String password = fields[6];
-                Role role = Role.valueOf(fields[7]);
-                
-                userService.createUser(vat, name, surname, address, phoneNumber, email, password, role);
-            }
+        try (ReadableByteChannel channel = ImportPipeline.openResource(filePath)) {
+            importPipeline.run("users", channel, this);
         } catch (OutOfMemoryError e) {
             System.out.println("Java run out of memory: " + e.getMessage());
         } catch (FileNotFoundException e) {
@@ -60,4 +68,108 @@ public class UserCSVImporter implements FilesImporter {
             System.out.println(e.getMessage());
         }
     }
+
+    /**
+     * Parses a CSV record into a User. It expects the record to contain
+     * exactly 8 fields.
+     *
+     * @param record the tokenized CSV record
+     * @return the parsed User
+     * @throws CustomException if the record is malformed
+     */
+    @Override
+    public User parseRecord(CsvTokenizer record) throws CustomException {
+        if (record.fieldCount() != 8) {
+            throw new CustomException("A user line must contain 8 fields.");
+        }
+
+        User user = new User();
+        user.setVat(record.getString(0));
+        user.setName(record.getString(1));
+        user.setSurname(record.getString(2));
+        user.setAddress(record.getString(3));
+        user.setPhoneNumber(record.getString(4));
+        user.setEmail(record.getString(5));
+        user.setPassword(record.getString(6));
+        user.setRole(record.getEnum(7, ROLES));
+        return user;
+    }
+
+    @Override
+    public Class<User> rowType() {
+        return User.class;
+    }
+
+    /**
+     * Validates a batch of parsed users. A password given as a hash is moved
+     * to the hash of the user first, so the rules of plain passwords do not
+     * apply to it. A hash that {@link PasswordHasher} does not accept, for
+     * instance one with a different iteration count, is a violation in place
+     * of those of the password.
+     *
+     * @param users the users to validate
+     * @return every violation of each user, in the order of the users
+     */
+    @Override
+    public List<List<Violation>> validateAll(List<User> users) {
+        boolean[] rejectedHashes = new boolean[users.size()];
+        boolean anyRejected = false;
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (passwordHasher.isHash(user.getPassword())) {
+                user.setPasswordHash(user.getPassword());
+                user.setPassword(null);
+            } else if (passwordHasher.isEncoded(user.getPassword())) {
+                rejectedHashes[i] = true;
+                anyRejected = true;
+            }
+        }
+        List<List<Violation>> violations = userValidator.validateAll(users);
+        if (!anyRejected) {
+            return violations;
+        }
+        List<List<Violation>> withHashes = new ArrayList<>(violations);
+        for (int i = 0; i < rejectedHashes.length; i++) {
+            if (rejectedHashes[i]) {
+                List<Violation> userViolations = new ArrayList<>(violations.get(i));
+                userViolations.removeIf(violation -> violation.field().equals(REJECTED_HASH.field()));
+                userViolations.add(REJECTED_HASH);
+                withHashes.set(i, userViolations);
+            }
+        }
+        return withHashes;
+    }
+
+    /**
+     * Hashes the password of a valid user, unless it was given as a hash.
+     * Hashing is the costliest part of a user import, so it runs on the
+     * parsing workers.
+     *
+     * @param user the user to prepare
+     */
+    @Override
+    public void prepare(User user) {
+        if (user.getPasswordHash() == null) {
+            user.setPasswordHash(passwordHasher.hash(user.getPassword()));
+        }
+    }
+
+    /**
+     * Opens a writer that persists each chunk of parsed users in one
+     * transaction. The cached logins of the emails of a chunk are forgotten
+     * once it is written, so an email that failed to log in before the import
+     * is not still taken for an unknown user.
+     *
+     * @return the writer of the import run
+     */
+    @Override
+    public RowWriter<User> openWriter() {
+        return (users, report) -> {
+            int written = chunkWriter.write(users, user -> user.setId(null), report);
+            for (ImportRow<User> row : users) {
+                credentialService.invalidate(row.value().getEmail());
+            }
+            return written;
+        };
+    }
 }
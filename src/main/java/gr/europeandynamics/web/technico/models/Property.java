@@ -1,6 +1,8 @@
 package gr.europeandynamics.web.technico.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -9,9 +11,13 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -21,8 +27,18 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "properties")
+@NaturalIdCache(region = "properties-by-e9")
+@Table(indexes = {
+    @Index(name = "idx_property_user_vat", columnList = "user_vat")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -30,9 +46,19 @@ import lombok.Setter;
 public class Property implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "property_seq")
+    @SequenceGenerator(name = "property_seq", sequenceName = "property_seq", allocationSize = 50)
     private Long id;
 
+    /**
+     * Incremented on every update. Together with the versions of the
+     * entities it embeds, it is the entity tag of the representation.
+     */
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
+    @NaturalId(mutable = true)
     @Size(min = 20, max = 20, message = "E9 must contain 20 characters.")
     @NotNull
     @Column(unique = true)
@@ -52,6 +78,14 @@ public class Property implements Serializable {
     @NotNull
     private boolean isDeleted = false;
 
+    /**
+     * Whether the property was deleted along with its owner, rather than
+     * on its own. Restoring the parent restores only the rows marked so.
+     */
+    @JsonIgnore
+    @Column(name = "deleted_by_cascade", nullable = false)
+    private boolean deletedByCascade = false;
+
     @ManyToOne
     @JoinColumn(name = "user_vat", referencedColumnName = "vat", nullable = false)
     private User user;
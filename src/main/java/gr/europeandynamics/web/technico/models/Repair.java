@@ -1,5 +1,7 @@
 package gr.europeandynamics.web.technico.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
@@ -7,8 +9,12 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.FutureOrPresent;
 import jakarta.validation.constraints.NotNull;
@@ -23,6 +29,12 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_repair_status_submission_date", columnList = "repair_status, submission_date"),
+    @Index(name = "idx_repair_property_status", columnList = "property_id, repair_status"),
+    @Index(name = "idx_repair_submission_date", columnList = "submission_date"),
+    @Index(name = "idx_repair_acceptance_status", columnList = "acceptance_status")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -30,9 +42,18 @@ import lombok.Setter;
 public class Repair implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "repair_seq")
+    @SequenceGenerator(name = "repair_seq", sequenceName = "repair_seq", allocationSize = 50)
     private Long id;
 
+    /**
+     * Incremented on every update. Together with the versions of the
+     * entities it embeds, it is the entity tag of the representation.
+     */
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "repair_type", nullable = false)
     private RepairType repairType;
@@ -79,6 +100,15 @@ public class Repair implements Serializable {
     @NotNull
     private boolean isDeleted = false;
 
+    /**
+     * Whether the repair was deleted along with its property or the owner of
+     * its property, rather than on its own. Restoring the parent restores
+     * only the rows marked so.
+     */
+    @JsonIgnore
+    @Column(name = "deleted_by_cascade", nullable = false)
+    private boolean deletedByCascade = false;
+
     @ManyToOne
     @JoinColumn(name = "property_id")
     private Property property;
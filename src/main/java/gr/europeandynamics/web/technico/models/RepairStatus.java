@@ -12,4 +12,20 @@ public enum RepairStatus {
     COMPLETE("Complete");
 
     private final String code;
+
+    /**
+     * Tells whether a repair may move from this status to another. A pending
+     * repair is started or declined, a repair in progress is completed or
+     * declined, and declined and complete repairs are final.
+     *
+     * @param next the status to move to
+     * @return true if the transition is allowed
+     */
+    public boolean canTransitionTo(RepairStatus next) {
+        return switch (this) {
+            case PENDING -> next == INPROGRESS || next == DECLINED;
+            case INPROGRESS -> next == COMPLETE || next == DECLINED;
+            case DECLINED, COMPLETE -> false;
+        };
+    }
 }
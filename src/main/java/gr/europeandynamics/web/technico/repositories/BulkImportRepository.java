@@ -0,0 +1,117 @@
+package gr.europeandynamics.web.technico.repositories;
+
+import gr.europeandynamics.web.technico.models.Property;
+import gr.europeandynamics.web.technico.models.User;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.transaction.Transactional;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import lombok.NoArgsConstructor;
+
+/**
+ * Persistence path for bulk imports. Entities are persisted a chunk per
+ * transaction and flushed in JDBC batches of {@link #BATCH_SIZE}, which must
+ * match {@code hibernate.jdbc.batch_size}. Batching relies on the entities
+ * using sequence generated ids, since identity columns force one insert per
+ * row.
+ */
+@RequestScoped
+@NoArgsConstructor
+public class BulkImportRepository {
+
+    public static final int BATCH_SIZE = 50;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Persists a chunk of entities in a transaction of its own. The
+     * persistence context is flushed and cleared every {@link #BATCH_SIZE}
+     * entities so it never holds more than one batch.
+     *
+     * @param entities the entities to persist
+     * @param <T> the entity type
+     * @return the number of persisted entities
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public <T> int persistChunk(List<T> entities) {
+        int count = 0;
+        for (T entity : entities) {
+            entityManager.persist(entity);
+            if (++count % BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return count;
+    }
+
+    /**
+     * Persists a single entity in a transaction of its own.
+     *
+     * @param entity the entity to persist
+     * @param <T> the entity type
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public <T> void persistOne(T entity) {
+        entityManager.persist(entity);
+    }
+
+    /**
+     * Passes the ID of every property to a consumer, without loading the
+     * properties themselves.
+     *
+     * @param consumer receives each property ID
+     */
+    public void forEachPropertyId(LongConsumer consumer) {
+        entityManager.createQuery("SELECT p.id FROM Property p", Long.class)
+                .getResultStream()
+                .forEach(consumer::accept);
+    }
+
+    /**
+     * Passes the VAT number and ID of every user to a consumer, without
+     * loading the users themselves.
+     *
+     * @param consumer receives each VAT number and user ID
+     */
+    public void forEachUserVat(BiConsumer<String, Long> consumer) {
+        entityManager.createQuery("SELECT u.vat, u.id FROM User u", Tuple.class)
+                .getResultStream()
+                .forEach(row -> consumer.accept(row.get(0, String.class), row.get(1, Long.class)));
+    }
+
+    /**
+     * Returns an uninitialized reference to a property, for attaching it to
+     * an imported repair without selecting it.
+     *
+     * @param id the ID of the property
+     * @return the reference to the property
+     */
+    public Property getPropertyReference(Long id) {
+        return entityManager.getReference(Property.class, id);
+    }
+
+    /**
+     * Creates a detached user holding only its ID and VAT number, for
+     * attaching it to an imported property without selecting it. Properties
+     * reference their owner by VAT number, so a reference holding only the ID
+     * would be initialized to read it.
+     *
+     * @param id the ID of the user
+     * @param vat the VAT number of the user
+     * @return the detached user
+     */
+    public User getUserReference(Long id, String vat) {
+        User user = new User();
+        user.setId(id);
+        user.setVat(vat);
+        return user;
+    }
+}
@@ -0,0 +1,244 @@
+package gr.europeandynamics.web.technico.repositories;
+
+import gr.europeandynamics.web.technico.dtos.CascadeSummary;
+import gr.europeandynamics.web.technico.models.User;
+import gr.europeandynamics.web.technico.repositories.NaturalKeyCache.KeyType;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.NoArgsConstructor;
+import org.hibernate.Session;
+
+/**
+ * Changes a user or a property together with everything below it, using
+ * bulk statements instead of the entity graph. The statements select the
+ * children by their foreign key columns, so no property or repair is ever
+ * loaded and the cost does not depend on how many there are. Children are
+ * always changed before their parents, so concurrent cascades lock rows in
+ * the same order.
+ *
+ * Permanent deletes run as a series of chunks of {@link #DELETE_CHUNK_SIZE}
+ * rows, each in a transaction of its own, so no lock is held for longer than
+ * one chunk takes. The caller repeats a chunk until it comes back short, then
+ * moves on to the parent table.
+ *
+ * Hibernate evicts the cached users and properties after each bulk
+ * statement on them. The natural keys of deleted rows are invalidated here.
+ */
+@RequestScoped
+@NoArgsConstructor
+public class CascadeRepository {
+
+    public static final int DELETE_CHUNK_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Inject
+    private NaturalKeyCache naturalKeyCache;
+
+    /**
+     * Marks a user, their properties and the repairs of those properties as
+     * deleted or restores them, in one transaction. Rows already in the
+     * requested state are left alone and not counted.
+     *
+     * The properties and repairs deleted here are marked as deleted by the
+     * cascade, and a restore only brings back the marked ones, so a property
+     * or repair that was deleted on its own before stays deleted, along with
+     * the repairs of such a property.
+     *
+     * @param vat the VAT number of the user
+     * @param deleted true to delete, false to restore
+     * @return the number of rows changed in each table
+     */
+    @Transactional
+    public CascadeSummary setUserDeleted(String vat, boolean deleted) {
+        int repairs = entityManager.createQuery("UPDATE Repair r "
+                + "SET r.isDeleted = :deleted, r.deletedByCascade = :deleted, r.version = r.version + 1 "
+                + "WHERE " + cascadeState("r", deleted) + " "
+                + "AND r.property.id IN (SELECT p.id FROM Property p WHERE p.user.vat = :vat"
+                + (deleted ? ")" : " AND (p.isDeleted = false OR p.deletedByCascade = true))"))
+                .setParameter("deleted", deleted)
+                .setParameter("vat", vat)
+                .executeUpdate();
+        int properties = entityManager.createQuery("UPDATE Property p "
+                + "SET p.isDeleted = :deleted, p.deletedByCascade = :deleted, p.version = p.version + 1 "
+                + "WHERE " + cascadeState("p", deleted) + " AND p.user.vat = :vat")
+                .setParameter("deleted", deleted)
+                .setParameter("vat", vat)
+                .executeUpdate();
+        int users = entityManager.createQuery("UPDATE User u "
+                + "SET u.isDeleted = :deleted, u.version = u.version + 1 "
+                + "WHERE u.isDeleted <> :deleted AND u.vat = :vat")
+                .setParameter("deleted", deleted)
+                .setParameter("vat", vat)
+                .executeUpdate();
+        return new CascadeSummary(users, properties, repairs);
+    }
+
+    /**
+     * Marks a property and its repairs as deleted or restores them, in one
+     * transaction. Rows already in the requested state are left alone and
+     * not counted.
+     *
+     * The repairs deleted here are marked as deleted by the cascade, and a
+     * restore only brings back the marked ones, so a repair that was deleted
+     * on its own before stays deleted. The property itself is unmarked, since
+     * it was deleted or restored on its own.
+     *
+     * @param id the ID of the property
+     * @param deleted true to delete, false to restore
+     * @return the number of rows changed in each table
+     */
+    @Transactional
+    public CascadeSummary setPropertyDeleted(Long id, boolean deleted) {
+        int repairs = entityManager.createQuery("UPDATE Repair r "
+                + "SET r.isDeleted = :deleted, r.deletedByCascade = :deleted, r.version = r.version + 1 "
+                + "WHERE " + cascadeState("r", deleted) + " AND r.property.id = :id")
+                .setParameter("deleted", deleted)
+                .setParameter("id", id)
+                .executeUpdate();
+        int properties = entityManager.createQuery("UPDATE Property p "
+                + "SET p.isDeleted = :deleted, p.deletedByCascade = false, p.version = p.version + 1 "
+                + "WHERE p.isDeleted <> :deleted AND p.id = :id")
+                .setParameter("deleted", deleted)
+                .setParameter("id", id)
+                .executeUpdate();
+        return new CascadeSummary(0, properties, repairs);
+    }
+
+    /**
+     * Permanently deletes up to {@link #DELETE_CHUNK_SIZE} repairs of the
+     * properties of a user, in a transaction of its own.
+     *
+     * @param vat the VAT number of the user
+     * @return the number of repairs deleted
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public CascadeSummary deleteRepairChunkOfOwner(String vat) {
+        List<Long> ids = entityManager.createQuery("SELECT r.id FROM Repair r "
+                + "WHERE r.property.id IN (SELECT p.id FROM Property p WHERE p.user.vat = :vat)", Long.class)
+                .setParameter("vat", vat)
+                .setMaxResults(DELETE_CHUNK_SIZE)
+                .getResultList();
+        return new CascadeSummary(0, 0, deleteRepairs("r.id", ids));
+    }
+
+    /**
+     * Permanently deletes up to {@link #DELETE_CHUNK_SIZE} repairs of a
+     * property, in a transaction of its own.
+     *
+     * @param propertyId the ID of the property
+     * @return the number of repairs deleted
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public CascadeSummary deleteRepairChunkOfProperty(Long propertyId) {
+        List<Long> ids = entityManager.createQuery("SELECT r.id FROM Repair r WHERE r.property.id = :id", Long.class)
+                .setParameter("id", propertyId)
+                .setMaxResults(DELETE_CHUNK_SIZE)
+                .getResultList();
+        return new CascadeSummary(0, 0, deleteRepairs("r.id", ids));
+    }
+
+    /**
+     * Permanently deletes up to {@link #DELETE_CHUNK_SIZE} properties of a
+     * user, in a transaction of its own, along with any repair added to them
+     * since their repairs were deleted.
+     *
+     * @param vat the VAT number of the user
+     * @return the number of properties and repairs deleted
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public CascadeSummary deletePropertyChunkOfOwner(String vat) {
+        List<Object[]> rows = entityManager.createQuery("SELECT p.id, p.e9 FROM Property p "
+                + "WHERE p.user.vat = :vat", Object[].class)
+                .setParameter("vat", vat)
+                .setMaxResults(DELETE_CHUNK_SIZE)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return CascadeSummary.NONE;
+        }
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            ids.add((Long) row[0]);
+        }
+        int repairs = deleteRepairs("r.property.id", ids);
+        int properties = entityManager.unwrap(Session.class)
+                .createMutationQuery("DELETE FROM Property p WHERE p.id IN :ids")
+                .setParameterList("ids", ids)
+                .executeUpdate();
+        for (Object[] row : rows) {
+            naturalKeyCache.invalidate(KeyType.PROPERTY_E9, (String) row[1]);
+        }
+        return new CascadeSummary(0, properties, repairs);
+    }
+
+    /**
+     * Permanently deletes a property, in a transaction of its own, along
+     * with any repair added to it since its repairs were deleted.
+     *
+     * @param id the ID of the property
+     * @param e9 the E9 of the property, to invalidate
+     * @return the number of properties and repairs deleted
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public CascadeSummary deleteProperty(Long id, String e9) {
+        int repairs = deleteRepairs("r.property.id", List.of(id));
+        int properties = entityManager.createQuery("DELETE FROM Property p WHERE p.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+        naturalKeyCache.invalidate(KeyType.PROPERTY_E9, e9);
+        return new CascadeSummary(0, properties, repairs);
+    }
+
+    /**
+     * Permanently deletes a user, in a transaction of its own, along with
+     * any property or repair added to them since their properties were
+     * deleted.
+     *
+     * @param user the user
+     * @return the number of users, properties and repairs deleted
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public CascadeSummary deleteUser(User user) {
+        int repairs = entityManager.createQuery("DELETE FROM Repair r "
+                + "WHERE r.property.id IN (SELECT p.id FROM Property p WHERE p.user.vat = :vat)")
+                .setParameter("vat", user.getVat())
+                .executeUpdate();
+        int properties = entityManager.createQuery("DELETE FROM Property p WHERE p.user.vat = :vat")
+                .setParameter("vat", user.getVat())
+                .executeUpdate();
+        int users = entityManager.createQuery("DELETE FROM User u WHERE u.vat = :vat")
+                .setParameter("vat", user.getVat())
+                .executeUpdate();
+        naturalKeyCache.invalidate(KeyType.USER_VAT, user.getVat());
+        naturalKeyCache.invalidate(KeyType.USER_EMAIL, user.getEmail());
+        return new CascadeSummary(users, properties, repairs);
+    }
+
+    /**
+     * Selects the rows a cascade changes: a delete changes the rows that are
+     * not deleted yet, and a restore only the rows a cascade deleted.
+     *
+     * @param alias the alias of the entity in the statement
+     * @param deleted true to delete, false to restore
+     * @return the condition, comparing against the {@code deleted} parameter
+     */
+    private static String cascadeState(String alias, boolean deleted) {
+        return alias + (deleted ? ".isDeleted" : ".deletedByCascade") + " <> :deleted";
+    }
+
+    private int deleteRepairs(String column, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.unwrap(Session.class)
+                .createMutationQuery("DELETE FROM Repair r WHERE " + column + " IN :ids")
+                .setParameterList("ids", ids)
+                .executeUpdate();
+    }
+}
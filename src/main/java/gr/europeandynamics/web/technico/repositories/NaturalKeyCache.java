@@ -0,0 +1,209 @@
+package gr.europeandynamics.web.technico.repositories;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maps the natural keys of users and properties, their VAT number, email
+ * address and E9, to their IDs, so a lookup by natural key becomes a
+ * primary-key find. The cache is split into stripes, each guarded by its own
+ * lock and holding an equal share of the entries in least recently used
+ * order. Entries expire a fixed time after they were stored.
+ *
+ * A cached ID is only a hint: callers load the entity by ID and check that
+ * it still carries the key, and fall back to a query otherwise.
+ */
+@ApplicationScoped
+public class NaturalKeyCache {
+
+    public enum KeyType {
+        USER_VAT,
+        USER_EMAIL,
+        PROPERTY_E9
+    }
+
+    private static final int STRIPES = 16;
+    private static final int DEFAULT_MAX_ENTRIES = 50_000;
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+
+    private final Stripe[] stripes;
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+
+    public NaturalKeyCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL);
+    }
+
+    /**
+     * Creates a cache with the given bounds.
+     *
+     * @param maxEntries the maximum number of keys held over all stripes
+     * @param ttl how long a key is kept after it was stored
+     */
+    public NaturalKeyCache(int maxEntries, Duration ttl) {
+        int stripeCapacity = Math.max(1, maxEntries / STRIPES);
+        stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+        ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Retrieves the ID cached for a natural key.
+     *
+     * @param type the kind of the natural key
+     * @param key the natural key
+     * @return an Optional containing the cached ID, or an empty Optional if
+     * the key is not cached or has expired
+     */
+    public Optional<Long> get(KeyType type, String key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        Key cacheKey = new Key(type, key);
+        Stripe stripe = stripeFor(cacheKey);
+        Long id = null;
+        stripe.lock.lock();
+        try {
+            Entry entry = stripe.get(cacheKey);
+            if (entry != null) {
+                if (entry.expiresAt - System.nanoTime() > 0) {
+                    id = entry.id;
+                } else {
+                    stripe.remove(cacheKey);
+                }
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        (id == null ? misses : hits).increment();
+        return Optional.ofNullable(id);
+    }
+
+    /**
+     * Stores the ID of the entity that carries a natural key.
+     *
+     * @param type the kind of the natural key
+     * @param key the natural key
+     * @param id the ID of the entity
+     */
+    public void put(KeyType type, String key, Long id) {
+        if (key == null || id == null) {
+            return;
+        }
+        Key cacheKey = new Key(type, key);
+        Stripe stripe = stripeFor(cacheKey);
+        stripe.lock.lock();
+        try {
+            stripe.put(cacheKey, new Entry(id, System.nanoTime() + ttlNanos));
+        } finally {
+            stripe.lock.unlock();
+        }
+        puts.increment();
+    }
+
+    /**
+     * Removes a natural key from the cache.
+     *
+     * @param type the kind of the natural key
+     * @param key the natural key
+     */
+    public void invalidate(KeyType type, String key) {
+        if (key == null) {
+            return;
+        }
+        Key cacheKey = new Key(type, key);
+        Stripe stripe = stripeFor(cacheKey);
+        stripe.lock.lock();
+        try {
+            stripe.remove(cacheKey);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every key from the cache.
+     */
+    public void invalidateAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Counts the keys currently held, including expired keys that have not
+     * been looked up since they expired.
+     *
+     * @return the number of cached keys
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getPutCount() {
+        return puts.sum();
+    }
+
+    private Stripe stripeFor(Key key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private record Key(KeyType type, String value) {
+    }
+
+    private record Entry(long id, long expiresAt) {
+    }
+
+    /**
+     * An access-ordered map that drops its least recently used key once it
+     * is full. Every access, including reads, goes through the lock.
+     */
+    private static final class Stripe extends LinkedHashMap<Key, Entry> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package gr.europeandynamics.web.technico.repositories;
 
+import gr.europeandynamics.web.technico.dtos.EntityTags;
+import gr.europeandynamics.web.technico.dtos.PropertySummary;
 import gr.europeandynamics.web.technico.models.Property;
+import gr.europeandynamics.web.technico.repositories.NaturalKeyCache.KeyType;
 import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
@@ -10,15 +14,29 @@ import java.util.List;
 import java.util.Optional;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.jpa.AvailableHints;
+import org.hibernate.query.MutationQuery;
 
 @Slf4j
 @RequestScoped
 @NoArgsConstructor
 public class PropertyRepositoryImpl implements Repository<Property, Long> {
 
+    /**
+     * Selects a {@link PropertySummary} per property, from the property table
+     * alone: the owner VAT number is the foreign key column of the property.
+     */
+    private static final String SUMMARY_SELECT = "SELECT new " + PropertySummary.class.getName()
+            + "(p.id, p.e9, p.propertyAddress, p.constructionYear, p.propertyType, p.user.vat) "
+            + "FROM Property p ";
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Inject
+    private NaturalKeyCache naturalKeyCache;
+
     /**
      * Saves a Property entity to the database.
      *
@@ -31,6 +49,7 @@ public class PropertyRepositoryImpl implements Repository<Property, Long> {
     public Optional<Property> save(Property property) {
         try {
             entityManager.persist(property);
+            naturalKeyCache.invalidate(KeyType.PROPERTY_E9, property.getE9());
             return Optional.of(property);
         } catch (Exception e) {
             log.error(e.getMessage());
@@ -70,6 +89,99 @@ public class PropertyRepositoryImpl implements Repository<Property, Long> {
         return query.getResultList();
     }
 
+    /**
+     * Retrieves a page of Property entities ordered by ID, starting after the
+     * given ID. Uses a keyset predicate so the cost of a page does not grow
+     * with its position in the table.
+     *
+     * @param after the ID to continue after, or null for the first page
+     * @param limit the maximum number of Properties to return
+     * @return a List of at most {@code limit} Properties
+     */
+    @Override
+    public List<Property> getPage(Long after, int limit) {
+        TypedQuery<Property> query
+                = entityManager.createQuery("from " + getEntityClassName()
+                        + " where id > :after order by id",
+                        getEntityClass())
+                        .setParameter("after", after == null ? 0L : after)
+                        .setMaxResults(limit);
+        return query.getResultList();
+    }
+
+    /**
+     * Retrieves a page of Property summaries ordered by ID, starting after
+     * the given ID.
+     *
+     * @param after the ID to continue after, or null for the first page
+     * @param limit the maximum number of summaries to return
+     * @return a List of at most {@code limit} PropertySummaries
+     */
+    public List<PropertySummary> getSummaryPage(Long after, int limit) {
+        TypedQuery<PropertySummary> query
+                = entityManager.createQuery(SUMMARY_SELECT
+                        + "WHERE p.id > :after ORDER BY p.id", PropertySummary.class)
+                        .setParameter("after", after == null ? 0L : after)
+                        .setMaxResults(limit);
+        return query.getResultList();
+    }
+
+    /**
+     * Computes the entity tag of a Property from the version columns of the
+     * property and its owner, without loading either of them.
+     *
+     * @param id the ID of the Property
+     * @return an Optional containing the entity tag, or an empty Optional if
+     * the Property does not exist
+     */
+    public Optional<String> findEntityTag(Long id) {
+        List<Object[]> rows = entityManager.createQuery("SELECT p.version, u.version "
+                + "FROM Property p LEFT JOIN p.user u WHERE p.id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultList();
+        return rows.stream()
+                .findFirst()
+                .map(row -> EntityTags.of((Number) row[0], (Number) row[1]));
+    }
+
+    /**
+     * Writes the editable fields of a Property in a single UPDATE, without
+     * loading it first, and increments its version. When a version is given,
+     * the UPDATE only matches the row if it still has that version. The owner
+     * is only changed when the Property names one. Hibernate evicts the
+     * cached properties after a bulk UPDATE; the natural key cache is
+     * invalidated here, as on save.
+     *
+     * @param property the Property holding the ID and the new field values
+     * @param version the version the Property must have, or null to update
+     * any version
+     * @return the number of updated rows, 0 if the Property does not exist or
+     * has another version
+     */
+    @Transactional
+    public int update(Property property, Long version) {
+        boolean changesOwner = property.getUser() != null && property.getUser().getVat() != null;
+        MutationQuery update = entityManager.unwrap(Session.class).createMutationQuery("UPDATE Property p "
+                + "SET p.e9 = :e9, p.propertyAddress = :propertyAddress, p.constructionYear = :constructionYear, "
+                + "p.propertyType = :propertyType, " + (changesOwner ? "p.user = :user, " : "")
+                + "p.version = p.version + 1 "
+                + "WHERE p.id = :id" + (version == null ? "" : " AND p.version = :version"))
+                .setParameter("e9", property.getE9())
+                .setParameter("propertyAddress", property.getPropertyAddress())
+                .setParameter("constructionYear", property.getConstructionYear())
+                .setParameter("propertyType", property.getPropertyType())
+                .setParameter("id", property.getId());
+        if (changesOwner) {
+            update.setParameter("user", property.getUser());
+        }
+        if (version != null) {
+            update.setParameter("version", version);
+        }
+        int updated = update.executeUpdate();
+        naturalKeyCache.invalidate(KeyType.PROPERTY_E9, property.getE9());
+        return updated;
+    }
+
     /**
      * Deletes a Property entity by its unique ID.
      *
@@ -83,6 +195,7 @@ public class PropertyRepositoryImpl implements Repository<Property, Long> {
             Property property = entityManager.find(getEntityClass(), id);
             if (property != null) {
                 entityManager.remove(property);
+                naturalKeyCache.invalidate(KeyType.PROPERTY_E9, property.getE9());
                 return true;
             }
             return false;
@@ -93,24 +206,36 @@ public class PropertyRepositoryImpl implements Repository<Property, Long> {
     }
 
     /**
-     * Retrieves a Property entity by its E9 identifier.
+     * Retrieves a Property entity by its E9 identifier. An E9 seen before is
+     * resolved to an ID through the natural key cache and loaded by ID;
+     * otherwise the property is loaded by its natural ID, which is served from
+     * the second-level cache when possible.
      *
      * @param e9 the E9 identifier of the Property to retrieve
      * @return an Optional containing the Property if found, or an empty
      * Optional if not
      */
     public Optional<Property> findPropertyByE9(String e9) {
-        TypedQuery<Property> query
-                = entityManager.createQuery("from " + getEntityClassName()
-                        + " where e9 = :e9 ",
-                        getEntityClass())
-                        .setParameter("e9", e9);
-        return query.getResultStream().findFirst();
+        return naturalKeyCache.get(KeyType.PROPERTY_E9, e9)
+                .map(id -> entityManager.find(getEntityClass(), id))
+                .filter(property -> e9.equals(property.getE9()))
+                .or(() -> {
+                    Optional<Property> property = entityManager.unwrap(Session.class)
+                            .bySimpleNaturalId(getEntityClass())
+                            .loadOptional(e9);
+                    if (property.isPresent()) {
+                        naturalKeyCache.put(KeyType.PROPERTY_E9, e9, property.get().getId());
+                    } else {
+                        naturalKeyCache.invalidate(KeyType.PROPERTY_E9, e9);
+                    }
+                    return property;
+                });
     }
 
     /**
      * Retrieves a list of Property entities associated with a specific user's
-     * VAT number.
+     * VAT number. The result is kept in the query cache until the property
+     * table is written to.
      *
      * @param vat the VAT number of the User whose Properties to retrieve
      * @return a List of Properties associated with the given VAT
@@ -120,7 +245,25 @@ public class PropertyRepositoryImpl implements Repository<Property, Long> {
                 = entityManager.createQuery("from " + getEntityClassName()
                         + " where user.vat = :vat ",
                         getEntityClass())
-                        .setParameter("vat", vat);
+                        .setParameter("vat", vat)
+                        .setHint(AvailableHints.HINT_CACHEABLE, true);
+        return query.getResultList();
+    }
+
+    /**
+     * Retrieves the summaries of the Properties of an owner. Like
+     * {@link #findPropertiesByVAT(String)}, the result is kept in the query
+     * cache until the property table is written to.
+     *
+     * @param vat the VAT number of the User whose Properties to retrieve
+     * @return a List of the summaries of the Properties of the given VAT
+     */
+    public List<PropertySummary> findPropertySummariesByVAT(String vat) {
+        TypedQuery<PropertySummary> query
+                = entityManager.createQuery(SUMMARY_SELECT
+                        + "WHERE p.user.vat = :vat", PropertySummary.class)
+                        .setParameter("vat", vat)
+                        .setHint(AvailableHints.HINT_CACHEABLE, true);
         return query.getResultList();
     }
 
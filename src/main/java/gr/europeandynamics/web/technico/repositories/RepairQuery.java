@@ -0,0 +1,55 @@
+package gr.europeandynamics.web.technico.repositories;
+
+import gr.europeandynamics.web.technico.models.RepairStatus;
+import gr.europeandynamics.web.technico.models.RepairType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The criteria of a repair search. Every criterion is optional, the ones that
+ * are set are combined with AND into a single query by
+ * {@link RepairRepositoryImpl#search(RepairQuery)}.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class RepairQuery {
+
+    public enum SortField {
+        ID,
+        SUBMISSION_DATE
+    }
+
+    private final List<RepairStatus> statuses;
+
+    private final List<RepairType> types;
+
+    private final Boolean accepted;
+
+    private final LocalDateTime submittedFrom;
+
+    private final LocalDateTime submittedTo;
+
+    private final String ownerVat;
+
+    private final Long ownerId;
+
+    private final Long propertyId;
+
+    private final BigDecimal minCost;
+
+    private final BigDecimal maxCost;
+
+    @Builder.Default
+    private final SortField sort = SortField.ID;
+
+    private final boolean descending;
+
+    private final Long afterId;
+
+    private final LocalDateTime afterSubmissionDate;
+
+    private final int limit;
+}
@@ -1,25 +1,65 @@
 package gr.europeandynamics.web.technico.repositories;
 
+import gr.europeandynamics.web.technico.dtos.EntityTags;
+import gr.europeandynamics.web.technico.dtos.RepairSummary;
 import gr.europeandynamics.web.technico.models.Property;
 import gr.europeandynamics.web.technico.models.Repair;
 import gr.europeandynamics.web.technico.models.RepairStatus;
 import gr.europeandynamics.web.technico.models.User;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import jakarta.transaction.Transactional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.MutationQuery;
+import org.hibernate.query.Query;
 
 @Slf4j
 @RequestScoped
 public class RepairRepositoryImpl implements Repository<Repair, Long> {
 
+    public static final int STREAM_FETCH_SIZE = 500;
+
+    /**
+     * Selects a {@link RepairSummary} per repair: thirteen columns from the
+     * repair and property tables instead of every column of the repair, its
+     * property and the owner of the property. The owner VAT number is read
+     * through {@code p.user.vat}, which is the foreign key column of the
+     * property, so the user table is not joined. Queries that filter on
+     * {@code p.user.id} add an inner join to it for that filter only.
+     */
+    private static final String SUMMARY_SELECT = "SELECT new " + RepairSummary.class.getName()
+            + "(r.id, r.repairType, r.repairStatus, r.acceptanceStatus, r.shortDescription, r.submissionDate, "
+            + "r.proposedStartDate, r.proposedEndDate, r.proposedCost, p.id, p.e9, p.propertyAddress, p.user.vat) "
+            + "FROM Repair r LEFT JOIN r.property p ";
+
     @PersistenceContext
     private EntityManager entityManager;
 
@@ -53,6 +93,43 @@ public class RepairRepositoryImpl implements Repository<Repair, Long> {
         return query.getResultList();
     }
 
+    /**
+     * Retrieves a page of Repair entities ordered by ID, starting after the
+     * given ID. Uses a keyset predicate so the cost of a page does not grow
+     * with its position in the table.
+     *
+     * @param after the ID to continue after, or null for the first page
+     * @param limit the maximum number of Repairs to return
+     * @return a List of at most {@code limit} Repairs
+     */
+    @Override
+    public List<Repair> getPage(Long after, int limit) {
+        TypedQuery<Repair> query
+                = entityManager.createQuery("from " + getEntityClassName()
+                        + " where id > :after order by id",
+                        getEntityClass())
+                        .setParameter("after", after == null ? 0L : after)
+                        .setMaxResults(limit);
+        return query.getResultList();
+    }
+
+    /**
+     * Retrieves a page of Repair summaries ordered by ID, starting after the
+     * given ID.
+     *
+     * @param after the ID to continue after, or null for the first page
+     * @param limit the maximum number of summaries to return
+     * @return a List of at most {@code limit} RepairSummaries
+     */
+    public List<RepairSummary> getSummaryPage(Long after, int limit) {
+        TypedQuery<RepairSummary> query
+                = entityManager.createQuery(SUMMARY_SELECT
+                        + "WHERE r.id > :after ORDER BY r.id", RepairSummary.class)
+                        .setParameter("after", after == null ? 0L : after)
+                        .setMaxResults(limit);
+        return query.getResultList();
+    }
+
     /**
      * Retrieves a Repair entity by its unique ID.
      *
@@ -71,6 +148,128 @@ public class RepairRepositoryImpl implements Repository<Repair, Long> {
         }
     }
 
+    /**
+     * Computes the entity tag of a Repair from the version columns of the
+     * repair, its property and the owner of the property, without loading any
+     * of them.
+     *
+     * @param id the ID of the Repair
+     * @return an Optional containing the entity tag, or an empty Optional if
+     * the Repair does not exist
+     */
+    public Optional<String> findEntityTag(Long id) {
+        List<Object[]> rows = entityManager.createQuery("SELECT r.version, p.version, u.version "
+                + "FROM Repair r LEFT JOIN r.property p LEFT JOIN p.user u WHERE r.id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultList();
+        return rows.stream()
+                .findFirst()
+                .map(row -> EntityTags.of((Number) row[0], (Number) row[1], (Number) row[2]));
+    }
+
+    /**
+     * Writes the editable fields of a Repair in a single UPDATE, without
+     * loading it first, and increments its version. When a version is given,
+     * the UPDATE only matches the row if it still has that version, so a
+     * concurrent update is detected by the database rather than by a read
+     * beforehand.
+     *
+     * @param repair the Repair holding the ID and the new field values
+     * @param version the version the Repair must have, or null to update any
+     * version
+     * @return the number of updated rows, 0 if the Repair does not exist or
+     * has another version
+     */
+    @Transactional
+    public int update(Repair repair, Long version) {
+        MutationQuery update = entityManager.unwrap(Session.class).createMutationQuery("UPDATE Repair r SET r.repairType = :repairType, "
+                + "r.shortDescription = :shortDescription, r.description = :description, "
+                + "r.proposedStartDate = :proposedStartDate, r.proposedEndDate = :proposedEndDate, "
+                + "r.proposedCost = :proposedCost, r.acceptanceStatus = :acceptanceStatus, "
+                + "r.repairStatus = :repairStatus, r.actualStartDate = :actualStartDate, "
+                + "r.actualEndDate = :actualEndDate, r.version = r.version + 1 "
+                + "WHERE r.id = :id" + (version == null ? "" : " AND r.version = :version"))
+                .setParameter("repairType", repair.getRepairType())
+                .setParameter("shortDescription", repair.getShortDescription())
+                .setParameter("description", repair.getDescription())
+                .setParameter("proposedStartDate", repair.getProposedStartDate())
+                .setParameter("proposedEndDate", repair.getProposedEndDate())
+                .setParameter("proposedCost", repair.getProposedCost())
+                .setParameter("acceptanceStatus", repair.getAcceptanceStatus())
+                .setParameter("repairStatus", repair.getRepairStatus())
+                .setParameter("actualStartDate", repair.getActualStartDate())
+                .setParameter("actualEndDate", repair.getActualEndDate())
+                .setParameter("id", repair.getId());
+        if (version != null) {
+            update.setParameter("version", version);
+        }
+        return update.executeUpdate();
+    }
+
+    /**
+     * Reads the statuses of Repairs and locks their rows until the end of
+     * the transaction, so the statuses cannot change before the caller acts
+     * on them.
+     *
+     * @param ids the IDs of the Repairs
+     * @return the status of each existing Repair by ID
+     */
+    public Map<Long, RepairStatus> findStatusesForUpdate(Collection<Long> ids) {
+        Map<Long, RepairStatus> statuses = new HashMap<>();
+        if (ids.isEmpty()) {
+            return statuses;
+        }
+        entityManager.createQuery("SELECT r.id, r.repairStatus FROM Repair r WHERE r.id IN :ids", Object[].class)
+                .setParameter("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList()
+                .forEach(row -> statuses.put((Long) row[0], (RepairStatus) row[1]));
+        return statuses;
+    }
+
+    /**
+     * Moves Repairs from one status to another in a single UPDATE, which
+     * only matches the Repairs that still have the {@code from} status. A
+     * Repair moved in progress gets its actual start date and a completed
+     * one its actual end date, unless they are already set. The version of
+     * every moved Repair is incremented.
+     *
+     * @param ids the IDs of the Repairs
+     * @param from the status the Repairs must have
+     * @param to the status to move them to
+     * @param acceptance the acceptance status to set, or null to keep it
+     * @param now the time to record as the actual start or end date
+     * @return the number of moved Repairs
+     */
+    @Transactional
+    public int transition(Collection<Long> ids, RepairStatus from, RepairStatus to, Boolean acceptance,
+            LocalDateTime now) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        StringBuilder hql = new StringBuilder("UPDATE Repair r SET r.repairStatus = :to, r.version = r.version + 1");
+        if (acceptance != null) {
+            hql.append(", r.acceptanceStatus = :acceptance");
+        }
+        if (to == RepairStatus.INPROGRESS) {
+            hql.append(", r.actualStartDate = COALESCE(r.actualStartDate, :now)");
+        } else if (to == RepairStatus.COMPLETE) {
+            hql.append(", r.actualEndDate = COALESCE(r.actualEndDate, :now)");
+        }
+        hql.append(" WHERE r.id IN :ids AND r.repairStatus = :from");
+        MutationQuery update = entityManager.unwrap(Session.class).createMutationQuery(hql.toString())
+                .setParameter("to", to)
+                .setParameterList("ids", ids)
+                .setParameter("from", from);
+        if (acceptance != null) {
+            update.setParameter("acceptance", acceptance);
+        }
+        if (to == RepairStatus.INPROGRESS || to == RepairStatus.COMPLETE) {
+            update.setParameter("now", now);
+        }
+        return update.executeUpdate();
+    }
+
     /**
      * Deletes a Repair entity by its unique ID.
      *
@@ -119,6 +318,19 @@ public class RepairRepositoryImpl implements Repository<Repair, Long> {
         return query.getResultList();
     }
 
+    /**
+     * Finds the summaries of all pending Repairs.
+     *
+     * @return a List of the summaries of pending Repairs
+     */
+    public List<RepairSummary> findPendingRepairSummaries() {
+        TypedQuery<RepairSummary> query
+                = entityManager.createQuery(SUMMARY_SELECT
+                        + "WHERE r.repairStatus = :repairStatus", RepairSummary.class)
+                        .setParameter("repairStatus", RepairStatus.PENDING);
+        return query.getResultList();
+    }
+
     /**
      * Finds pending Repair entities for a specific user.
      *
@@ -155,6 +367,20 @@ public class RepairRepositoryImpl implements Repository<Repair, Long> {
         return query.getResultList();
     }
 
+    /**
+     * Finds the summaries of the Repairs of a User.
+     *
+     * @param userId the ID of the User whose Repairs to retrieve
+     * @return a List of the summaries of the Repairs of the given User
+     */
+    public List<RepairSummary> findRepairSummariesByUserId(Long userId) {
+        TypedQuery<RepairSummary> query
+                = entityManager.createQuery(SUMMARY_SELECT
+                        + "WHERE p.user.id = :userId", RepairSummary.class)
+                        .setParameter("userId", userId);
+        return query.getResultList();
+    }
+
     /**
      * Finds Repair entities by the associated Property.
      *
@@ -192,7 +418,7 @@ public class RepairRepositoryImpl implements Repository<Repair, Long> {
     public List<Repair> findAcceptedRepairs() {
         TypedQuery<Repair> query
                 = entityManager.createQuery("from " + getEntityClassName()
-                        + " where acceptance_status = 1 ",
+                        + " where acceptanceStatus = true ",
                         getEntityClass());
         return query.getResultList();
     }
@@ -214,6 +440,24 @@ public class RepairRepositoryImpl implements Repository<Repair, Long> {
         return query.getResultList();
     }
 
+    /**
+     * Finds the summaries of the Repairs that are in progress and were
+     * submitted today.
+     *
+     * @return a List of the summaries of the Repairs that are in progress and
+     * were submitted today
+     */
+    public List<RepairSummary> findInprogressRepairSummariesToday() {
+        TypedQuery<RepairSummary> query
+                = entityManager.createQuery(SUMMARY_SELECT
+                        + "WHERE r.repairStatus = :repairStatus "
+                        + "AND r.submissionDate BETWEEN :startDate AND :endDate", RepairSummary.class)
+                        .setParameter("startDate", LocalDate.now().atStartOfDay())
+                        .setParameter("endDate", LocalDateTime.now())
+                        .setParameter("repairStatus", RepairStatus.INPROGRESS);
+        return query.getResultList();
+    }
+
     /**
      * Finds Repairs submitted between the specified dates and optionally
      * filtered by User ID.
@@ -259,6 +503,241 @@ public class RepairRepositoryImpl implements Repository<Repair, Long> {
         }
     }
 
+    /**
+     * Finds the summaries of the Repairs submitted between the specified
+     * dates, optionally only those of a User.
+     *
+     * @param startDate the starting date for the search
+     * @param endDate the ending date for the search
+     * @param userId the optional User ID to filter the Repairs
+     * @return a List of the summaries of the Repairs submitted between the
+     * specified dates
+     */
+    public List<RepairSummary> findRepairSummariesByDates(LocalDateTime startDate, LocalDateTime endDate, Long userId) {
+        if (userId == null) {
+            return entityManager.createQuery(SUMMARY_SELECT
+                    + "WHERE r.submissionDate BETWEEN :startDate AND :endDate", RepairSummary.class)
+                    .setParameter("startDate", startDate)
+                    .setParameter("endDate", endDate)
+                    .getResultList();
+        }
+        return entityManager.createQuery(SUMMARY_SELECT
+                + "WHERE r.submissionDate BETWEEN :startDate AND :endDate "
+                + "AND p.user.id = :userId", RepairSummary.class)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .setParameter("userId", userId)
+                .getResultList();
+    }
+
+    /**
+     * Searches Repairs by any combination of the criteria of a RepairQuery,
+     * selecting only their summaries. The property and its owner are joined
+     * in the same statement, so a search costs exactly one SQL query whatever
+     * criteria are set.
+     *
+     * @param repairQuery the search criteria, sort order, cursor and limit
+     * @return a List of the summaries of at most {@code repairQuery.getLimit()}
+     * matching Repairs in the requested order
+     */
+    public List<RepairSummary> searchSummaries(RepairQuery repairQuery) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<RepairSummary> criteriaQuery = cb.createQuery(RepairSummary.class);
+        Root<Repair> repair = criteriaQuery.from(Repair.class);
+        Join<Repair, Property> property = repair.join("property", JoinType.LEFT);
+        Join<Property, User> owner = property.join("user", JoinType.LEFT);
+
+        criteriaQuery.select(cb.construct(RepairSummary.class,
+                repair.get("id"), repair.get("repairType"), repair.get("repairStatus"),
+                repair.get("acceptanceStatus"), repair.get("shortDescription"), repair.get("submissionDate"),
+                repair.get("proposedStartDate"), repair.get("proposedEndDate"), repair.get("proposedCost"),
+                property.get("id"), property.get("e9"), property.get("propertyAddress"), owner.get("vat")))
+                .where(searchPredicates(cb, repair, property, owner, repairQuery))
+                .orderBy(searchOrder(cb, repair, repairQuery));
+        return entityManager.createQuery(criteriaQuery)
+                .setMaxResults(repairQuery.getLimit())
+                .getResultList();
+    }
+
+    /**
+     * Builds the predicates of the criteria that are set on a RepairQuery.
+     *
+     * @param cb the criteria builder
+     * @param repair the repair root of the search
+     * @param property the join to the property of the repair
+     * @param owner the join to the owner of the property
+     * @param repairQuery the search criteria
+     * @return the predicates, to be combined with AND
+     */
+    private Predicate[] searchPredicates(CriteriaBuilder cb, Root<Repair> repair, Join<Repair, Property> property,
+            Join<Property, User> owner, RepairQuery repairQuery) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (repairQuery.getStatuses() != null && !repairQuery.getStatuses().isEmpty()) {
+            predicates.add(repair.get("repairStatus").in(repairQuery.getStatuses()));
+        }
+        if (repairQuery.getTypes() != null && !repairQuery.getTypes().isEmpty()) {
+            predicates.add(repair.get("repairType").in(repairQuery.getTypes()));
+        }
+        if (repairQuery.getAccepted() != null) {
+            predicates.add(cb.equal(repair.get("acceptanceStatus"), repairQuery.getAccepted()));
+        }
+        if (repairQuery.getSubmittedFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(repair.get("submissionDate"), repairQuery.getSubmittedFrom()));
+        }
+        if (repairQuery.getSubmittedTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(repair.get("submissionDate"), repairQuery.getSubmittedTo()));
+        }
+        if (repairQuery.getOwnerVat() != null) {
+            predicates.add(cb.equal(owner.get("vat"), repairQuery.getOwnerVat()));
+        }
+        if (repairQuery.getOwnerId() != null) {
+            predicates.add(cb.equal(owner.get("id"), repairQuery.getOwnerId()));
+        }
+        if (repairQuery.getPropertyId() != null) {
+            predicates.add(cb.equal(property.get("id"), repairQuery.getPropertyId()));
+        }
+        if (repairQuery.getMinCost() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(repair.get("proposedCost"), repairQuery.getMinCost()));
+        }
+        if (repairQuery.getMaxCost() != null) {
+            predicates.add(cb.lessThanOrEqualTo(repair.get("proposedCost"), repairQuery.getMaxCost()));
+        }
+        if (repairQuery.getAfterId() != null) {
+            predicates.add(afterCursor(cb, repair, repairQuery));
+        }
+        return predicates.toArray(Predicate[]::new);
+    }
+
+    /**
+     * Builds the sort order of a search, with the ID as the tie breaker.
+     *
+     * @param cb the criteria builder
+     * @param repair the repair root of the search
+     * @param repairQuery the search criteria holding the sort order
+     * @return the order of the search
+     */
+    private List<Order> searchOrder(CriteriaBuilder cb, Root<Repair> repair, RepairQuery repairQuery) {
+        Path<Long> id = repair.get("id");
+        if (repairQuery.getSort() == RepairQuery.SortField.SUBMISSION_DATE) {
+            Path<LocalDateTime> submissionDate = repair.get("submissionDate");
+            return repairQuery.isDescending()
+                    ? List.of(cb.desc(submissionDate), cb.desc(id))
+                    : List.of(cb.asc(submissionDate), cb.asc(id));
+        }
+        return List.of(repairQuery.isDescending() ? cb.desc(id) : cb.asc(id));
+    }
+
+    /**
+     * Builds the keyset predicate that continues a search after the row the
+     * cursor points to, in the sort order of the search.
+     *
+     * @param cb the criteria builder
+     * @param repair the repair root of the search
+     * @param repairQuery the search criteria holding the cursor
+     * @return the predicate selecting the rows after the cursor
+     */
+    private Predicate afterCursor(CriteriaBuilder cb, Root<Repair> repair, RepairQuery repairQuery) {
+        Path<Long> id = repair.get("id");
+        Long afterId = repairQuery.getAfterId();
+        if (repairQuery.getSort() != RepairQuery.SortField.SUBMISSION_DATE) {
+            return repairQuery.isDescending() ? cb.lessThan(id, afterId) : cb.greaterThan(id, afterId);
+        }
+        Path<LocalDateTime> submissionDate = repair.get("submissionDate");
+        LocalDateTime afterDate = repairQuery.getAfterSubmissionDate();
+        if (repairQuery.isDescending()) {
+            return cb.or(cb.lessThan(submissionDate, afterDate),
+                    cb.and(cb.equal(submissionDate, afterDate), cb.lessThan(id, afterId)));
+        }
+        return cb.or(cb.greaterThan(submissionDate, afterDate),
+                cb.and(cb.equal(submissionDate, afterDate), cb.greaterThan(id, afterId)));
+    }
+
+    /**
+     * Streams the summaries of all Repairs ordered by ID.
+     *
+     * @return a forward-only Stream of the summaries of all Repairs, which
+     * must be consumed inside a transaction and closed afterwards
+     */
+    public Stream<RepairSummary> streamAllSummaries() {
+        return scroll(entityManager.createQuery(SUMMARY_SELECT + "ORDER BY r.id", RepairSummary.class));
+    }
+
+    /**
+     * Streams the summaries of the Repairs of a User.
+     *
+     * @param userId the ID of the User whose Repairs to stream
+     * @return a forward-only Stream of the summaries of the Repairs of the
+     * given User, which must be consumed inside a transaction and closed
+     * afterwards
+     */
+    public Stream<RepairSummary> streamSummariesByUserId(Long userId) {
+        return scroll(entityManager.createQuery(SUMMARY_SELECT
+                + "WHERE p.user.id = :userId ORDER BY r.id", RepairSummary.class)
+                .setParameter("userId", userId));
+    }
+
+    /**
+     * Streams the summaries of the Repairs submitted between the specified
+     * dates, optionally only those of a User.
+     *
+     * @param startDate the starting date for the search
+     * @param endDate the ending date for the search
+     * @param userId the optional User ID to filter the Repairs
+     * @return a forward-only Stream of the summaries of the matching Repairs,
+     * which must be consumed inside a transaction and closed afterwards
+     */
+    public Stream<RepairSummary> streamSummariesByDates(LocalDateTime startDate, LocalDateTime endDate, Long userId) {
+        if (userId == null) {
+            return scroll(entityManager.createQuery(SUMMARY_SELECT
+                    + "WHERE r.submissionDate BETWEEN :startDate AND :endDate ORDER BY r.id", RepairSummary.class)
+                    .setParameter("startDate", startDate)
+                    .setParameter("endDate", endDate));
+        }
+        return scroll(entityManager.createQuery(SUMMARY_SELECT
+                + "WHERE r.submissionDate BETWEEN :startDate AND :endDate "
+                + "AND p.user.id = :userId ORDER BY r.id", RepairSummary.class)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .setParameter("userId", userId));
+    }
+
+    /**
+     * Runs a query through a forward-only cursor instead of materializing its
+     * result list. Rows are fetched from the driver {@link #STREAM_FETCH_SIZE}
+     * at a time and the persistence context is cleared after every fetch, so
+     * memory stays bounded whatever the size of the result. On MySQL the data
+     * source needs {@code useCursorFetch=true} for the fetch size to apply.
+     *
+     * @param query the query to scroll
+     * @param <T> the type of the query results
+     * @return a Stream over the query results that releases the cursor when
+     * closed
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Stream<T> scroll(TypedQuery<T> query) {
+        ScrollableResults<T> results = query.unwrap(Query.class)
+                .setFetchSize(STREAM_FETCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private int rows;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (!results.next()) {
+                    return false;
+                }
+                action.accept(results.get());
+                if (++rows % STREAM_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(results::close);
+    }
+
     /**
      * Gets the entity class for Repair.
      *
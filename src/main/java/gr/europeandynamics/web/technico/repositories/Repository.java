@@ -11,5 +11,7 @@ public interface Repository<T, K> {
 
     List<T> getAll();
 
+    List<T> getPage(K after, int limit);
+
     boolean deleteById(K id);
 }
@@ -0,0 +1,45 @@
+package gr.europeandynamics.web.technico.repositories;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Times the JDBC executions of a session for the {@link SqlRequestTracker}
+ * of the current request. Hibernate creates one per session through the
+ * {@code hibernate.session.events.auto} property of the persistence unit.
+ */
+public class SqlEventListener extends BaseSessionEventListener {
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        started();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        ended();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        started();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        ended();
+    }
+
+    private static void started() {
+        SqlRequestTracker tracker = SqlRequestTracker.current();
+        if (tracker != null) {
+            tracker.executionStarted();
+        }
+    }
+
+    private static void ended() {
+        SqlRequestTracker tracker = SqlRequestTracker.current();
+        if (tracker != null) {
+            tracker.executionEnded();
+        }
+    }
+}
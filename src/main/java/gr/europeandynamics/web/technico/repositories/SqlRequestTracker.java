@@ -0,0 +1,213 @@
+package gr.europeandynamics.web.technico.repositories;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the SQL statements issued on behalf of one request, the time spent
+ * executing them and how often each statement shape repeats. A tracker is
+ * bound to the thread that handles the request, between {@link #begin()} and
+ * {@link #end()}. {@link SqlStatementInspector} and {@link SqlEventListener}
+ * feed it from inside Hibernate, so statements issued while no tracker is
+ * bound, for instance on the threads of an asynchronous resource method, are
+ * not counted. A tracker bound by {@link #record()} also keeps the
+ * statements themselves.
+ */
+public final class SqlRequestTracker {
+
+    private static final ThreadLocal<SqlRequestTracker> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, int[]> shapes = new HashMap<>();
+    private final List<String> recorded;
+    private int statements;
+    private long executionNanos;
+    private long executionStart;
+
+    private SqlRequestTracker(List<String> recorded) {
+        this.recorded = recorded;
+    }
+
+    /**
+     * Binds a new tracker to the current thread, replacing any tracker left
+     * over from an earlier request.
+     *
+     * @return the new tracker
+     */
+    public static SqlRequestTracker begin() {
+        SqlRequestTracker tracker = new SqlRequestTracker(null);
+        CURRENT.set(tracker);
+        return tracker;
+    }
+
+    /**
+     * Binds a new tracker to the current thread like {@link #begin()}, which
+     * also keeps every statement in the order it was prepared.
+     *
+     * @return the new tracker
+     */
+    public static SqlRequestTracker record() {
+        SqlRequestTracker tracker = new SqlRequestTracker(new ArrayList<>());
+        CURRENT.set(tracker);
+        return tracker;
+    }
+
+    /**
+     * Unbinds the tracker of the current thread.
+     *
+     * @return the tracker, or null if none was bound
+     */
+    public static SqlRequestTracker end() {
+        SqlRequestTracker tracker = CURRENT.get();
+        CURRENT.remove();
+        return tracker;
+    }
+
+    /**
+     * Returns the tracker of the current thread without unbinding it.
+     *
+     * @return the tracker, or null if none is bound
+     */
+    public static SqlRequestTracker current() {
+        return CURRENT.get();
+    }
+
+    void statement(String sql) {
+        statements++;
+        if (recorded != null) {
+            recorded.add(sql);
+        }
+        shapes.computeIfAbsent(shapeOf(sql), shape -> new int[1])[0]++;
+    }
+
+    void executionStarted() {
+        executionStart = System.nanoTime();
+    }
+
+    void executionEnded() {
+        if (executionStart != 0) {
+            executionNanos += System.nanoTime() - executionStart;
+            executionStart = 0;
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getExecutionNanos() {
+        return executionNanos;
+    }
+
+    /**
+     * Gets the statements prepared while the tracker was bound, exactly as
+     * Hibernate generated them.
+     *
+     * @return the statements in the order they were prepared, empty unless
+     * the tracker was bound by {@link #record()}
+     */
+    public List<String> getRecordedStatements() {
+        return recorded == null ? List.of() : List.copyOf(recorded);
+    }
+
+    /**
+     * Finds the statement shape issued most often, the signature of an N+1
+     * query pattern when it repeats once per row of an earlier result.
+     *
+     * @return the shape and the number of times it was issued, or null if no
+     * statement was issued
+     */
+    public Map.Entry<String, Integer> getMostRepeatedShape() {
+        String mostRepeated = null;
+        int count = 0;
+        for (Map.Entry<String, int[]> shape : shapes.entrySet()) {
+            if (shape.getValue()[0] > count) {
+                mostRepeated = shape.getKey();
+                count = shape.getValue()[0];
+            }
+        }
+        return mostRepeated == null ? null : Map.entry(mostRepeated, count);
+    }
+
+    /**
+     * Reduces a statement to its shape: literals become {@code ?}, lists of
+     * bind parameters become a single {@code ?} and whitespace is collapsed,
+     * so the statements of an N+1 pattern share one shape whatever their
+     * arguments.
+     *
+     * @param sql the statement
+     * @return the shape of the statement
+     */
+    static String shapeOf(String sql) {
+        StringBuilder shape = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                appendParameter(shape);
+            } else if (Character.isDigit(c) && !endsWithIdentifier(shape)) {
+                while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                appendParameter(shape);
+            } else if (c == '?') {
+                i++;
+                appendParameter(shape);
+            } else if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (shape.length() > 0) {
+                    shape.append(' ');
+                }
+            } else {
+                shape.append(c);
+                i++;
+            }
+        }
+        int end = shape.length();
+        while (end > 0 && shape.charAt(end - 1) == ' ') {
+            end--;
+        }
+        shape.setLength(end);
+        return shape.toString();
+    }
+
+    /**
+     * Appends a parameter, unless it continues a list of parameters, which is
+     * kept as the single parameter it started with.
+     */
+    private static void appendParameter(StringBuilder shape) {
+        int end = shape.length();
+        while (end > 0 && shape.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end >= 2 && shape.charAt(end - 1) == ',' && shape.charAt(end - 2) == '?') {
+            shape.setLength(end - 1);
+        } else {
+            shape.append('?');
+        }
+    }
+
+    private static boolean endsWithIdentifier(StringBuilder shape) {
+        if (shape.length() == 0) {
+            return false;
+        }
+        char last = shape.charAt(shape.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+    }
+}
@@ -0,0 +1,21 @@
+package gr.europeandynamics.web.technico.repositories;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Shows every statement Hibernate prepares to the {@link SqlRequestTracker}
+ * of the current request, leaving the statement unchanged. Registered through
+ * the {@code hibernate.session_factory.statement_inspector} property of the
+ * persistence unit.
+ */
+public class SqlStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        SqlRequestTracker tracker = SqlRequestTracker.current();
+        if (tracker != null) {
+            tracker.statement(sql);
+        }
+        return sql;
+    }
+}
@@ -1,7 +1,9 @@
 package gr.europeandynamics.web.technico.repositories;
 
 import gr.europeandynamics.web.technico.models.User;
+import gr.europeandynamics.web.technico.repositories.NaturalKeyCache.KeyType;
 import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
@@ -10,6 +12,8 @@ import java.util.List;
 import java.util.Optional;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.jpa.AvailableHints;
 
 @Slf4j
 @RequestScoped
@@ -19,6 +23,9 @@ public class UserRepositoryImpl implements Repository<User, Long> {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Inject
+    private NaturalKeyCache naturalKeyCache;
+
     /**
      * Saves a User entity to the database.
      *
@@ -31,6 +38,7 @@ public class UserRepositoryImpl implements Repository<User, Long> {
     public Optional<User> save(User user) {
         try {
             entityManager.persist(user);
+            invalidateKeys(user);
             return Optional.of(user);
         } catch (Exception e) {
             log.error(e.getMessage());
@@ -39,49 +47,77 @@ public class UserRepositoryImpl implements Repository<User, Long> {
     }
 
     /**
-     * Retrieves a User entity by its VAT number.
+     * Writes the editable fields of a User, including the hash of its
+     * password, over the stored ones. The hash must be computed beforehand,
+     * so that the transaction is not held open while hashing.
      *
-     * @param vat the VAT number of the User to retrieve
-     * @return an Optional containing the User if found, or an empty Optional if
-     * not
+     * @param user the User holding the ID and the new field values
+     * @return an Optional containing the updated User, or an empty Optional if
+     * it does not exist or an error occurs
      */
-    public Optional<User> getUserByVat(String vat) {
-
-        TypedQuery<User> query = entityManager.createQuery("FROM User WHERE vat = :vat", User.class);
-        query.setParameter("vat", vat);
-        return query.getResultStream().findFirst();
+    @Transactional
+    public Optional<User> update(User user) {
+        try {
+            User existingUser = entityManager.find(getEntityClass(), user.getId());
+            if (existingUser == null) {
+                return Optional.empty();
+            }
+            invalidateKeys(existingUser);
+            existingUser.setVat(user.getVat());
+            existingUser.setName(user.getName());
+            existingUser.setSurname(user.getSurname());
+            existingUser.setAddress(user.getAddress());
+            existingUser.setPhoneNumber(user.getPhoneNumber());
+            existingUser.setEmail(user.getEmail());
+            existingUser.setPasswordHash(user.getPasswordHash());
+            existingUser.setRole(user.getRole());
+            invalidateKeys(existingUser);
+            return Optional.of(existingUser);
+        } catch (Exception e) {
+            log.error(e.getMessage());
+            return Optional.empty();
+        }
     }
 
     /**
-     * Retrieves a User entity by its email address.
+     * Retrieves a User entity by its VAT number. A VAT number seen before is
+     * resolved to an ID through the natural key cache and loaded by ID;
+     * otherwise the user is loaded by its natural ID, which is served from the
+     * second-level cache when possible.
      *
-     * @param email the email address of the User to retrieve
+     * @param vat the VAT number of the User to retrieve
      * @return an Optional containing the User if found, or an empty Optional if
      * not
      */
-    public Optional<User> getUserByEmail(String email) {
-        TypedQuery<User> query = entityManager.createQuery("FROM User WHERE email = :email", User.class);
-        query.setParameter("email", email);
-        return query.getResultStream().findFirst();
+    public Optional<User> getUserByVat(String vat) {
+        return naturalKeyCache.get(KeyType.USER_VAT, vat)
+                .map(id -> entityManager.find(getEntityClass(), id))
+                .filter(user -> vat.equals(user.getVat()))
+                .or(() -> remember(KeyType.USER_VAT, vat, entityManager.unwrap(Session.class)
+                        .bySimpleNaturalId(getEntityClass())
+                        .loadOptional(vat)));
     }
 
     /**
-     * Retrieves a User entity by its email address and password. Only
-     * non-deleted users are considered.
+     * Retrieves a User entity by its email address. An email address seen
+     * before is resolved to an ID through the natural key cache and loaded by
+     * ID; otherwise the query result is kept in the query cache until the
+     * user table is written to.
      *
      * @param email the email address of the User to retrieve
-     * @param password the password of the User to retrieve
      * @return an Optional containing the User if found, or an empty Optional if
      * not
      */
-    public Optional<User> getUserByEmailAndPassword(String email, String password) {
-        TypedQuery<User> query = entityManager.createQuery(
-                "FROM User WHERE email = :email AND password = :password AND isDeleted = false",
-                User.class
-        );
-        query.setParameter("email", email);
-        query.setParameter("password", password);
-        return query.getResultStream().findFirst();
+    public Optional<User> getUserByEmail(String email) {
+        return naturalKeyCache.get(KeyType.USER_EMAIL, email)
+                .map(id -> entityManager.find(getEntityClass(), id))
+                .filter(user -> email.equals(user.getEmail()))
+                .or(() -> {
+                    TypedQuery<User> query = entityManager.createQuery("FROM User WHERE email = :email", User.class);
+                    query.setParameter("email", email);
+                    query.setHint(AvailableHints.HINT_CACHEABLE, true);
+                    return remember(KeyType.USER_EMAIL, email, query.getResultList().stream().findFirst());
+                });
     }
 
     /**
@@ -99,6 +135,7 @@ public class UserRepositoryImpl implements Repository<User, Long> {
             if (optionalUser.isPresent()) {
                 User user = optionalUser.get();
                 entityManager.remove(user);
+                invalidateKeys(user);
                 return true;
             }
             return false;
@@ -141,6 +178,26 @@ public class UserRepositoryImpl implements Repository<User, Long> {
         return query.getResultList();
     }
 
+    /**
+     * Retrieves a page of User entities ordered by ID, starting after the
+     * given ID. Uses a keyset predicate so the cost of a page does not grow
+     * with its position in the table.
+     *
+     * @param after the ID to continue after, or null for the first page
+     * @param limit the maximum number of Users to return
+     * @return a List of at most {@code limit} Users
+     */
+    @Override
+    public List<User> getPage(Long after, int limit) {
+        TypedQuery<User> query
+                = entityManager.createQuery("from " + getEntityClassName()
+                        + " where id > :after order by id",
+                        getEntityClass())
+                        .setParameter("after", after == null ? 0L : after)
+                        .setMaxResults(limit);
+        return query.getResultList();
+    }
+
     /**
      * Deletes a User entity by its unique ID.
      *
@@ -155,6 +212,7 @@ public class UserRepositoryImpl implements Repository<User, Long> {
 
             if (persistentInstance != null) {
                 entityManager.remove(persistentInstance);
+                invalidateKeys(persistentInstance);
                 return true;
             }
             return false;
@@ -164,6 +222,28 @@ public class UserRepositoryImpl implements Repository<User, Long> {
         }
     }
 
+    /**
+     * Stores the ID of a looked up user under the key it was looked up by, or
+     * drops the key if no user carries it.
+     */
+    private Optional<User> remember(KeyType type, String key, Optional<User> user) {
+        if (user.isPresent()) {
+            naturalKeyCache.put(type, key, user.get().getId());
+        } else {
+            naturalKeyCache.invalidate(type, key);
+        }
+        return user;
+    }
+
+    /**
+     * Drops the natural keys of a user that was written or deleted. Keys the
+     * user no longer carries are caught when they are next looked up.
+     */
+    private void invalidateKeys(User user) {
+        naturalKeyCache.invalidate(KeyType.USER_VAT, user.getVat());
+        naturalKeyCache.invalidate(KeyType.USER_EMAIL, user.getEmail());
+    }
+
     /**
      * Gets the entity class for User.
      *
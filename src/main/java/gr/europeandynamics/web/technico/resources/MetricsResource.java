@@ -0,0 +1,29 @@
+package gr.europeandynamics.web.technico.resources;
+
+import gr.europeandynamics.web.technico.security.RequestMetrics;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Response;
+
+@Path("/metrics")
+public class MetricsResource {
+
+    private static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Inject
+    private RequestMetrics requestMetrics;
+
+    /**
+     * Retrieves the request count, latency and response size of every route
+     * in the Prometheus text format, for a Prometheus server to scrape.
+     *
+     * @return a Response containing the metrics as text
+     */
+    @GET
+    @Produces(PROMETHEUS_TEXT)
+    public Response getMetrics() {
+        return Response.ok(requestMetrics.render()).build();
+    }
+}
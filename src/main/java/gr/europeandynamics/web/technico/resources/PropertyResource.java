@@ -1,18 +1,32 @@
 package gr.europeandynamics.web.technico.resources;
 
+import gr.europeandynamics.web.technico.dtos.CascadeSummary;
+import gr.europeandynamics.web.technico.dtos.EntityTags;
+import gr.europeandynamics.web.technico.dtos.ImportSummary;
+import gr.europeandynamics.web.technico.dtos.Page;
+import gr.europeandynamics.web.technico.dtos.PropertySummary;
+import gr.europeandynamics.web.technico.dtos.UpdateResult;
+import gr.europeandynamics.web.technico.exceptions.CustomException;
+import gr.europeandynamics.web.technico.importers.ImportFormat;
 import gr.europeandynamics.web.technico.models.Property;
 import gr.europeandynamics.web.technico.services.PropertyService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -49,22 +63,34 @@ public class PropertyResource {
     }
 
     /**
-     * Updates an existing property.
+     * Updates an existing property. With an If-Match header holding the
+     * entity tag of the property, the update only succeeds if no other update
+     * happened since the tag was read.
      *
      * @param id the ID of the property to update
+     * @param ifMatch the entity tag the property must still have, optional
      * @param property the Property object containing the updated details
-     * @return a Response indicating the outcome of the update operation
+     * @return a Response containing the updated property and its entity tag,
+     * or 412 Precondition Failed if the property has changed
      */
     @PUT
     @Path("/{id}")
-    public Response updateProperty(@PathParam("id") Long id, Property property) {
-        property.setId(id);
-        Optional<Property> updatedProperty = propertyService.updateProperty(property);
-        if (updatedProperty.isPresent()) {
-            return Response.ok(updatedProperty.get()).build();
-        } else {
-            return Response.status(Response.Status.NOT_FOUND).entity("Property not found").build();
+    public Response updateProperty(@PathParam("id") Long id, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+            Property property) {
+        Long version;
+        try {
+            version = EntityTags.version(ifMatch);
+        } catch (CustomException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED).entity("Property has changed").build();
         }
+        property.setId(id);
+        UpdateResult<Property> result = propertyService.updateProperty(property, version);
+        return switch (result.outcome()) {
+            case UPDATED -> Response.ok(result.entity()).tag(new EntityTag(EntityTags.of(result.entity()))).build();
+            case NOT_FOUND -> Response.status(Response.Status.NOT_FOUND).entity("Property not found").build();
+            case VERSION_CONFLICT -> Response.status(Response.Status.PRECONDITION_FAILED).entity("Property has changed").build();
+            case INVALID -> Response.status(Response.Status.BAD_REQUEST).entity("Property could not be updated").build();
+        };
     }
 
     /**
@@ -86,16 +112,17 @@ public class PropertyResource {
     }
 
     /**
-     * Retrieves properties associated with a specific VAT number.
+     * Retrieves the summaries of the properties associated with a specific
+     * VAT number.
      *
      * @param vat the VAT number for which to retrieve properties
-     * @return a Response containing a list of properties associated with the
-     * VAT
+     * @return a Response containing a list of the summaries of the properties
+     * associated with the VAT
      */
     @GET
     @Path("/byVat/{vat}")
     public Response getPropertiesByVat(@PathParam("vat") String vat) {
-        List<Property> properties = propertyService.findPropertyByVAT(vat);
+        List<PropertySummary> properties = propertyService.findPropertyByVAT(vat);
         if (!properties.isEmpty()) {
             return Response.ok(properties).build();
         } else {
@@ -104,67 +131,131 @@ public class PropertyResource {
     }
 
     /**
-     * Retrieves a property by its ID.
+     * Retrieves a property by its ID, along with its entity tag. A request
+     * whose If-None-Match header holds the current tag is answered with 304
+     * Not Modified after reading the version columns alone.
      *
      * @param id the ID of the property to retrieve
+     * @param ifNoneMatch the entity tags the client holds, optional
      * @return a Response containing the property if found, or a not found
      * message
      */
     @GET
     @Path("/{id}")
-    public Response getPropertyById(@PathParam("id") Long id) {
+    public Response getPropertyById(@PathParam("id") Long id,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> tag = propertyService.findPropertyEntityTag(id);
+            if (tag.isEmpty()) {
+                return Response.status(Response.Status.NOT_FOUND).entity("Property not found").build();
+            }
+            String match = EntityTags.findMatch(ifNoneMatch, tag.get());
+            if (match != null) {
+                return Response.notModified(new EntityTag(match)).build();
+            }
+        }
         Optional<Property> property = propertyService.findPropertyByID(id);
         if (property.isPresent()) {
-            return Response.ok(property.get()).build();
+            return Response.ok(property.get()).tag(new EntityTag(EntityTags.of(property.get()))).build();
         } else {
             return Response.status(Response.Status.NOT_FOUND).entity("Property not found").build();
         }
     }
 
     /**
-     * Retrieves all properties.
+     * Retrieves the summaries of all properties, one page at a time.
      *
-     * @return a Response containing a list of all properties
+     * @param after the cursor returned with the previous page, omitted for the
+     * first page
+     * @param limit the maximum number of properties per page
+     * @return a Response containing a page of property summaries and the
+     * cursor of the next page
      */
     @GET
     @Path("/staffMember/allProperties")
-    public Response getAllProperties() {
-        List<Property> properties = propertyService.findAllProperties();
-        return Response.ok(properties).build();
+    public Response getAllProperties(@QueryParam("after") String after, @QueryParam("limit") Integer limit) {
+        Optional<Page<PropertySummary>> properties = propertyService.findPropertiesPage(after, limit);
+        if (properties.isPresent()) {
+            return Response.ok(properties.get()).build();
+        } else {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid cursor").build();
+        }
     }
 
     /**
-     * Safely deletes a property by its ID.
+     * Safely deletes a property by its ID, along with its repairs.
      *
      * @param id the ID of the property to delete
-     * @return a Response indicating the outcome of the safe deletion operation
+     * @return a Response containing the number of properties and repairs
+     * marked as deleted
      */
     @DELETE
     @Path("/safe/{id}")
     public Response deletePropertySafely(@PathParam("id") Long id) {
-        boolean isDeleted = propertyService.deletePropertyByIdSafely(id);
-        if (isDeleted) {
-            return Response.noContent().build();
+        Optional<CascadeSummary> summary = propertyService.deletePropertyByIdSafely(id);
+        if (summary.isPresent()) {
+            return Response.ok(summary.get()).build();
+        } else {
+            return Response.status(Response.Status.NOT_FOUND).entity("Property not found").build();
+        }
+    }
+
+    /**
+     * Restores a safely deleted property by its ID, along with its repairs.
+     *
+     * @param id the ID of the property to restore
+     * @return a Response containing the number of properties and repairs
+     * restored
+     */
+    @POST
+    @Path("/staffMember/restore/{id}")
+    public Response restoreProperty(@PathParam("id") Long id) {
+        Optional<CascadeSummary> summary = propertyService.restorePropertyById(id);
+        if (summary.isPresent()) {
+            return Response.ok(summary.get()).build();
         } else {
             return Response.status(Response.Status.NOT_FOUND).entity("Property not found").build();
         }
     }
 
     /**
-     * Permanently deletes a property by its ID.
+     * Permanently deletes a property by its ID, along with its repairs.
      *
      * @param id the ID of the property to delete
-     * @return a Response indicating the outcome of the permanent deletion
-     * operation
+     * @return a Response containing the number of properties and repairs
+     * deleted
      */
     @DELETE
     @Path("/staffMember/permanent/{id}")
     public Response deletePropertyPermanently(@PathParam("id") Long id) {
-        boolean isDeleted = propertyService.deletePropertyByIdPermenantly(id);
-        if (isDeleted) {
-            return Response.noContent().build();
+        Optional<CascadeSummary> summary = propertyService.deletePropertyByIdPermenantly(id);
+        if (summary.isPresent()) {
+            return Response.ok(summary.get()).build();
         } else {
-            return Response.status(Response.Status.NOT_FOUND).entity("Property not found").build();
+            return Response.status(Response.Status.NOT_FOUND).entity("Property not found or could not be deleted").build();
+        }
+    }
+
+    /**
+     * Imports properties from a CSV body in the layout of the properties CSV file, or
+     * from an NDJSON body with one JSON object per line. The body is streamed
+     * and stored in chunks, so there is no limit on its size.
+     *
+     * @param headers the headers of the request, whose content type gives the
+     * format of the body
+     * @param body the rows to import
+     * @return a Response containing the number of accepted and rejected rows
+     * and the reasons the first rows were rejected
+     */
+    @POST
+    @Path("/staffMember/import")
+    @Consumes({ImportFormat.TEXT_CSV, ImportFormat.APPLICATION_NDJSON})
+    public Response importProperties(@Context HttpHeaders headers, InputStream body) {
+        Optional<ImportSummary> summary = propertyService.importProperties(body, ImportFormat.of(headers.getMediaType()));
+        if (summary.isPresent()) {
+            return Response.ok(summary.get()).build();
+        } else {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Import failed").build();
         }
     }
 }
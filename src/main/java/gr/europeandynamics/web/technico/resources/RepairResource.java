@@ -1,21 +1,53 @@
 package gr.europeandynamics.web.technico.resources;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.europeandynamics.web.technico.dtos.EntityTags;
+import gr.europeandynamics.web.technico.dtos.ImportSummary;
+import gr.europeandynamics.web.technico.dtos.Page;
+import gr.europeandynamics.web.technico.dtos.RepairSummary;
+import gr.europeandynamics.web.technico.dtos.RepairTransition;
+import gr.europeandynamics.web.technico.dtos.TransitionSummary;
+import gr.europeandynamics.web.technico.dtos.UpdateResult;
+import gr.europeandynamics.web.technico.exceptions.CustomException;
+import gr.europeandynamics.web.technico.importers.ImportFormat;
 import gr.europeandynamics.web.technico.models.Repair;
+import gr.europeandynamics.web.technico.models.RepairStatus;
+import gr.europeandynamics.web.technico.models.RepairType;
+import gr.europeandynamics.web.technico.repositories.RepairQuery;
 import gr.europeandynamics.web.technico.services.RepairService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.ext.Providers;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Path("/repairs")
 @Produces(MediaType.APPLICATION_JSON)
@@ -25,6 +57,9 @@ public class RepairResource {
     @Inject
     private RepairService repairService;
 
+    @Context
+    private Providers providers;
+
     /**
      * Creates a new repair.
      *
@@ -43,49 +78,155 @@ public class RepairResource {
     }
 
     /**
-     * Updates an existing repair.
+     * Updates an existing repair. With an If-Match header holding the entity
+     * tag of the repair, the update only succeeds if no other update happened
+     * since the tag was read.
      *
      * @param id the ID of the repair to update
+     * @param ifMatch the entity tag the repair must still have, optional
      * @param repair the Repair object containing the updated details
-     * @return a Response indicating the outcome of the update operation
+     * @return a Response containing the updated repair and its entity tag, or
+     * 412 Precondition Failed if the repair has changed
      */
     @PUT
     @Path("/{id}")
-    public Response updateRepair(@PathParam("id") Long id, Repair repair) {
-        Optional<Repair> existingRepair = repairService.getRepairById(id);
-        if (existingRepair.isPresent()) {
-            repair.setId(id);
-            Optional<Repair> updatedRepair = repairService.updateRepair(repair);
-            return Response.ok(updatedRepair.get()).build();
-        } else {
-            return Response.status(Response.Status.NOT_FOUND).entity("Repair not found").build();
+    public Response updateRepair(@PathParam("id") Long id, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+            Repair repair) {
+        Long version;
+        try {
+            version = EntityTags.version(ifMatch);
+        } catch (CustomException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED).entity("Repair has changed").build();
         }
+        repair.setId(id);
+        UpdateResult<Repair> result = repairService.updateRepair(repair, version);
+        return switch (result.outcome()) {
+            case UPDATED -> Response.ok(result.entity()).tag(new EntityTag(EntityTags.of(result.entity()))).build();
+            case NOT_FOUND -> Response.status(Response.Status.NOT_FOUND).entity("Repair not found").build();
+            case VERSION_CONFLICT -> Response.status(Response.Status.PRECONDITION_FAILED).entity("Repair has changed").build();
+            case INVALID -> Response.status(Response.Status.BAD_REQUEST).entity("Repair could not be updated").build();
+        };
     }
 
     /**
-     * Retrieves all repairs.
+     * Retrieves the summaries of all repairs, one page at a time.
      *
-     * @return a Response containing a list of all repairs
+     * @param after the cursor returned with the previous page, omitted for the
+     * first page
+     * @param limit the maximum number of repairs per page
+     * @param stream if true, ignores paging and streams every repair as one
+     * JSON array
+     * @return a Response containing a page of repair summaries and the cursor
+     * of the next page
      */
     @GET
     @Path("staffMember/allRepairs")
-    public Response getAllRepairs() {
-        List<Repair> repairs = repairService.getAllRepairs();
-        return Response.ok(repairs).build();
+    public Response getAllRepairs(@QueryParam("after") String after, @QueryParam("limit") Integer limit,
+            @QueryParam("stream") boolean stream) {
+        if (stream) {
+            return Response.ok(streamJsonArray(repairService::streamAllRepairs)).build();
+        }
+        Optional<Page<RepairSummary>> repairs = repairService.getRepairsPage(after, limit);
+        if (repairs.isPresent()) {
+            return Response.ok(repairs.get()).build();
+        } else {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid cursor").build();
+        }
     }
 
     /**
-     * Retrieves a repair by its ID.
+     * Searches repairs by any combination of criteria, one page at a time. All
+     * criteria are optional and are combined into a single query.
+     *
+     * @param statuses the repair statuses to include
+     * @param types the repair types to include
+     * @param accepted the acceptance status to match
+     * @param from the first submission date to include, as yyyy-MM-dd
+     * @param to the last submission date to include, as yyyy-MM-dd
+     * @param ownerVat the VAT number of the property owner
+     * @param ownerId the ID of the property owner
+     * @param propertyId the ID of the property
+     * @param minCost the minimum proposed cost
+     * @param maxCost the maximum proposed cost
+     * @param sort the field to sort by
+     * @param descending whether to sort in descending order
+     * @param after the cursor returned with the previous page, omitted for the
+     * first page
+     * @param limit the maximum number of repairs per page
+     * @return a Response containing a page of the summaries of the matching
+     * repairs and the cursor of the next page
+     */
+    @GET
+    @Path("staffMember/search")
+    public Response searchRepairs(
+            @QueryParam("status") List<RepairStatus> statuses,
+            @QueryParam("type") List<RepairType> types,
+            @QueryParam("accepted") Boolean accepted,
+            @QueryParam("from") String from,
+            @QueryParam("to") String to,
+            @QueryParam("ownerVat") String ownerVat,
+            @QueryParam("ownerId") Long ownerId,
+            @QueryParam("propertyId") Long propertyId,
+            @QueryParam("minCost") BigDecimal minCost,
+            @QueryParam("maxCost") BigDecimal maxCost,
+            @QueryParam("sort") @DefaultValue("ID") RepairQuery.SortField sort,
+            @QueryParam("desc") boolean descending,
+            @QueryParam("after") String after,
+            @QueryParam("limit") Integer limit) {
+        RepairQuery repairQuery;
+        try {
+            repairQuery = RepairQuery.builder()
+                    .statuses(statuses)
+                    .types(types)
+                    .accepted(accepted)
+                    .submittedFrom(from == null ? null : LocalDate.parse(from, DateTimeFormatter.ISO_DATE).atStartOfDay())
+                    .submittedTo(to == null ? null : LocalDate.parse(to, DateTimeFormatter.ISO_DATE).atTime(23, 59, 59))
+                    .ownerVat(ownerVat)
+                    .ownerId(ownerId)
+                    .propertyId(propertyId)
+                    .minCost(minCost)
+                    .maxCost(maxCost)
+                    .sort(sort)
+                    .descending(descending)
+                    .build();
+        } catch (DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid date").build();
+        }
+        Optional<Page<RepairSummary>> repairs = repairService.searchRepairs(repairQuery, after, limit);
+        if (repairs.isPresent()) {
+            return Response.ok(repairs.get()).build();
+        } else {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid cursor").build();
+        }
+    }
+
+    /**
+     * Retrieves a repair by its ID, along with its entity tag. A request
+     * whose If-None-Match header holds the current tag is answered with 304
+     * Not Modified after reading the version columns alone, so the repair is
+     * neither loaded nor serialized.
      *
      * @param id the ID of the repair to retrieve
+     * @param ifNoneMatch the entity tags the client holds, optional
      * @return a Response containing the repair if found, or a not found message
      */
     @GET
     @Path("/{id}")
-    public Response getRepairById(@PathParam("id") Long id) {
+    public Response getRepairById(@PathParam("id") Long id,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> tag = repairService.getRepairEntityTag(id);
+            if (tag.isEmpty()) {
+                return Response.status(Response.Status.NOT_FOUND).entity("Repair not found").build();
+            }
+            String match = EntityTags.findMatch(ifNoneMatch, tag.get());
+            if (match != null) {
+                return Response.notModified(new EntityTag(match)).build();
+            }
+        }
         Optional<Repair> repair = repairService.getRepairById(id);
         if (repair.isPresent()) {
-            return Response.ok(repair.get()).build();
+            return Response.ok(repair.get()).tag(new EntityTag(EntityTags.of(repair.get()))).build();
         } else {
             return Response.status(Response.Status.NOT_FOUND).entity("Repair not found").build();
         }
@@ -126,71 +267,172 @@ public class RepairResource {
     }
 
     /**
-     * Retrieves all pending repairs.
+     * Moves a batch of repairs to new statuses. Each transition only applies
+     * if it is allowed and the repair still has the expected status; the
+     * whole batch takes a few statements whatever its size.
+     *
+     * @param transitions the transitions, each with the repair ID, the
+     * expected and new statuses and optionally the acceptance status
+     * @return a Response containing the outcome of each transition
+     */
+    @POST
+    @Path("staffMember/transitions")
+    public Response transitionRepairs(List<RepairTransition> transitions) {
+        Optional<TransitionSummary> summary = repairService.transitionRepairs(transitions);
+        if (summary.isPresent()) {
+            return Response.ok(summary.get()).build();
+        } else {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Expected between 1 and " + RepairTransition.MAX_BATCH + " transitions").build();
+        }
+    }
+
+    /**
+     * Retrieves the summaries of all pending repairs.
      *
-     * @return a Response containing a list of all pending repairs
+     * @return a Response containing a list of the summaries of all pending
+     * repairs
      */
     @GET
     @Path("staffMember/pendingRepairs")
     public Response getPendingRepairs() {
-        List<Repair> pendingRepairs = repairService.getPendingRepairs();
+        List<RepairSummary> pendingRepairs = repairService.getPendingRepairs();
         return Response.ok(pendingRepairs).build();
     }
 
     /**
-     * Retrieves repairs by user ID.
+     * Retrieves the summaries of the repairs of a user.
      *
      * @param userId the ID of the user whose repairs to retrieve
-     * @return a Response containing a list of repairs associated with the user
+     * @param stream if true, streams the repairs instead of building the whole
+     * list in memory
+     * @return a Response containing a list of the summaries of the repairs
+     * associated with the user
      */
     @GET
     @Path("byUser/{userId}")
-    public Response getRepairsByUserId(@PathParam("userId") Long userId) {
-        List<Repair> repairs = repairService.getRepairsByUserId(userId);
+    public Response getRepairsByUserId(@PathParam("userId") Long userId, @QueryParam("stream") boolean stream) {
+        if (stream) {
+            return Response.ok(streamJsonArray(consumer -> repairService.streamRepairsByUserId(userId, consumer))).build();
+        }
+        List<RepairSummary> repairs = repairService.getRepairsByUserId(userId);
         return Response.ok(repairs).build();
     }
 
     /**
-     * Retrieves all repairs in progress today.
+     * Retrieves the summaries of all repairs in progress today.
      *
-     * @return a Response containing a list of repairs in progress today
+     * @return a Response containing a list of the summaries of the repairs in
+     * progress today
      */
     @GET
     @Path("staffMember/today/inprogress")
     public Response getInprogressRepairsToday() {
-        List<Repair> repairs = repairService.getInprogressRepairsToday();
+        List<RepairSummary> repairs = repairService.getInprogressRepairsToday();
         return Response.ok(repairs).build();
     }
 
     /**
-     * Retrieves repairs by date.
+     * Retrieves the summaries of the repairs submitted on a date.
      *
      * @param date the date for which to retrieve repairs
      * @param userId optional user ID to filter repairs
-     * @return a Response containing a list of repairs for the specified date
+     * @return a Response containing a list of the summaries of the repairs for
+     * the specified date
      */
     @GET
     @Path("/byDate/{date}")
     public Response getRepairsByDate(@PathParam("date") String date, @QueryParam("userId") Long userId) {
-        List<Repair> repairs = repairService.getRepairsByDate(date, userId);
+        List<RepairSummary> repairs = repairService.getRepairsByDate(date, userId);
         return Response.ok(repairs).build();
     }
 
     /**
-     * Retrieves repairs within a specified date range.
+     * Retrieves the summaries of the repairs within a specified date range.
      *
      * @param startDateStr the start date of the range
      * @param endDateStr the end date of the range
      * @param userId optional user ID to filter repairs
-     * @return a Response containing a list of repairs within the specified date range
+     * @param stream if true, streams the repairs instead of building the whole
+     * list in memory
+     * @return a Response containing a list of the summaries of the repairs
+     * within the specified date range
      */
     @GET
     @Path("/byRange/{startDate}/{endDate}")
     public Response getRepairsByRangeOfDates(
             @PathParam("startDate") String startDateStr,
             @PathParam("endDate") String endDateStr,
-            @QueryParam("userId") Long userId) {
-        List<Repair> repairs = repairService.getRepairsByRangeOfDates(startDateStr, endDateStr, userId);
+            @QueryParam("userId") Long userId,
+            @QueryParam("stream") boolean stream) {
+        if (stream) {
+            return Response.ok(streamJsonArray(consumer -> repairService.streamRepairsByRangeOfDates(startDateStr, endDateStr, userId, consumer))).build();
+        }
+        List<RepairSummary> repairs = repairService.getRepairsByRangeOfDates(startDateStr, endDateStr, userId);
         return Response.ok(repairs).build();
     }
+
+    /**
+     * Creates a response body that writes the repairs of a stream as a JSON
+     * array while they are read from the database, so nothing but the
+     * current fetch is ever held in memory.
+     *
+     * @param source runs the consumer on a stream of repairs
+     * @return the streaming response body
+     */
+    private StreamingOutput streamJsonArray(Consumer<Consumer<Stream<RepairSummary>>> source) {
+        ObjectMapper mapper = providers.getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE)
+                .getContext(RepairSummary.class);
+        return output -> {
+            try {
+                source.accept(repairs -> writeJsonArray(mapper, repairs, output));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    /**
+     * Writes the repairs of a stream to the output as a JSON array.
+     *
+     * @param mapper the mapper used to serialize each repair
+     * @param repairs the repairs to write
+     * @param output the output to write to
+     */
+    private void writeJsonArray(ObjectMapper mapper, Stream<RepairSummary> repairs, OutputStream output) {
+        try (JsonGenerator generator = mapper.createGenerator(output)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.writeStartArray();
+            Iterator<RepairSummary> iterator = repairs.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Imports repairs from a CSV body in the layout of the repairs CSV file, or
+     * from an NDJSON body with one JSON object per line. The body is streamed
+     * and stored in chunks, so there is no limit on its size.
+     *
+     * @param headers the headers of the request, whose content type gives the
+     * format of the body
+     * @param body the rows to import
+     * @return a Response containing the number of accepted and rejected rows
+     * and the reasons the first rows were rejected
+     */
+    @POST
+    @Path("staffMember/import")
+    @Consumes({ImportFormat.TEXT_CSV, ImportFormat.APPLICATION_NDJSON})
+    public Response importRepairs(@Context HttpHeaders headers, InputStream body) {
+        Optional<ImportSummary> summary = repairService.importRepairs(body, ImportFormat.of(headers.getMediaType()));
+        if (summary.isPresent()) {
+            return Response.ok(summary.get()).build();
+        } else {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Import failed").build();
+        }
+    }
 }
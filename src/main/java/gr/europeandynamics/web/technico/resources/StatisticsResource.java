@@ -0,0 +1,49 @@
+package gr.europeandynamics.web.technico.resources;
+
+import gr.europeandynamics.web.technico.dtos.CacheRegionStats;
+import gr.europeandynamics.web.technico.dtos.SqlStats;
+import gr.europeandynamics.web.technico.services.CacheStatisticsService;
+import gr.europeandynamics.web.technico.services.QueryStatisticsService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.util.List;
+
+@Path("/statistics")
+@Produces(MediaType.APPLICATION_JSON)
+public class StatisticsResource {
+
+    @Inject
+    private CacheStatisticsService cacheStatisticsService;
+
+    @Inject
+    private QueryStatisticsService queryStatisticsService;
+
+    /**
+     * Retrieves the hit and miss counts of every second-level cache region.
+     *
+     * @return a Response containing the statistics of each cache region
+     */
+    @GET
+    @Path("/staffMember/cache")
+    public Response getCacheStatistics() {
+        List<CacheRegionStats> regions = cacheStatisticsService.getRegionStatistics();
+        return Response.ok(regions).build();
+    }
+
+    /**
+     * Retrieves the statement, entity fetch and query execution counts since
+     * the application started, with the execution times of each query.
+     *
+     * @return a Response containing the SQL statistics
+     */
+    @GET
+    @Path("/staffMember/queries")
+    public Response getQueryStatistics() {
+        SqlStats statistics = queryStatisticsService.getQueryStatistics();
+        return Response.ok(statistics).build();
+    }
+}
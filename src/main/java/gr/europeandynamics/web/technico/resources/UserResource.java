@@ -1,6 +1,13 @@
 package gr.europeandynamics.web.technico.resources;
 
+import gr.europeandynamics.web.technico.dtos.AuthenticatedUser;
+import gr.europeandynamics.web.technico.dtos.CascadeSummary;
+import gr.europeandynamics.web.technico.dtos.ImportSummary;
+import gr.europeandynamics.web.technico.dtos.LoginToken;
+import gr.europeandynamics.web.technico.dtos.Page;
+import gr.europeandynamics.web.technico.importers.ImportFormat;
 import gr.europeandynamics.web.technico.models.User;
+import gr.europeandynamics.web.technico.security.TokenService;
 import gr.europeandynamics.web.technico.services.UserServiceImpl;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
@@ -12,19 +19,32 @@ import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import java.util.List;
+import java.io.InputStream;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 @Path("users")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class UserResource {
 
+    private static final int LOGIN_RETRY_AFTER_SECONDS = 1;
+
     @Inject
     private UserServiceImpl userService;
 
+    @Inject
+    private TokenService tokenService;
+
     /**
      * Creates a new user.
      *
@@ -53,15 +73,23 @@ public class UserResource {
     }
 
     /**
-     * Retrieves all users.
+     * Retrieves all users, one page at a time.
      *
-     * @return a Response containing a list of all users
+     * @param after the cursor returned with the previous page, omitted for the
+     * first page
+     * @param limit the maximum number of users per page
+     * @return a Response containing a page of users and the cursor of the next
+     * page
      */
     @GET
     @Path("/staffMember/allUsers")
-    public Response getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        return Response.ok(users).build();
+    public Response getAllUsers(@QueryParam("after") String after, @QueryParam("limit") Integer limit) {
+        Optional<Page<User>> users = userService.getUsersPage(after, limit);
+        if (users.isPresent()) {
+            return Response.ok(users.get()).build();
+        } else {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid cursor").build();
+        }
     }
 
     /**
@@ -99,24 +127,43 @@ public class UserResource {
     }
 
     /**
-     * Authenticates a user based on email and password.
+     * Authenticates a user based on email and password. The request is
+     * suspended while the password is verified, and answered with 503 if too
+     * many logins are already waiting for verification.
      *
      * @param email the user's email
      * @param password the user's password
-     * @return Response indicating the outcome of the authentication
+     * @param response resumed with the authenticated user, or with the reason
+     * the authentication failed
      */
     @POST
     @Path("/fakeLogin")
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
-    public Response getUserByEmailAndPassword(@FormParam("email") String email,
-            @FormParam("password") String password) {
-        Optional<User> user = userService.getUserByEmailAndPassword(email, password);
-        if (user.isPresent()) {
-            return Response.ok(user.get()).build();
-        } else {
-            return Response.status(Response.Status.UNAUTHORIZED)
-                    .entity("Invalid email or password").build();
-        }
+    public void getUserByEmailAndPassword(@FormParam("email") String email,
+            @FormParam("password") String password, @Suspended AsyncResponse response) {
+        authenticate(email, password, response, user -> user);
+    }
+
+    /**
+     * Logs a user in with email and password and issues a signed session
+     * token carrying the ID, VAT number and role of the user. The request is
+     * suspended while the password is verified, and answered with 503 if too
+     * many logins are already waiting for verification.
+     *
+     * @param email the user's email
+     * @param password the user's password
+     * @param response resumed with the session token, or with the reason the
+     * login failed
+     */
+    @POST
+    @Path("/login")
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    public void login(@FormParam("email") String email,
+            @FormParam("password") String password, @Suspended AsyncResponse response) {
+        authenticate(email, password, response, user -> {
+            TokenService.IssuedToken issued = tokenService.issue(user);
+            return new LoginToken(issued.token(), issued.claims().expiresAt(), user);
+        });
     }
 
     /**
@@ -143,17 +190,19 @@ public class UserResource {
     }
 
     /**
-     * Deletes a user safely by their VAT number.
+     * Deletes a user safely by their VAT number, along with their properties
+     * and the repairs of those properties.
      *
      * @param vat the VAT number of the user to delete
-     * @return a Response indicating the outcome of the safe deletion operation
+     * @return a Response containing the number of users, properties and
+     * repairs marked as deleted
      */
     @DELETE
     @Path("/safe/{vat}")
     public Response deleteUserSafely(@PathParam("vat") String vat) {
-        boolean isDeletedSafely = userService.deleteUserSafely(vat);
-        if (isDeletedSafely) {
-            return Response.noContent().build();
+        Optional<CascadeSummary> summary = userService.deleteUserSafely(vat);
+        if (summary.isPresent()) {
+            return Response.ok(summary.get()).build();
         } else {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity("User not found or could not be safely deleted").build();
@@ -161,21 +210,96 @@ public class UserResource {
     }
 
     /**
-     * Permanently deletes a user by their VAT number.
+     * Restores a safely deleted user by their VAT number, along with their
+     * properties and the repairs of those properties.
+     *
+     * @param vat the VAT number of the user to restore
+     * @return a Response containing the number of users, properties and
+     * repairs restored
+     */
+    @POST
+    @Path("staffMember/restore/{vat}")
+    public Response restoreUser(@PathParam("vat") String vat) {
+        Optional<CascadeSummary> summary = userService.restoreUser(vat);
+        if (summary.isPresent()) {
+            return Response.ok(summary.get()).build();
+        } else {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("User not found or could not be restored").build();
+        }
+    }
+
+    /**
+     * Permanently deletes a user by their VAT number, along with their
+     * properties and the repairs of those properties.
      *
      * @param vat the VAT number of the user to delete
-     * @return a Response indicating the outcome of the permanent deletion
-     * operation
+     * @return a Response containing the number of users, properties and
+     * repairs deleted
      */
     @DELETE
     @Path("staffMember/permanent/{vat}")
     public Response deleteUserPermanently(@PathParam("vat") String vat) {
-        boolean isDeleted = userService.deleteUserPermanently(vat);
-        if (isDeleted) {
-            return Response.noContent().build();
+        Optional<CascadeSummary> summary = userService.deleteUserPermanently(vat);
+        if (summary.isPresent()) {
+            return Response.ok(summary.get()).build();
         } else {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity("User not found or could not be deleted").build();
         }
     }
+
+    /**
+     * Imports users from a CSV body in the layout of the users CSV file, or
+     * from an NDJSON body with one JSON object per line. The body is streamed
+     * and stored in chunks, so there is no limit on its size. A password may
+     * be given as a hash in the encoding of
+     * {@link gr.europeandynamics.web.technico.security.PasswordHasher}, which
+     * is stored as is and spares the cost of hashing it during the import. A
+     * hash with other parameters than new hashes rejects its row.
+     *
+     * @param headers the headers of the request, whose content type gives the
+     * format of the body
+     * @param body the rows to import
+     * @return a Response containing the number of accepted and rejected rows
+     * and the reasons the first rows were rejected
+     */
+    @POST
+    @Path("staffMember/import")
+    @Consumes({ImportFormat.TEXT_CSV, ImportFormat.APPLICATION_NDJSON})
+    public Response importUsers(@Context HttpHeaders headers, InputStream body) {
+        Optional<ImportSummary> summary = userService.importUsers(body, ImportFormat.of(headers.getMediaType()));
+        if (summary.isPresent()) {
+            return Response.ok(summary.get()).build();
+        } else {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Import failed").build();
+        }
+    }
+
+    /**
+     * Verifies a login and resumes the suspended request with the entity
+     * made for the authenticated user.
+     */
+    private void authenticate(String email, String password, AsyncResponse response,
+            Function<AuthenticatedUser, Object> entity) {
+        userService.authenticate(email, password).whenComplete((user, failure) -> {
+            if (failure != null) {
+                if (failure instanceof CompletionException && failure.getCause() != null) {
+                    failure = failure.getCause();
+                }
+                if (failure instanceof RejectedExecutionException) {
+                    response.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, LOGIN_RETRY_AFTER_SECONDS)
+                            .entity("Too many logins, try again later").build());
+                } else {
+                    response.resume(failure);
+                }
+            } else if (user.isPresent()) {
+                response.resume(Response.ok(entity.apply(user.get())).build());
+            } else {
+                response.resume(Response.status(Response.Status.UNAUTHORIZED)
+                        .entity("Invalid email or password").build());
+            }
+        });
+    }
 }
@@ -0,0 +1,218 @@
+package gr.europeandynamics.web.technico.security;
+
+import gr.europeandynamics.web.technico.dtos.EntityTags;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedMap;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import lombok.Getter;
+
+/**
+ * Compresses a response body with one {@link ContentCoding}, once the body
+ * has grown past a threshold. Until then the body is held back, and a body
+ * that ends below the threshold is written as is, without a
+ * Content-Encoding. Once the threshold is passed the Content-Encoding header
+ * is set, and a strong ETag is suffixed with the coding through
+ * {@link EntityTags#withCoding}, before the first byte reaches the response.
+ *
+ * A stream owns its deflater and buffers and is meant to be pooled by
+ * {@link CompressionInterceptor}: {@link #reset} prepares it for a response,
+ * {@link #finish} completes the response and {@link #release} returns the
+ * deflater to its initial state. A flush while compressing emits everything
+ * written so far with a sync flush, so streamed bodies reach the client as
+ * they are produced. A flush while still below the threshold is deferred.
+ */
+final class CompressingOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final byte[] GZIP_HEADER = {
+        0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    private enum State {
+        BUFFERING,
+        COMPRESSING,
+        FINISHED
+    }
+
+    @Getter
+    private final ContentCoding coding;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] pending;
+    private final byte[] deflated = new byte[BUFFER_SIZE];
+    private final byte[] single = new byte[1];
+
+    private OutputStream out;
+    private MultivaluedMap<String, Object> headers;
+    private State state = State.FINISHED;
+    private int pendingLength;
+
+    @Getter
+    private boolean compressed;
+    @Getter
+    private long inputBytes;
+    @Getter
+    private long outputBytes;
+    @Getter
+    private long compressionNanos;
+
+    CompressingOutputStream(ContentCoding coding, int level, int threshold) {
+        this.coding = coding;
+        this.deflater = new Deflater(level, coding.isRaw());
+        this.pending = new byte[threshold];
+    }
+
+    void reset(OutputStream out, MultivaluedMap<String, Object> headers) {
+        this.out = out;
+        this.headers = headers;
+        this.state = State.BUFFERING;
+        this.pendingLength = 0;
+        this.compressed = false;
+        this.inputBytes = 0;
+        this.outputBytes = 0;
+        this.compressionNanos = 0;
+        crc.reset();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        switch (state) {
+            case BUFFERING -> {
+                if (pendingLength + len <= pending.length) {
+                    System.arraycopy(b, off, pending, pendingLength, len);
+                    pendingLength += len;
+                    return;
+                }
+                start();
+                deflate(pending, 0, pendingLength);
+                pendingLength = 0;
+                deflate(b, off, len);
+            }
+            case COMPRESSING ->
+                deflate(b, off, len);
+            case FINISHED ->
+                throw new IOException("The response body is already complete");
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (state == State.COMPRESSING) {
+            long start = System.nanoTime();
+            while (drain(Deflater.SYNC_FLUSH) == deflated.length) {
+                // the buffer was filled, so more output may be pending
+            }
+            compressionNanos += System.nanoTime() - start;
+            out.flush();
+        }
+    }
+
+    /**
+     * Completes the body: writes a body below the threshold as is, or ends
+     * the compressed stream. Calling it again has no effect.
+     */
+    void finish() throws IOException {
+        if (state == State.BUFFERING) {
+            state = State.FINISHED;
+            if (pendingLength > 0) {
+                out.write(pending, 0, pendingLength);
+            }
+        } else if (state == State.COMPRESSING) {
+            state = State.FINISHED;
+            long start = System.nanoTime();
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain(Deflater.NO_FLUSH);
+            }
+            if (coding == ContentCoding.GZIP) {
+                writeIntLE(deflated, 0, (int) crc.getValue());
+                writeIntLE(deflated, 4, (int) deflater.getBytesRead());
+                out.write(deflated, 0, GZIP_TRAILER_SIZE);
+                outputBytes += GZIP_TRAILER_SIZE;
+            }
+            compressionNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+
+    /**
+     * Returns the stream to its initial state, so it can serve another
+     * response.
+     */
+    void release() {
+        state = State.FINISHED;
+        deflater.reset();
+        out = null;
+        headers = null;
+    }
+
+    /**
+     * Releases the native memory of the deflater. The stream cannot be used
+     * afterwards.
+     */
+    void end() {
+        deflater.end();
+    }
+
+    private void start() throws IOException {
+        state = State.COMPRESSING;
+        compressed = true;
+        headers.putSingle(HttpHeaders.CONTENT_ENCODING, coding.getToken());
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        if (headers.getFirst(HttpHeaders.ETAG) instanceof EntityTag tag && !tag.isWeak()) {
+            headers.putSingle(HttpHeaders.ETAG, new EntityTag(EntityTags.withCoding(tag.getValue(), coding.getToken())));
+        }
+        if (coding == ContentCoding.GZIP) {
+            out.write(GZIP_HEADER);
+            outputBytes += GZIP_HEADER.length;
+        }
+    }
+
+    private void deflate(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (coding == ContentCoding.GZIP) {
+            crc.update(b, off, len);
+        }
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            drain(Deflater.NO_FLUSH);
+        }
+        inputBytes += len;
+        compressionNanos += System.nanoTime() - start;
+    }
+
+    private int drain(int flush) throws IOException {
+        int length = deflater.deflate(deflated, 0, deflated.length, flush);
+        if (length > 0) {
+            out.write(deflated, 0, length);
+            outputBytes += length;
+        }
+        return length;
+    }
+
+    private static void writeIntLE(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >> 8);
+        buffer[offset + 2] = (byte) (value >> 16);
+        buffer[offset + 3] = (byte) (value >> 24);
+    }
+}
@@ -0,0 +1,135 @@
+package gr.europeandynamics.web.technico.security;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses text and JSON response bodies with gzip or deflate, as
+ * negotiated from the Accept-Encoding header of the request. Bodies that stay
+ * below {@value #THRESHOLD_PROPERTY} bytes, 1024 by default, are sent as is,
+ * since compressing them saves less than it costs. Streamed bodies are
+ * compressed as they are written.
+ *
+ * Each coding has a pool of {@link CompressingOutputStream}s, each with its
+ * own deflater and buffers, so a response allocates no deflater and no native
+ * memory. A stream is taken from the pool for the duration of one response
+ * and returned afterwards. When the pool is empty a new stream is created,
+ * and when it is full a returned stream is discarded.
+ *
+ * The interceptor runs inside the request metrics, which therefore count the
+ * compressed size of a response. The uncompressed size, the compression
+ * ratio and the time spent compressing are counted by
+ * {@link CompressionMetrics}.
+ */
+@Provider
+@Priority(Priorities.ENTITY_CODER)
+public class CompressionInterceptor implements WriterInterceptor {
+
+    public static final String THRESHOLD_PROPERTY = "technico.compression.threshold";
+    public static final String LEVEL_PROPERTY = "technico.compression.level";
+
+    private static final int THRESHOLD = Integer.getInteger(THRESHOLD_PROPERTY, 1024);
+    private static final int LEVEL = Integer.getInteger(LEVEL_PROPERTY, Deflater.DEFAULT_COMPRESSION);
+    private static final int POOL_SIZE = 64;
+
+    private final Map<ContentCoding, BlockingQueue<CompressingOutputStream>> pools
+            = new EnumMap<>(ContentCoding.class);
+
+    @Inject
+    private RequestMetrics requestMetrics;
+
+    @Context
+    private HttpHeaders requestHeaders;
+
+    public CompressionInterceptor() {
+        for (ContentCoding coding : ContentCoding.values()) {
+            pools.put(coding, new ArrayBlockingQueue<>(POOL_SIZE));
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+        if (!isCompressible(context.getMediaType()) || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            context.proceed();
+            return;
+        }
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        ContentCoding coding = ContentCoding.negotiate(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (coding == null) {
+            context.proceed();
+            return;
+        }
+
+        CompressingOutputStream stream = acquire(coding);
+        OutputStream original = context.getOutputStream();
+        stream.reset(original, headers);
+        context.setOutputStream(stream);
+        try {
+            context.proceed();
+            stream.finish();
+            CompressionMetrics metrics = requestMetrics.getCompression();
+            if (stream.isCompressed()) {
+                metrics.compressed(coding, stream.getInputBytes(), stream.getOutputBytes(),
+                        stream.getCompressionNanos());
+            } else {
+                metrics.belowThreshold(coding);
+            }
+        } finally {
+            context.setOutputStream(original);
+            release(stream);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (BlockingQueue<CompressingOutputStream> pool : pools.values()) {
+            CompressingOutputStream stream;
+            while ((stream = pool.poll()) != null) {
+                stream.end();
+            }
+        }
+    }
+
+    private CompressingOutputStream acquire(ContentCoding coding) {
+        CompressingOutputStream stream = pools.get(coding).poll();
+        return stream != null ? stream : new CompressingOutputStream(coding, LEVEL, THRESHOLD);
+    }
+
+    private void release(CompressingOutputStream stream) {
+        stream.release();
+        if (!pools.get(stream.getCoding()).offer(stream)) {
+            stream.end();
+        }
+    }
+
+    /**
+     * Tells whether a body of a media type is worth compressing: text, JSON
+     * and XML are, while images and archives are compressed already.
+     */
+    private static boolean isCompressible(MediaType mediaType) {
+        if (mediaType == null) {
+            return false;
+        }
+        String subtype = mediaType.getSubtype();
+        return "text".equals(mediaType.getType())
+                || subtype.equals("json") || subtype.endsWith("+json") || subtype.equals("x-ndjson")
+                || subtype.equals("xml") || subtype.endsWith("+xml");
+    }
+}
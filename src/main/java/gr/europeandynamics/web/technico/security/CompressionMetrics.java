@@ -0,0 +1,57 @@
+package gr.europeandynamics.web.technico.security;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the responses {@link CompressionInterceptor} compressed with each
+ * content coding, the bytes that went in and came out and the time spent
+ * compressing them, and the responses it left uncompressed because they
+ * stayed below the threshold.
+ */
+public class CompressionMetrics {
+
+    private final LongAdder[] compressed = adders();
+    private final LongAdder[] belowThreshold = adders();
+    private final LongAdder[] inputBytes = adders();
+    private final LongAdder[] outputBytes = adders();
+    private final LongAdder[] nanos = adders();
+
+    void compressed(ContentCoding coding, long input, long output, long compressionNanos) {
+        compressed[coding.ordinal()].increment();
+        inputBytes[coding.ordinal()].add(input);
+        outputBytes[coding.ordinal()].add(output);
+        nanos[coding.ordinal()].add(compressionNanos);
+    }
+
+    void belowThreshold(ContentCoding coding) {
+        belowThreshold[coding.ordinal()].increment();
+    }
+
+    public long getCompressed(ContentCoding coding) {
+        return compressed[coding.ordinal()].sum();
+    }
+
+    public long getBelowThreshold(ContentCoding coding) {
+        return belowThreshold[coding.ordinal()].sum();
+    }
+
+    public long getInputBytes(ContentCoding coding) {
+        return inputBytes[coding.ordinal()].sum();
+    }
+
+    public long getOutputBytes(ContentCoding coding) {
+        return outputBytes[coding.ordinal()].sum();
+    }
+
+    public long getNanos(ContentCoding coding) {
+        return nanos[coding.ordinal()].sum();
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[ContentCoding.values().length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,83 @@
+package gr.europeandynamics.web.technico.security;
+
+import java.util.Locale;
+import lombok.Getter;
+
+/**
+ * The content codings responses can be compressed with. Both are DEFLATE
+ * streams: gzip wraps the raw stream in a gzip header and trailer, deflate in
+ * the zlib format, as HTTP defines it.
+ */
+public enum ContentCoding {
+
+    GZIP("gzip", true),
+    DEFLATE("deflate", false);
+
+    @Getter
+    private final String token;
+
+    /**
+     * Whether the deflater writes a raw DEFLATE stream, without the zlib
+     * header and checksum.
+     */
+    @Getter
+    private final boolean raw;
+
+    ContentCoding(String token, boolean raw) {
+        this.token = token;
+        this.raw = raw;
+    }
+
+    /**
+     * Picks the coding of a response from the Accept-Encoding header of the
+     * request. gzip is preferred over deflate when the client rates them
+     * equally, and a coding rated {@code q=0}, explicitly or through
+     * {@code *}, is never picked.
+     *
+     * @param acceptEncoding the Accept-Encoding header, may be null
+     * @return the coding to use, or null if the response must not be
+     * compressed
+     */
+    public static ContentCoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            switch (parameters[0].trim().toLowerCase(Locale.ROOT)) {
+                case "gzip", "x-gzip" ->
+                    gzip = quality;
+                case "deflate" ->
+                    deflate = quality;
+                case "*" ->
+                    any = quality;
+                default -> {
+                }
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+}
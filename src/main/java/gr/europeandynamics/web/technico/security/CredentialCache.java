@@ -0,0 +1,288 @@
+package gr.europeandynamics.web.technico.security;
+
+import gr.europeandynamics.web.technico.dtos.AuthenticatedUser;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Remembers the outcome of recent logins per email address, so that a user
+ * logging in again, or a client retrying a wrong password, is answered
+ * without a database lookup or a password hash.
+ *
+ * Passwords are never stored. Each outcome keeps an HMAC-SHA256 digest of the
+ * password under a key generated at startup, which is cheap to compare but
+ * useless outside this process. Both caches expire entries after a short
+ * time and stop taking new entries once full.
+ *
+ * A login is verified against a hash read before it waits for a verification
+ * thread, so the user may change in the meantime. Each email therefore has a
+ * generation, which {@link #invalidate(String)} advances. A login reads it
+ * before reading the hash, and its outcome is only remembered if the
+ * generation has not moved since. The generations are kept in a fixed number
+ * of stripes, so emails sharing a stripe merely skip remembering an outcome
+ * more often.
+ */
+public final class CredentialCache {
+
+    public static final Duration DEFAULT_VERIFIED_TTL = Duration.ofMinutes(2);
+    public static final Duration DEFAULT_REJECTED_TTL = Duration.ofSeconds(30);
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAX_REJECTED_PASSWORDS = 8;
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+    private final long verifiedTtlNanos;
+    private final long rejectedTtlNanos;
+    private final int maxEntries;
+
+    private final Map<String, Verified> verified = new ConcurrentHashMap<>();
+    private final Map<String, Rejected> rejected = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public CredentialCache() {
+        this(DEFAULT_VERIFIED_TTL, DEFAULT_REJECTED_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a cache with the given bounds.
+     *
+     * @param verifiedTtl how long a successful login is remembered
+     * @param rejectedTtl how long a failed login is remembered
+     * @param maxEntries the maximum number of email addresses remembered by
+     * each of the caches
+     */
+    public CredentialCache(Duration verifiedTtl, Duration rejectedTtl, int maxEntries) {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, MAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.verifiedTtlNanos = verifiedTtl.toNanos();
+        this.rejectedTtlNanos = rejectedTtl.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Looks up a recent successful login with the same email and password.
+     *
+     * @param email the submitted email
+     * @param password the submitted password
+     * @return an Optional containing the user the login was verified for, or
+     * an empty Optional if there is none
+     */
+    public Optional<AuthenticatedUser> findVerified(String email, String password) {
+        Verified entry = verified.get(email);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (expired(entry.expiresAt)) {
+            verified.remove(email, entry);
+            return Optional.empty();
+        }
+        return MessageDigest.isEqual(entry.digest, digest(password))
+                ? Optional.of(entry.user)
+                : Optional.empty();
+    }
+
+    /**
+     * Checks whether a login with the same email and password failed
+     * recently.
+     *
+     * @param email the submitted email
+     * @param password the submitted password
+     * @return true if the login is known to fail
+     */
+    public boolean isRejected(String email, String password) {
+        Rejected entry = findRejected(email);
+        if (entry == null) {
+            return false;
+        }
+        byte[] digest = digest(password);
+        for (byte[] rejectedDigest : entry.digests) {
+            if (MessageDigest.isEqual(rejectedDigest, digest)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a login with the email failed recently because no
+     * active user has it. Such a login can be rejected without looking up
+     * the user again, whatever its password.
+     *
+     * @param email the submitted email
+     * @return true if the email is known not to belong to an active user
+     */
+    public boolean isUnknownUser(String email) {
+        Rejected entry = findRejected(email);
+        return entry != null && entry.unknownUser;
+    }
+
+    /**
+     * Reads the generation of an email, to be passed to the remember methods
+     * once the login it was read for is verified.
+     *
+     * @param email the submitted email
+     * @return the current generation of the email
+     */
+    public long generation(String email) {
+        return generations.get(stripe(email));
+    }
+
+    /**
+     * Remembers a successful login, unless the email was invalidated since
+     * its generation was read.
+     *
+     * @param email the submitted email
+     * @param password the submitted password
+     * @param user the user the login was verified for
+     * @param generation the generation of the email read before the hash
+     */
+    public void rememberVerified(String email, String password, AuthenticatedUser user, long generation) {
+        if (generation(email) != generation) {
+            return;
+        }
+        if (hasRoom(verified)) {
+            verified.put(email, new Verified(user, digest(password), System.nanoTime() + verifiedTtlNanos));
+        }
+        rejected.remove(email);
+        forgetIfMoved(email, generation);
+    }
+
+    /**
+     * Remembers a failed login with a wrong password, next to the last few
+     * other wrong passwords tried for the same email, unless the email was
+     * invalidated since its generation was read.
+     *
+     * @param email the submitted email
+     * @param password the submitted password
+     * @param generation the generation of the email read before the hash
+     */
+    public void rememberWrongPassword(String email, String password, long generation) {
+        rememberRejected(email, password, false, generation);
+    }
+
+    /**
+     * Remembers a failed login with an email no active user has, next to the
+     * last few other passwords tried for the same email, unless the email
+     * was invalidated since its generation was read.
+     *
+     * @param email the submitted email
+     * @param password the submitted password
+     * @param generation the generation of the email read before the lookup
+     */
+    public void rememberUnknownUser(String email, String password, long generation) {
+        rememberRejected(email, password, true, generation);
+    }
+
+    /**
+     * Forgets every login outcome of an email, after the user with that email
+     * was created, changed or deleted, and advances its generation so that
+     * logins verified against the old user are not remembered.
+     *
+     * @param email the email address
+     */
+    public void invalidate(String email) {
+        if (email != null) {
+            generations.incrementAndGet(stripe(email));
+            verified.remove(email);
+            rejected.remove(email);
+        }
+    }
+
+    private Rejected findRejected(String email) {
+        Rejected entry = rejected.get(email);
+        if (entry != null && expired(entry.expiresAt)) {
+            rejected.remove(email, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private void rememberRejected(String email, String password, boolean unknownUser, long generation) {
+        if (generation(email) != generation || !hasRoom(rejected)) {
+            return;
+        }
+        byte[] digest = digest(password);
+        long expiresAt = System.nanoTime() + rejectedTtlNanos;
+        rejected.compute(email, (ignored, entry) -> {
+            if (entry == null || entry.unknownUser != unknownUser || expired(entry.expiresAt)) {
+                return new Rejected(unknownUser, new byte[][]{digest}, expiresAt);
+            }
+            int kept = Math.min(entry.digests.length, MAX_REJECTED_PASSWORDS - 1);
+            byte[][] digests = new byte[kept + 1][];
+            digests[0] = digest;
+            System.arraycopy(entry.digests, 0, digests, 1, kept);
+            return new Rejected(unknownUser, digests, expiresAt);
+        });
+        forgetIfMoved(email, generation);
+    }
+
+    /**
+     * Drops what was just remembered for an email if it was invalidated while
+     * the outcome was being stored, which the check before storing misses.
+     */
+    private void forgetIfMoved(String email, long generation) {
+        if (generation(email) != generation) {
+            verified.remove(email);
+            rejected.remove(email);
+        }
+    }
+
+    private static int stripe(String email) {
+        return Math.floorMod(email == null ? 0 : email.hashCode(), GENERATION_STRIPES);
+    }
+
+    /**
+     * Checks whether a cache can take another entry, dropping its expired
+     * entries first if it is full.
+     */
+    private boolean hasRoom(Map<String, ? extends Expiring> cache) {
+        if (cache.size() < maxEntries) {
+            return true;
+        }
+        cache.values().removeIf(entry -> expired(entry.expiresAt()));
+        return cache.size() < maxEntries;
+    }
+
+    private static boolean expired(long expiresAt) {
+        return expiresAt - System.nanoTime() <= 0;
+    }
+
+    private byte[] digest(String password) {
+        return macs.get().doFinal(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private interface Expiring {
+
+        long expiresAt();
+    }
+
+    private record Verified(AuthenticatedUser user, byte[] digest, long expiresAt) implements Expiring {
+    }
+
+    private record Rejected(boolean unknownUser, byte[][] digests, long expiresAt) implements Expiring {
+    }
+}
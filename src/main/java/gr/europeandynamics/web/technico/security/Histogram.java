@@ -0,0 +1,69 @@
+package gr.europeandynamics.web.technico.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative long values with log-linear buckets,
+ * in the manner of HdrHistogram: every power of two is split into
+ * {@value #SUB_BUCKETS} equal buckets, so a value is counted within 25% of
+ * its true size across the whole long range. Recording is a single atomic
+ * increment and add, without locks or allocation.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+
+    /**
+     * Counts a value. Negative values are counted as zero.
+     *
+     * @param value the value to count
+     */
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+        counts.incrementAndGet(bucketOf(clamped));
+        sum.addAndGet(clamped);
+    }
+
+    /**
+     * Counts the recorded values below a power of two. The bucket bounds fall
+     * on every power of two, so the count is exact.
+     *
+     * @param exponent the exponent of the power of two, from 0 to 62
+     * @return the number of recorded values below 2 to the given exponent
+     */
+    public long countBelowPowerOfTwo(int exponent) {
+        int end = exponent <= SUB_BUCKET_BITS ? 1 << exponent : bucketOf(1L << exponent);
+        long count = 0;
+        for (int i = 0; i < end; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+}
@@ -0,0 +1,156 @@
+package gr.europeandynamics.web.technico.security;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Hashes passwords with salted PBKDF2-HMAC-SHA256. A hash is stored as
+ * {@code pbkdf2-sha256$<iterations>$<salt>$<key>}.
+ *
+ * A stored hash is only accepted with the iteration count of the hasher, a
+ * 16 byte salt and a 32 byte key. Since hashes can be imported, this keeps
+ * out weaker hashes, which are easy to crack, and stronger ones, which would
+ * tie up a verification thread on every login. Every accepted hash also takes
+ * as long to verify as {@link #verifyDummy(String)}. Raising the iteration
+ * count therefore means rehashing the stored passwords.
+ */
+@ApplicationScoped
+public class PasswordHasher {
+
+    public static final int DEFAULT_ITERATIONS = 210_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BYTES = 32;
+    private static final int MAX_LENGTH = 100;
+
+    private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+    private final SecureRandom random = new SecureRandom();
+    private final int iterations;
+    private final String dummyHash;
+
+    public PasswordHasher() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Creates a hasher that hashes new passwords with the given number of
+     * iterations.
+     *
+     * @param iterations the PBKDF2 iteration count of new hashes
+     */
+    public PasswordHasher(int iterations) {
+        this.iterations = iterations;
+        this.dummyHash = hash("dummy password");
+    }
+
+    /**
+     * Hashes a password with a new random salt.
+     *
+     * @param password the password to hash
+     * @return the encoded hash
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] key = derive(password, salt, iterations, KEY_BYTES * 8);
+        return PREFIX + "$" + iterations + "$" + ENCODER.encodeToString(salt) + "$" + ENCODER.encodeToString(key);
+    }
+
+    /**
+     * Checks a password against a stored hash. The comparison takes the same
+     * time wherever the keys differ.
+     *
+     * @param password the password to check
+     * @param hash the encoded hash, as returned by {@link #hash(String)}
+     * @return true if the password matches the hash, false if it does not or
+     * the hash is malformed or not accepted
+     */
+    public boolean verify(String password, String hash) {
+        if (password == null) {
+            return false;
+        }
+        byte[][] saltAndKey = decode(hash);
+        if (saltAndKey == null) {
+            return false;
+        }
+        byte[] actual = derive(password, saltAndKey[0], iterations, KEY_BYTES * 8);
+        return MessageDigest.isEqual(saltAndKey[1], actual);
+    }
+
+    /**
+     * Tells whether a value is meant as a hash in the encoding of
+     * {@link #hash(String)} rather than a plain password, whether or not it
+     * is accepted.
+     *
+     * @param value the value to check
+     * @return true if the value starts like an encoded hash
+     */
+    public boolean isEncoded(String value) {
+        return value != null && value.startsWith(PREFIX + "$");
+    }
+
+    /**
+     * Tells whether a value is a hash this hasher accepts, without deriving
+     * any key.
+     *
+     * @param value the value to check
+     * @return true if the value is a well-formed hash with the iteration
+     * count, salt length and key length of this hasher
+     */
+    public boolean isHash(String value) {
+        return decode(value) != null;
+    }
+
+    /**
+     * Spends the time of a verification without a stored hash, so that a
+     * login with an unknown email takes as long as one with a wrong password.
+     *
+     * @param password the submitted password
+     */
+    public void verifyDummy(String password) {
+        verify(password == null ? "" : password, dummyHash);
+    }
+
+    /**
+     * Decodes an accepted hash.
+     *
+     * @return the salt and the key, or null if the hash is malformed or not
+     * accepted
+     */
+    private byte[][] decode(String hash) {
+        if (!isEncoded(hash) || hash.length() > MAX_LENGTH) {
+            return null;
+        }
+        String[] parts = hash.split("\\$");
+        if (parts.length != 4 || !String.valueOf(iterations).equals(parts[1])) {
+            return null;
+        }
+        try {
+            byte[] salt = DECODER.decode(parts[2]);
+            byte[] key = DECODER.decode(parts[3]);
+            return salt.length == SALT_BYTES && key.length == KEY_BYTES ? new byte[][]{salt, key} : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations, int keyBits) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyBits);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package gr.europeandynamics.web.technico.security;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+
+/**
+ * Holds the {@link RouteMetrics} of every resource method and renders them
+ * in the Prometheus text exposition format. Routes are created once, when
+ * {@link RequestMetricsRoutes} binds a filter to each resource method, so
+ * recording a request never looks a route up. The metrics of response
+ * compression are rendered along with them.
+ */
+@ApplicationScoped
+public class RequestMetrics {
+
+    private static final String PREFIX = "technico_http_";
+
+    /**
+     * The latency bucket bounds, as powers of two of nanoseconds: from 2^16,
+     * about 66 microseconds, to 2^35, about 34 seconds. Each bucket counts the
+     * values below its power of two, so it is labelled with one nanosecond
+     * less, the largest value it holds.
+     */
+    private static final int FIRST_LATENCY_EXPONENT = 16;
+    private static final int LAST_LATENCY_EXPONENT = 35;
+
+    /**
+     * The response size bucket bounds, as powers of two of bytes: from 64
+     * bytes to 16 MiB, labelled with one byte less like the latency bounds.
+     */
+    private static final int FIRST_SIZE_EXPONENT = 6;
+    private static final int LAST_SIZE_EXPONENT = 24;
+
+    private static final String[] LATENCY_BOUNDS = bounds(FIRST_LATENCY_EXPONENT, LAST_LATENCY_EXPONENT, 9);
+    private static final String[] SIZE_BOUNDS = bounds(FIRST_SIZE_EXPONENT, LAST_SIZE_EXPONENT, 0);
+
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    @Getter
+    private final CompressionMetrics compression = new CompressionMetrics();
+
+    /**
+     * Retrieves the metrics of a route, creating them on first use.
+     *
+     * @param method the HTTP method
+     * @param route the path template
+     * @return the metrics of the route
+     */
+    public RouteMetrics route(String method, String route) {
+        return routes.computeIfAbsent(method + " " + route, key -> new RouteMetrics(method, route));
+    }
+
+    /**
+     * Renders the metrics of every route in the Prometheus text format,
+     * version 0.0.4.
+     *
+     * @return the metrics as text
+     */
+    public String render() {
+        List<RouteMetrics> sorted = new ArrayList<>(routes.values());
+        sorted.sort(Comparator.comparing(RouteMetrics::getRoute).thenComparing(RouteMetrics::getMethod));
+        StringBuilder text = new StringBuilder(4096);
+
+        header(text, "requests_total", "counter", "Completed requests by route and status code.");
+        for (RouteMetrics route : sorted) {
+            for (int status = 100; status < RouteMetrics.STATUS_CODES; status++) {
+                long count = route.getStatusCount(status);
+                if (count > 0) {
+                    sample(text, "requests_total", route, "status", String.valueOf(status), count);
+                }
+            }
+        }
+
+        header(text, "requests_in_flight", "gauge", "Requests being handled by route.");
+        for (RouteMetrics route : sorted) {
+            sample(text, "requests_in_flight", route, null, null, route.getInFlight());
+        }
+
+        header(text, "request_duration_seconds", "histogram",
+                "Time from the first request filter to the last byte of the response body.");
+        for (RouteMetrics route : sorted) {
+            histogram(text, "request_duration_seconds", route, route.getLatencyNanos(),
+                    FIRST_LATENCY_EXPONENT, LATENCY_BOUNDS);
+            sample(text, "request_duration_seconds_sum", route, null, null,
+                    BigDecimal.valueOf(route.getLatencyNanos().getSum(), 9).toPlainString());
+        }
+
+        header(text, "response_size_bytes", "histogram", "Size of the response bodies as written.");
+        for (RouteMetrics route : sorted) {
+            histogram(text, "response_size_bytes", route, route.getResponseBytes(),
+                    FIRST_SIZE_EXPONENT, SIZE_BOUNDS);
+            sample(text, "response_size_bytes_sum", route, null, null, route.getResponseBytes().getSum());
+        }
+
+        renderCompression(text);
+        return text.toString();
+    }
+
+    private void renderCompression(StringBuilder text) {
+        ContentCoding[] codings = ContentCoding.values();
+        header(text, "compressed_responses_total", "counter", "Responses compressed by content coding.");
+        for (ContentCoding coding : codings) {
+            sample(text, "compressed_responses_total", coding, compression.getCompressed(coding));
+        }
+        header(text, "compression_skipped_responses_total", "counter",
+                "Responses accepting a content coding that stayed below the compression threshold.");
+        for (ContentCoding coding : codings) {
+            sample(text, "compression_skipped_responses_total", coding, compression.getBelowThreshold(coding));
+        }
+        header(text, "compression_input_bytes_total", "counter", "Bytes of response bodies before compression.");
+        for (ContentCoding coding : codings) {
+            sample(text, "compression_input_bytes_total", coding, compression.getInputBytes(coding));
+        }
+        header(text, "compression_output_bytes_total", "counter", "Bytes of response bodies after compression.");
+        for (ContentCoding coding : codings) {
+            sample(text, "compression_output_bytes_total", coding, compression.getOutputBytes(coding));
+        }
+        header(text, "compression_seconds_total", "counter", "Time spent compressing response bodies.");
+        for (ContentCoding coding : codings) {
+            sample(text, "compression_seconds_total", coding,
+                    BigDecimal.valueOf(compression.getNanos(coding), 9).toPlainString());
+        }
+        header(text, "compression_ratio", "gauge",
+                "Bytes before compression per byte after, over all compressed responses.");
+        for (ContentCoding coding : codings) {
+            long output = compression.getOutputBytes(coding);
+            sample(text, "compression_ratio", coding,
+                    output == 0 ? 0.0 : (double) compression.getInputBytes(coding) / output);
+        }
+    }
+
+    private static void histogram(StringBuilder text, String name, RouteMetrics route, Histogram histogram,
+            int firstExponent, String[] bounds) {
+        for (int i = 0; i < bounds.length; i++) {
+            sample(text, name + "_bucket", route, "le", bounds[i], histogram.countBelowPowerOfTwo(firstExponent + i));
+        }
+        long count = histogram.getCount();
+        sample(text, name + "_bucket", route, "le", "+Inf", count);
+        sample(text, name + "_count", route, null, null, count);
+    }
+
+    private static void header(StringBuilder text, String name, String type, String help) {
+        text.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, RouteMetrics route, String label, String labelValue,
+            Object value) {
+        text.append(PREFIX).append(name)
+                .append("{method=\"").append(route.getMethod())
+                .append("\",route=\"").append(escape(route.getRoute())).append('"');
+        if (label != null) {
+            text.append(',').append(label).append("=\"").append(labelValue).append('"');
+        }
+        text.append("} ").append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, ContentCoding coding, Object value) {
+        text.append(PREFIX).append(name)
+                .append("{encoding=\"").append(coding.getToken()).append("\"} ")
+                .append(value).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Formats the powers of two between two exponents, less one and scaled
+     * down by a power of ten, as bucket bounds. Prometheus buckets count the
+     * values up to and including their bound, and the values are whole
+     * nanoseconds or bytes, so the values below 2^k are those up to 2^k - 1.
+     */
+    private static String[] bounds(int firstExponent, int lastExponent, int scale) {
+        String[] bounds = new String[lastExponent - firstExponent + 1];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = BigDecimal.valueOf((1L << (firstExponent + i)) - 1, scale).stripTrailingZeros().toPlainString();
+        }
+        return bounds;
+    }
+}
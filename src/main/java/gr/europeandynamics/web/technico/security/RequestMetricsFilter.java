@@ -0,0 +1,115 @@
+package gr.europeandynamics.web.technico.security;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records the latency, status and response size of the requests to one
+ * route. A request is complete once its response body is written, or when
+ * the response filters run if it has no body. {@link RequestMetricsRoutes}
+ * registers an instance on each resource method, before any other filter,
+ * so the time spent in authorization is included.
+ *
+ * Apart from the start time, which travels with the request as a property,
+ * recording allocates nothing.
+ */
+public class RequestMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    private static final String START = RequestMetricsFilter.class.getName() + ".start";
+
+    /**
+     * A counting stream per thread, reused across responses. A body is
+     * written on a single thread, from start to end.
+     */
+    private static final ThreadLocal<CountingOutputStream> COUNTERS
+            = ThreadLocal.withInitial(CountingOutputStream::new);
+
+    private final RouteMetrics metrics;
+
+    public RequestMetricsFilter(RouteMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        requestContext.setProperty(START, System.nanoTime());
+        metrics.started();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        metrics.responded(responseContext.getStatus());
+        if (!responseContext.hasEntity()) {
+            complete(requestContext.getProperty(START));
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        Object start = context.getProperty(START);
+        if (start == null) {
+            context.proceed();
+            return;
+        }
+        CountingOutputStream counter = COUNTERS.get();
+        OutputStream original = context.getOutputStream();
+        counter.reset(original);
+        context.setOutputStream(counter);
+        try {
+            context.proceed();
+        } finally {
+            context.setOutputStream(original);
+            metrics.wrote(counter.count);
+            counter.reset(null);
+            complete(start);
+        }
+    }
+
+    private void complete(Object start) {
+        if (start instanceof Long startNanos) {
+            metrics.completed(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Counts the bytes written to the stream it wraps.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        private OutputStream out;
+        private long count;
+
+        void reset(OutputStream out) {
+            this.out = out;
+            this.count = 0;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package gr.europeandynamics.web.technico.security;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.DynamicFeature;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.FeatureContext;
+import jakarta.ws.rs.ext.Provider;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+/**
+ * Binds a {@link RequestMetricsFilter} to every resource method when the
+ * application is deployed, with the route already resolved from the HTTP
+ * method and the path template, such as {@code GET /repairs/{id}}. The route
+ * is the template rather than the request path, so the number of routes stays
+ * fixed however many IDs are requested.
+ *
+ * The filter runs before the authentication and authorization filters, so
+ * rejected requests are counted and timed too.
+ */
+@Provider
+public class RequestMetricsRoutes implements DynamicFeature {
+
+    private static final int PRIORITY = Priorities.AUTHENTICATION - 500;
+
+    @Inject
+    private RequestMetrics requestMetrics;
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        Method method = resourceInfo.getResourceMethod();
+        String httpMethod = httpMethodOf(method);
+        if (httpMethod != null) {
+            String route = template(resourceInfo.getResourceClass().getAnnotation(Path.class),
+                    method.getAnnotation(Path.class));
+            context.register(new RequestMetricsFilter(requestMetrics.route(httpMethod, route)), PRIORITY);
+        }
+    }
+
+    private static String httpMethodOf(Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            HttpMethod httpMethod = annotation.annotationType().getAnnotation(HttpMethod.class);
+            if (httpMethod != null) {
+                return httpMethod.value();
+            }
+        }
+        return null;
+    }
+
+    private static String template(Path... paths) {
+        StringBuilder template = new StringBuilder();
+        for (Path path : paths) {
+            if (path != null) {
+                for (String segment : path.value().split("/")) {
+                    if (!segment.isEmpty()) {
+                        template.append('/').append(segment);
+                    }
+                }
+            }
+        }
+        return template.length() == 0 ? "/" : template.toString();
+    }
+}
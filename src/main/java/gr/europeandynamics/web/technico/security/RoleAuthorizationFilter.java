@@ -0,0 +1,52 @@
+package gr.europeandynamics.web.technico.security;
+
+import gr.europeandynamics.web.technico.models.Role;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+import java.util.Optional;
+
+/**
+ * Lets a request through only if it carries a valid bearer token of a user
+ * with the required role. The token is verified from its signature alone.
+ * {@link StaffMemberRoutes} registers an instance on each protected resource
+ * method.
+ */
+public class RoleAuthorizationFilter implements ContainerRequestFilter {
+
+    private static final String BEARER_PREFIX = TokenSecurityContext.BEARER + " ";
+
+    private final TokenService tokenService;
+    private final Role requiredRole;
+
+    public RoleAuthorizationFilter(TokenService tokenService, Role requiredRole) {
+        this.tokenService = tokenService;
+        this.requiredRole = requiredRole;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        String authorization = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+        Optional<TokenClaims> claims = Optional.empty();
+        if (authorization != null
+                && authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            claims = tokenService.verify(authorization.substring(BEARER_PREFIX.length()).trim());
+        }
+        if (claims.isEmpty()) {
+            requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED)
+                    .header(HttpHeaders.WWW_AUTHENTICATE, TokenSecurityContext.BEARER)
+                    .entity("Missing or invalid token").build());
+            return;
+        }
+        if (claims.get().role() != requiredRole) {
+            requestContext.abortWith(Response.status(Response.Status.FORBIDDEN)
+                    .entity("Not allowed for role " + claims.get().role()).build());
+            return;
+        }
+        SecurityContext current = requestContext.getSecurityContext();
+        boolean secure = current != null && current.isSecure();
+        requestContext.setSecurityContext(new TokenSecurityContext(claims.get(), secure));
+    }
+}
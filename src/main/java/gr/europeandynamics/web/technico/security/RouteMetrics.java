@@ -0,0 +1,63 @@
+package gr.europeandynamics.web.technico.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.Getter;
+
+/**
+ * The request metrics of one route, a resource method identified by its HTTP
+ * method and path template. Every field is updated without locks or
+ * allocation.
+ */
+public class RouteMetrics {
+
+    static final int STATUS_CODES = 600;
+
+    @Getter
+    private final String method;
+    @Getter
+    private final String route;
+    @Getter
+    private final Histogram latencyNanos = new Histogram();
+    @Getter
+    private final Histogram responseBytes = new Histogram();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLongArray statusCounts = new AtomicLongArray(STATUS_CODES);
+
+    public RouteMetrics(String method, String route) {
+        this.method = method;
+        this.route = route;
+    }
+
+    void started() {
+        inFlight.incrementAndGet();
+    }
+
+    void responded(int status) {
+        statusCounts.incrementAndGet(status >= 0 && status < STATUS_CODES ? status : 0);
+    }
+
+    void completed(long nanos) {
+        inFlight.decrementAndGet();
+        latencyNanos.record(nanos);
+    }
+
+    void wrote(long bytes) {
+        responseBytes.record(bytes);
+    }
+
+    /**
+     * Counts the responses with a status code.
+     *
+     * @param status the status code
+     * @return the number of responses with the code, or 0 for a code outside
+     * the HTTP range
+     */
+    public long getStatusCount(int status) {
+        return status > 0 && status < STATUS_CODES ? statusCounts.get(status) : 0;
+    }
+
+    public long getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,110 @@
+package gr.europeandynamics.web.technico.security;
+
+import gr.europeandynamics.web.technico.repositories.SqlRequestTracker;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks the SQL each request issues and reports it in the
+ * {@value #STATEMENTS_HEADER} and {@value #MILLIS_HEADER} response headers.
+ * A request is logged when it issues more statements than its budget, spends
+ * longer than its budget executing them, or issues the same statement shape
+ * more often than allowed, which is how an N+1 query pattern shows up.
+ *
+ * The budgets are read from system properties:
+ * <ul>
+ * <li>{@value #MAX_STATEMENTS_PROPERTY}, 20 statements by default</li>
+ * <li>{@value #MAX_MILLIS_PROPERTY}, 200 milliseconds by default</li>
+ * <li>{@value #MAX_REPEATS_PROPERTY}, 5 statements of the same shape by
+ * default</li>
+ * </ul>
+ *
+ * A request is complete once its response body is written, or when the
+ * response filters run if it has no body, and the budgets are checked then.
+ * A streamed body issues its SQL while it is written, after the headers are
+ * sent, so its response carries no headers and its statements are only
+ * counted towards the budgets. Any other body is built from detached
+ * entities, so the headers are complete when the response filters run.
+ */
+@Slf4j
+@Provider
+public class SqlBudgetFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String MILLIS_HEADER = "X-SQL-Millis";
+
+    public static final String MAX_STATEMENTS_PROPERTY = "technico.sql.maxStatements";
+    public static final String MAX_MILLIS_PROPERTY = "technico.sql.maxMillis";
+    public static final String MAX_REPEATS_PROPERTY = "technico.sql.maxRepeats";
+
+    private static final int MAX_STATEMENTS = Integer.getInteger(MAX_STATEMENTS_PROPERTY, 20);
+    private static final long MAX_MILLIS = Long.getLong(MAX_MILLIS_PROPERTY, 200);
+    private static final int MAX_REPEATS = Integer.getInteger(MAX_REPEATS_PROPERTY, 5);
+
+    private static final String REQUEST = SqlBudgetFilter.class.getName() + ".request";
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        SqlRequestTracker.begin();
+        requestContext.setProperty(REQUEST, requestContext.getMethod() + " " + requestContext.getUriInfo().getPath());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (!responseContext.hasEntity()) {
+            complete(requestContext.getProperty(REQUEST));
+            return;
+        }
+        if (responseContext.getEntity() instanceof StreamingOutput) {
+            return;
+        }
+        SqlRequestTracker tracker = SqlRequestTracker.current();
+        if (tracker != null) {
+            responseContext.getHeaders().putSingle(STATEMENTS_HEADER, tracker.getStatements());
+            responseContext.getHeaders().putSingle(MILLIS_HEADER, tracker.getExecutionNanos() / 1_000_000);
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        Object request = context.getProperty(REQUEST);
+        if (request == null) {
+            context.proceed();
+            return;
+        }
+        try {
+            context.proceed();
+        } finally {
+            complete(request);
+        }
+    }
+
+    private void complete(Object request) {
+        SqlRequestTracker tracker = SqlRequestTracker.end();
+        if (tracker == null) {
+            return;
+        }
+        int statements = tracker.getStatements();
+        long millis = tracker.getExecutionNanos() / 1_000_000;
+        if (statements > MAX_STATEMENTS || millis > MAX_MILLIS) {
+            log.warn("{} issued {} SQL statements taking {} ms, over the budget of {} statements and {} ms",
+                    request, statements, millis, MAX_STATEMENTS, MAX_MILLIS);
+        }
+        if (statements > MAX_REPEATS) {
+            Map.Entry<String, Integer> mostRepeated = tracker.getMostRepeatedShape();
+            if (mostRepeated.getValue() > MAX_REPEATS) {
+                log.warn("{} issued the same SQL statement {} times, a likely N+1 query: {}",
+                        request, mostRepeated.getValue(), mostRepeated.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package gr.europeandynamics.web.technico.security;
+
+import gr.europeandynamics.web.technico.models.Role;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.DynamicFeature;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.FeatureContext;
+import jakarta.ws.rs.ext.Provider;
+import java.lang.reflect.Method;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides once per resource method, when the application is deployed, which
+ * role the method requires. Every method whose path has a
+ * {@value #STAFF_MEMBER_SEGMENT} segment requires a staff member and gets a
+ * {@link RoleAuthorizationFilter}. All other methods get no filter at all, so
+ * authorization costs nothing on them and a single token verification on the
+ * protected ones.
+ */
+@Slf4j
+@Provider
+public class StaffMemberRoutes implements DynamicFeature {
+
+    public static final String STAFF_MEMBER_SEGMENT = "staffMember";
+
+    @Inject
+    private TokenService tokenService;
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        Method method = resourceInfo.getResourceMethod();
+        Role role = requiredRole(resourceInfo.getResourceClass().getAnnotation(Path.class),
+                method.getAnnotation(Path.class));
+        if (role != null) {
+            context.register(new RoleAuthorizationFilter(tokenService, role), Priorities.AUTHORIZATION);
+            log.debug("{}.{} requires {}", resourceInfo.getResourceClass().getSimpleName(), method.getName(), role);
+        }
+    }
+
+    private static Role requiredRole(Path... paths) {
+        for (Path path : paths) {
+            if (path != null) {
+                for (String segment : path.value().split("/")) {
+                    if (STAFF_MEMBER_SEGMENT.equals(segment)) {
+                        return Role.STAFF_MEMBER;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+package gr.europeandynamics.web.technico.security;
+
+import gr.europeandynamics.web.technico.models.Role;
+import java.security.Principal;
+
+/**
+ * The user a verified token was issued to. The principal name is the VAT
+ * number of the user.
+ *
+ * @param userId the ID of the user
+ * @param vat the VAT number of the user
+ * @param role the role of the user
+ * @param expiresAt when the token expires, in seconds since the epoch
+ */
+public record TokenClaims(long userId, String vat, Role role, long expiresAt) implements Principal {
+
+    @Override
+    public String getName() {
+        return vat;
+    }
+}
@@ -0,0 +1,40 @@
+package gr.europeandynamics.web.technico.security;
+
+import jakarta.ws.rs.core.SecurityContext;
+import java.security.Principal;
+
+/**
+ * The security context of a request carrying a verified token.
+ */
+public class TokenSecurityContext implements SecurityContext {
+
+    public static final String BEARER = "Bearer";
+
+    private final TokenClaims claims;
+    private final boolean secure;
+
+    public TokenSecurityContext(TokenClaims claims, boolean secure) {
+        this.claims = claims;
+        this.secure = secure;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return claims;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return claims.role().name().equals(role);
+    }
+
+    @Override
+    public boolean isSecure() {
+        return secure;
+    }
+
+    @Override
+    public String getAuthenticationScheme() {
+        return BEARER;
+    }
+}
@@ -0,0 +1,149 @@
+package gr.europeandynamics.web.technico.security;
+
+import gr.europeandynamics.web.technico.dtos.AuthenticatedUser;
+import gr.europeandynamics.web.technico.models.Role;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Issues and verifies stateless session tokens. A token is
+ * {@code <payload>.<signature>}, both base64url encoded, where the payload is
+ * {@code <user id>:<vat>:<role>:<expiry>} and the signature is its
+ * HMAC-SHA256. Verifying a token needs neither the database nor a session, so
+ * any instance sharing the secret can serve any request.
+ *
+ * The secret is read as base64 from the {@value #SECRET_PROPERTY} system
+ * property or the {@value #SECRET_VARIABLE} environment variable. Without
+ * one, a random secret is generated, and tokens are only valid on this
+ * instance until it restarts.
+ */
+@Slf4j
+@ApplicationScoped
+public class TokenService {
+
+    public static final String SECRET_PROPERTY = "technico.token.secret";
+    public static final String SECRET_VARIABLE = "TECHNICO_TOKEN_SECRET";
+    public static final Duration DEFAULT_TTL = Duration.ofHours(8);
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+    private final Duration ttl;
+    private final Clock clock;
+
+    public TokenService() {
+        this(configuredSecret(), DEFAULT_TTL, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a service signing with the given secret.
+     *
+     * @param secret the HMAC secret
+     * @param ttl how long issued tokens are valid
+     * @param clock the clock expiry is checked against
+     */
+    public TokenService(byte[] secret, Duration ttl, Clock clock) {
+        this.key = new SecretKeySpec(secret, MAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * Issues a token for an authenticated user.
+     *
+     * @param user the authenticated user
+     * @return the claims of the token and its encoded form
+     */
+    public IssuedToken issue(AuthenticatedUser user) {
+        long expiresAt = clock.instant().plus(ttl).getEpochSecond();
+        TokenClaims claims = new TokenClaims(user.id(), user.vat(), user.role(), expiresAt);
+        String payload = ENCODER.encodeToString((claims.userId() + ":" + claims.vat() + ":"
+                + claims.role().name() + ":" + expiresAt).getBytes(StandardCharsets.UTF_8));
+        return new IssuedToken(payload + "." + ENCODER.encodeToString(sign(payload)), claims);
+    }
+
+    /**
+     * Verifies the signature and expiry of a token.
+     *
+     * @param token the encoded token
+     * @return an Optional containing the claims of the token, or an empty
+     * Optional if it is malformed, forged or expired
+     */
+    public Optional<TokenClaims> verify(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return Optional.empty();
+        }
+        String payload = token.substring(0, dot);
+        try {
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, sign(payload))) {
+                return Optional.empty();
+            }
+            String[] fields = new String(DECODER.decode(payload), StandardCharsets.UTF_8).split(":");
+            if (fields.length != 4) {
+                return Optional.empty();
+            }
+            long expiresAt = Long.parseLong(fields[3]);
+            if (expiresAt <= clock.instant().getEpochSecond()) {
+                return Optional.empty();
+            }
+            return Optional.of(new TokenClaims(Long.parseLong(fields[0]), fields[1],
+                    Role.valueOf(fields[2]), expiresAt));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static byte[] configuredSecret() {
+        String secret = System.getProperty(SECRET_PROPERTY, System.getenv(SECRET_VARIABLE));
+        if (secret != null && !secret.isBlank()) {
+            return Base64.getDecoder().decode(secret.trim());
+        }
+        log.warn("No token secret configured, tokens will not survive a restart");
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+
+    /**
+     * A newly issued token.
+     *
+     * @param token the encoded token
+     * @param claims the claims it carries
+     */
+    public record IssuedToken(String token, TokenClaims claims) {
+    }
+}
@@ -0,0 +1,9 @@
+package gr.europeandynamics.web.technico.services;
+
+import gr.europeandynamics.web.technico.dtos.CacheRegionStats;
+import java.util.List;
+
+public interface CacheStatisticsService {
+
+    List<CacheRegionStats> getRegionStatistics();
+}
@@ -0,0 +1,71 @@
+package gr.europeandynamics.web.technico.services;
+
+import gr.europeandynamics.web.technico.dtos.CacheRegionStats;
+import gr.europeandynamics.web.technico.repositories.NaturalKeyCache;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+@RequestScoped
+public class CacheStatisticsServiceImpl implements CacheStatisticsService {
+
+    private static final String NATURAL_KEYS_REGION = "natural-keys";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Inject
+    private NaturalKeyCache naturalKeyCache;
+
+    /**
+     * Retrieves the hit and miss counts of every second-level cache region,
+     * including the natural ID and query result regions, followed by those of
+     * the natural key cache.
+     *
+     * @return the statistics of each region, sorted by region name, and of the
+     * natural key cache
+     */
+    @Override
+    public List<CacheRegionStats> getRegionStatistics() {
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        String[] regions = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regions);
+        List<CacheRegionStats> result = new ArrayList<>(regions.length);
+        for (String region : regions) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics == null) {
+                regionStatistics = statistics.getQueryRegionStatistics(region);
+            }
+            if (regionStatistics == null) {
+                continue;
+            }
+            long hits = regionStatistics.getHitCount();
+            long misses = regionStatistics.getMissCount();
+            result.add(new CacheRegionStats(region, hits, misses,
+                    regionStatistics.getPutCount(),
+                    Math.max(regionStatistics.getElementCountInMemory(), -1),
+                    hitRatio(hits, misses)));
+        }
+        long hits = naturalKeyCache.getHitCount();
+        long misses = naturalKeyCache.getMissCount();
+        result.add(new CacheRegionStats(NATURAL_KEYS_REGION, hits, misses,
+                naturalKeyCache.getPutCount(),
+                naturalKeyCache.size(),
+                hitRatio(hits, misses)));
+        return result;
+    }
+
+    private static double hitRatio(long hits, long misses) {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,14 @@
+package gr.europeandynamics.web.technico.services;
+
+import gr.europeandynamics.web.technico.dtos.AuthenticatedUser;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+
+public interface CredentialService {
+
+    String hashPassword(String password);
+
+    CompletionStage<Optional<AuthenticatedUser>> authenticate(String email, String password);
+
+    void invalidate(String email);
+}
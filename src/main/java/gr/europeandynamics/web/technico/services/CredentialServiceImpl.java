@@ -0,0 +1,141 @@
+package gr.europeandynamics.web.technico.services;
+
+import gr.europeandynamics.web.technico.dtos.AuthenticatedUser;
+import gr.europeandynamics.web.technico.models.User;
+import gr.europeandynamics.web.technico.repositories.UserRepositoryImpl;
+import gr.europeandynamics.web.technico.security.CredentialCache;
+import gr.europeandynamics.web.technico.security.PasswordHasher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Verifies logins against the salted password hashes of the users.
+ *
+ * Hashing is deliberately slow, so it runs on a dedicated pool with one
+ * thread per processor and a bounded queue. A burst of logins waits in the
+ * queue instead of occupying request threads, and once the queue is full new
+ * logins fail fast with a {@link RejectedExecutionException}. Repeated
+ * successful and failed logins are answered from a {@link CredentialCache}
+ * without touching the database or the pool. A new password for an email
+ * that is known not to exist skips the database, but is still hashed against
+ * a dummy hash, so its timing does not tell it apart from a wrong password.
+ * The outcome of a login is not cached if its user changed while the login
+ * waited to be verified.
+ */
+@Slf4j
+@ApplicationScoped
+public class CredentialServiceImpl implements CredentialService {
+
+    public static final int QUEUE_CAPACITY = 256;
+
+    private final CredentialCache credentialCache = new CredentialCache();
+
+    @Inject
+    private PasswordHasher passwordHasher;
+
+    @Inject
+    private UserRepositoryImpl userRepository;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Hashes a password for storage.
+     *
+     * @param password the password to hash
+     * @return the encoded salted hash
+     */
+    @Override
+    public String hashPassword(String password) {
+        return passwordHasher.hash(password);
+    }
+
+    /**
+     * Verifies a login. The user is looked up on the calling thread, since
+     * the lookup needs its persistence context, and the password is checked
+     * on the verification pool.
+     *
+     * @param email the submitted email
+     * @param password the submitted password
+     * @return a stage completing with the authenticated user, or with an empty
+     * Optional if the email or password is wrong. The stage fails with a
+     * {@link RejectedExecutionException} if the verification pool is full.
+     */
+    @Override
+    public CompletionStage<Optional<AuthenticatedUser>> authenticate(String email, String password) {
+        Optional<AuthenticatedUser> cached = credentialCache.findVerified(email, password);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (credentialCache.isRejected(email, password)) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        long generation = credentialCache.generation(email);
+        Optional<User> user = credentialCache.isUnknownUser(email)
+                ? Optional.empty()
+                : userRepository.getUserByEmail(email).filter(found -> !found.isDeleted());
+        String passwordHash = user.map(User::getPasswordHash).orElse(null);
+        AuthenticatedUser authenticatedUser = user
+                .map(found -> new AuthenticatedUser(found.getId(), found.getVat(), found.getEmail(), found.getRole()))
+                .orElse(null);
+        try {
+            return CompletableFuture.supplyAsync(
+                    () -> verify(email, password, passwordHash, authenticatedUser, generation), executor);
+        } catch (RejectedExecutionException e) {
+            log.debug("Login verification queue is full, rejecting login");
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Forgets the cached logins of an email after its user changed.
+     *
+     * @param email the email address of the user
+     */
+    @Override
+    public void invalidate(String email) {
+        credentialCache.invalidate(email);
+    }
+
+    private Optional<AuthenticatedUser> verify(String email, String password, String passwordHash,
+            AuthenticatedUser authenticatedUser, long generation) {
+        if (authenticatedUser == null) {
+            passwordHasher.verifyDummy(password);
+            credentialCache.rememberUnknownUser(email, password, generation);
+            return Optional.empty();
+        }
+        if (passwordHasher.verify(password, passwordHash)) {
+            credentialCache.rememberVerified(email, password, authenticatedUser, generation);
+            return Optional.of(authenticatedUser);
+        }
+        credentialCache.rememberWrongPassword(email, password, generation);
+        return Optional.empty();
+    }
+}
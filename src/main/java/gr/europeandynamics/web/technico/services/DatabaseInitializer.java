@@ -6,6 +6,8 @@ import gr.europeandynamics.web.technico.importers.UserCSVImporter;
 import jakarta.annotation.PostConstruct;
 import jakarta.ejb.Singleton;
 import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
 import jakarta.inject.Inject;
 
 /**
@@ -31,8 +33,12 @@ public class DatabaseInitializer {
      * dependencies have been injected. It triggers the import process 
      * for user, property, and repair data by calling the respective 
      * importer methods with the paths to the CSV files.
+     * 
+     * It runs outside of a transaction, since the importers commit every chunk 
+     * of rows in a transaction of its own.
      */
     @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     public void init() {
         userCSVImporter.importFile("csv_files/users.csv");
         propertyCSVImporter.importFile("csv_files/properties.csv");
@@ -1,7 +1,14 @@
 package gr.europeandynamics.web.technico.services;
 
+import gr.europeandynamics.web.technico.dtos.CascadeSummary;
+import gr.europeandynamics.web.technico.dtos.ImportSummary;
+import gr.europeandynamics.web.technico.dtos.Page;
+import gr.europeandynamics.web.technico.dtos.PropertySummary;
+import gr.europeandynamics.web.technico.dtos.UpdateResult;
+import gr.europeandynamics.web.technico.importers.ImportFormat;
 import gr.europeandynamics.web.technico.models.Property;
 import gr.europeandynamics.web.technico.models.PropertyType;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,17 +16,25 @@ public interface PropertyService {
 
     Optional<Property> createProperty(String e9, String address, int year, PropertyType propertyType, String vat);
 
-    Optional<Property> updateProperty(Property property);
+    UpdateResult<Property> updateProperty(Property property, Long version);
 
     Optional<Property> findPropertyByE9(String e9);
 
-    List<Property> findPropertyByVAT(String vat);
+    List<PropertySummary> findPropertyByVAT(String vat);
 
     List<Property> findAllProperties();
 
+    Optional<Page<PropertySummary>> findPropertiesPage(String after, Integer limit);
+
     Optional<Property> findPropertyByID(Long id);
 
-    boolean deletePropertyByIdSafely(Long id);
+    Optional<String> findPropertyEntityTag(Long id);
+
+    Optional<CascadeSummary> deletePropertyByIdSafely(Long id);
+
+    Optional<CascadeSummary> restorePropertyById(Long id);
+
+    Optional<CascadeSummary> deletePropertyByIdPermenantly(Long id);
 
-    boolean deletePropertyByIdPermenantly(Long id);
+    Optional<ImportSummary> importProperties(InputStream body, ImportFormat format);
 }
@@ -1,15 +1,30 @@
 package gr.europeandynamics.web.technico.services;
 
+import gr.europeandynamics.web.technico.dtos.CascadeSummary;
+import gr.europeandynamics.web.technico.dtos.Cursor;
+import gr.europeandynamics.web.technico.dtos.ImportSummary;
+import gr.europeandynamics.web.technico.dtos.Page;
+import gr.europeandynamics.web.technico.dtos.PropertySummary;
+import gr.europeandynamics.web.technico.dtos.UpdateResult;
 import gr.europeandynamics.web.technico.exceptions.CustomException;
+import gr.europeandynamics.web.technico.importers.ImportFormat;
+import gr.europeandynamics.web.technico.importers.ImportPipeline;
+import gr.europeandynamics.web.technico.importers.ImportReport;
+import gr.europeandynamics.web.technico.importers.PropertyCSVImporter;
 import gr.europeandynamics.web.technico.models.Property;
 import gr.europeandynamics.web.technico.models.PropertyType;
+import gr.europeandynamics.web.technico.repositories.CascadeRepository;
 import gr.europeandynamics.web.technico.repositories.PropertyRepositoryImpl;
 import gr.europeandynamics.web.technico.repositories.UserRepositoryImpl;
 import gr.europeandynamics.web.technico.validators.PropertyValidator;
 import gr.europeandynamics.web.technico.models.User;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.inject.Inject;
+import jakarta.persistence.PersistenceException;
 import jakarta.transaction.Transactional;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
 import java.util.List;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
@@ -27,6 +42,15 @@ public class PropertyServiceImpl implements PropertyService {
     @Inject
     private PropertyValidator propertyValidator;
 
+    @Inject
+    private CascadeRepository cascadeRepository;
+
+    @Inject
+    private PropertyCSVImporter propertyCSVImporter;
+
+    @Inject
+    private ImportPipeline importPipeline;
+
     /**
      * Creates a new Property with the provided details.
      *
@@ -67,34 +91,38 @@ public class PropertyServiceImpl implements PropertyService {
     }
 
     /**
-     * Updates the details of an existing Property.
+     * Updates the details of an existing Property in a single UPDATE,
+     * conditioned on its version when one is given. The Property is only
+     * read afterwards, to return it, or to tell a missing Property from a
+     * version conflict.
      *
      * @param property the Property entity with updated details
-     * @return an Optional containing the updated Property if successful, or an
-     * empty Optional if the property does not exist
+     * @param version the version the Property must have, or null to update
+     * whatever version it has
+     * @return the updated Property, or the reason it was not updated
      */
     @Override
-    @Transactional
-    public Optional<Property> updateProperty(Property property) {
+    public UpdateResult<Property> updateProperty(Property property, Long version) {
         try {
             propertyValidator.validateProperty(property);
-            Optional<Property> existingPropertyOptional = propertyRepository.getById(property.getId());
-            if (existingPropertyOptional.isEmpty()) {
-                log.error("Property with ID {} not found.", property.getId());
-                throw new CustomException("Property with ID " + property.getId() + " not found.");
-            }
-            Property existingProperty = existingPropertyOptional.get();
-            existingProperty.setE9(property.getE9());
-            existingProperty.setPropertyAddress(property.getPropertyAddress());
-            existingProperty.setConstructionYear(property.getConstructionYear());
-            existingProperty.setPropertyType(property.getPropertyType());
-            existingProperty.setUser(property.getUser());
-            Optional<Property> updatedProperty = propertyRepository.save(existingProperty);
-            return updatedProperty;
         } catch (CustomException e) {
             log.error("Error updating property: {}", e.getMessage());
-            return Optional.empty();
+            return UpdateResult.of(UpdateResult.Outcome.INVALID);
+        }
+        int updated;
+        try {
+            updated = propertyRepository.update(property, version);
+        } catch (PersistenceException e) {
+            log.error("Error updating property {}: {}", property.getId(), e.getMessage());
+            return UpdateResult.of(UpdateResult.Outcome.INVALID);
         }
+        Optional<Property> current = propertyRepository.getById(property.getId());
+        if (current.isEmpty()) {
+            return UpdateResult.of(UpdateResult.Outcome.NOT_FOUND);
+        }
+        return updated == 0
+                ? UpdateResult.of(UpdateResult.Outcome.VERSION_CONFLICT)
+                : UpdateResult.updated(current.get());
     }
 
     /**
@@ -110,15 +138,17 @@ public class PropertyServiceImpl implements PropertyService {
     }
 
     /**
-     * Finds all Properties associated with a given VAT number.
+     * Finds the summaries of all Properties associated with a given VAT
+     * number.
      *
      * @param vat the VAT number of the user whose properties are to be
      * retrieved
-     * @return a List of Properties associated with the specified VAT number
+     * @return a List of the summaries of the Properties associated with the
+     * specified VAT number
      */
     @Override
-    public List<Property> findPropertyByVAT(String vat) {
-        return propertyRepository.findPropertiesByVAT(vat);
+    public List<PropertySummary> findPropertyByVAT(String vat) {
+        return propertyRepository.findPropertySummariesByVAT(vat);
     }
 
     /**
@@ -131,6 +161,27 @@ public class PropertyServiceImpl implements PropertyService {
         return propertyRepository.getAll();
     }
 
+    /**
+     * Retrieves a page of the summaries of Properties ordered by ID.
+     *
+     * @param after the cursor returned with the previous page, or null for the
+     * first page
+     * @param limit the requested page size, or null for the default
+     * @return an Optional containing the page, or an empty Optional if the
+     * cursor is invalid
+     */
+    @Override
+    public Optional<Page<PropertySummary>> findPropertiesPage(String after, Integer limit) {
+        try {
+            int pageSize = Page.clampLimit(limit);
+            List<PropertySummary> properties = propertyRepository.getSummaryPage(Cursor.decode(after), pageSize + 1);
+            return Optional.of(Page.of(properties, pageSize, property -> Cursor.encode(property.id())));
+        } catch (CustomException e) {
+            log.error("Error retrieving properties page: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
     /**
      * Finds a Property by its ID.
      *
@@ -144,40 +195,108 @@ public class PropertyServiceImpl implements PropertyService {
     }
 
     /**
-     * Safely deletes a Property by marking it as deleted.
+     * Finds the entity tag of a Property from its version and the version of
+     * its owner, without loading either of them.
+     *
+     * @param id the ID of the property
+     * @return an Optional containing the entity tag if the Property exists,
+     * or an empty Optional if not
+     */
+    @Override
+    public Optional<String> findPropertyEntityTag(Long id) {
+        return propertyRepository.findEntityTag(id);
+    }
+
+    /**
+     * Safely deletes a Property by marking it and its repairs as deleted,
+     * with one bulk UPDATE per table.
      *
      * @param id the ID of the property to be deleted
-     * @return true if the Property was successfully marked as deleted, false if
-     * not found
+     * @return an Optional containing the number of rows marked in each
+     * table, or an empty Optional if the property does not exist
      */
     @Override
     @Transactional
-    public boolean deletePropertyByIdSafely(Long id) {
-        Optional<Property> propertyOptional = propertyRepository.getById(id);
-        if (propertyOptional.isPresent()) {
-            Property property = propertyOptional.get();
-            property.setDeleted(true);
-            propertyRepository.save(property);
-            return true;
-        } else {
-            log.warn("Property with ID: {} not found for soft delete.", id);
-            return false;
+    public Optional<CascadeSummary> deletePropertyByIdSafely(Long id) {
+        return setPropertyDeleted(id, true);
+    }
+
+    /**
+     * Restores a safely deleted Property along with the repairs deleted
+     * with it, with one bulk UPDATE per table. Repairs deleted on their own
+     * before the property stay deleted.
+     *
+     * @param id the ID of the property to be restored
+     * @return an Optional containing the number of rows restored in each
+     * table, or an empty Optional if the property does not exist
+     */
+    @Override
+    @Transactional
+    public Optional<CascadeSummary> restorePropertyById(Long id) {
+        return setPropertyDeleted(id, false);
+    }
+
+    private Optional<CascadeSummary> setPropertyDeleted(Long id, boolean deleted) {
+        if (propertyRepository.getById(id).isEmpty()) {
+            log.warn("Property with ID: {} not found.", id);
+            return Optional.empty();
         }
+        return Optional.of(cascadeRepository.setPropertyDeleted(id, deleted));
     }
 
     /**
-     * Permanently deletes a Property by its ID.
+     * Permanently deletes a Property by its ID, along with its repairs. The
+     * repairs are deleted with bulk DELETEs in chunks of
+     * {@link CascadeRepository#DELETE_CHUNK_SIZE} that commit one at a time,
+     * then the property.
      *
      * @param id the ID of the property to be deleted
-     * @return true if the Property was successfully deleted, false if not found
+     * @return an Optional containing the number of rows deleted in each
+     * table, or an empty Optional if the property does not exist or could
+     * not be deleted
      */
     @Override
-    @Transactional
-    public boolean deletePropertyByIdPermenantly(Long id) {
-        boolean isDeleted = propertyRepository.deleteById(id);
-        if (!isDeleted) {
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Optional<CascadeSummary> deletePropertyByIdPermenantly(Long id) {
+        Optional<Property> property = propertyRepository.getById(id);
+        if (property.isEmpty()) {
             log.warn("Property with ID: {} not found for permanent delete.", id);
+            return Optional.empty();
+        }
+        try {
+            CascadeSummary deleted = CascadeSummary.NONE;
+            CascadeSummary chunk;
+            do {
+                chunk = cascadeRepository.deleteRepairChunkOfProperty(id);
+                deleted = deleted.plus(chunk);
+            } while (chunk.repairs() == CascadeRepository.DELETE_CHUNK_SIZE);
+            return Optional.of(deleted.plus(cascadeRepository.deleteProperty(id, property.get().getE9())));
+        } catch (PersistenceException e) {
+            log.error("Error deleting property {} permanently: {}", id, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Imports properties from a CSV or NDJSON body. The body is read as a
+     * stream, so its size is not limited by memory, and the valid properties
+     * are stored in chunks of one transaction each.
+     *
+     * @param body the body to import
+     * @param format the format of the body
+     * @return an Optional containing the accepted and rejected rows, or an
+     * empty Optional if the body could not be read
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Optional<ImportSummary> importProperties(InputStream body, ImportFormat format) {
+        ImportReport report = new ImportReport();
+        try {
+            importPipeline.run("properties", Channels.newChannel(body), format, propertyCSVImporter, report);
+            return Optional.of(report.toSummary());
+        } catch (IOException e) {
+            log.error("Error importing properties: " + e.getMessage());
+            return Optional.empty();
         }
-        return isDeleted;
     }
 }
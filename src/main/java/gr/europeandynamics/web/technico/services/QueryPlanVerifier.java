@@ -0,0 +1,350 @@
+package gr.europeandynamics.web.technico.services;
+
+import gr.europeandynamics.web.technico.models.Property;
+import gr.europeandynamics.web.technico.models.RepairStatus;
+import gr.europeandynamics.web.technico.models.User;
+import gr.europeandynamics.web.technico.repositories.CascadeRepository;
+import gr.europeandynamics.web.technico.repositories.PropertyRepositoryImpl;
+import gr.europeandynamics.web.technico.repositories.RepairQuery;
+import gr.europeandynamics.web.technico.repositories.RepairRepositoryImpl;
+import gr.europeandynamics.web.technico.repositories.SqlRequestTracker;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.SessionContext;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+
+/**
+ * This class verifies, once the database has been initialized, that every
+ * filtering query of the repositories is served by an index. It calls each
+ * verified repository method, captures the SQL Hibernate generates for it
+ * through a recording {@link SqlRequestTracker}, runs {@code EXPLAIN} on that
+ * SQL with representative parameters and fails the deployment if any table
+ * is read with a full scan.
+ *
+ * The repository methods are called with keys that match no row, so the
+ * caches never answer in place of the database and the bulk statements change
+ * nothing; the transaction of the verification is rolled back regardless.
+ * Chunked deletes only issue their DELETE by primary key once their SELECT
+ * finds rows, so only the SELECT of those is verified.
+ *
+ * The verification only runs when the {@code technico.verifyQueryPlans}
+ * system property is set to true. It should be run against a representative
+ * amount of data, since on a handful of rows MySQL may rightly prefer a full
+ * scan over an index. Listings that read every row by design, such as
+ * {@code streamAllSummaries}, may scan their first table but must read it in
+ * the order of the query without sorting it.
+ */
+@Slf4j
+@Startup
+@Singleton
+@DependsOn("DatabaseInitializer")
+public class QueryPlanVerifier {
+
+    public static final String ENABLED_PROPERTY = "technico.verifyQueryPlans";
+
+    private static final String VAT = "123456780";
+    private static final String E9 = "PROP0000000000000001";
+    private static final long ID = 1L;
+    private static final int LIMIT = 51;
+
+    private static final String MISSING_VAT = "000000000";
+    private static final String MISSING_E9 = "NO-SUCH-E9";
+    private static final long MISSING_ID = 0L;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Resource
+    private SessionContext sessionContext;
+
+    @Inject
+    private RepairRepositoryImpl repairRepository;
+
+    @Inject
+    private PropertyRepositoryImpl propertyRepository;
+
+    @Inject
+    private CascadeRepository cascadeRepository;
+
+    /**
+     * Explains the SQL of every verified repository method and fails with
+     * the full list of offending queries if any of them scans a whole table.
+     *
+     * @throws IllegalStateException if any verified query does a full scan,
+     * or issues other statements than expected
+     */
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void verify() {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+            return;
+        }
+        List<String> problems = new ArrayList<>();
+        List<PlannedQuery> queries = plannedQueries();
+        try {
+            for (PlannedQuery query : queries) {
+                List<String> statements = capture(query);
+                if (statements.size() != query.parameters().size()) {
+                    problems.add(query.name() + " issued " + statements.size() + " statements instead of "
+                            + query.parameters().size() + ": " + statements);
+                    continue;
+                }
+                for (int i = 0; i < statements.size(); i++) {
+                    problems.addAll(explain(query, statements.get(i), query.parameters().get(i)));
+                }
+            }
+        } finally {
+            sessionContext.setRollbackOnly();
+        }
+        if (!problems.isEmpty()) {
+            problems.forEach(problem -> log.error("Query plan: {}", problem));
+            throw new IllegalStateException(problems.size() + " repository queries are not served by an index.");
+        }
+        log.info("All {} verified repository queries are served by an index.", queries.size());
+    }
+
+    /**
+     * Lists the verified repository methods, each with the parameters to
+     * explain every statement it issues with, in the order of the statements
+     * and of their placeholders.
+     */
+    private List<PlannedQuery> plannedQueries() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime weekAgo = now.minusDays(7);
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        User missingUser = new User();
+        missingUser.setVat(MISSING_VAT);
+        Property missingProperty = new Property();
+        missingProperty.setId(MISSING_ID);
+        RepairQuery byStatus = RepairQuery.builder()
+                .statuses(List.of(RepairStatus.PENDING))
+                .limit(LIMIT)
+                .build();
+        RepairQuery byOwner = RepairQuery.builder()
+                .ownerVat(MISSING_VAT)
+                .afterId(MISSING_ID)
+                .limit(LIMIT)
+                .build();
+        RepairQuery byDates = RepairQuery.builder()
+                .submittedFrom(weekAgo)
+                .submittedTo(weekAgo)
+                .sort(RepairQuery.SortField.SUBMISSION_DATE)
+                .descending(true)
+                .afterId(MISSING_ID)
+                .afterSubmissionDate(weekAgo)
+                .limit(LIMIT)
+                .build();
+
+        return List.of(
+                query("RepairRepositoryImpl.getSummaryPage",
+                        () -> repairRepository.getSummaryPage(MISSING_ID, LIMIT),
+                        parameters(ID, LIMIT)),
+                query("RepairRepositoryImpl.findEntityTag",
+                        () -> repairRepository.findEntityTag(MISSING_ID),
+                        parameters(ID)),
+                query("RepairRepositoryImpl.findPendingRepairSummaries",
+                        repairRepository::findPendingRepairSummaries,
+                        parameters(RepairStatus.PENDING.name())),
+                query("RepairRepositoryImpl.findPendingRepairsByUser",
+                        () -> repairRepository.findPendingRepairsByUser(missingUser),
+                        parameters(VAT, RepairStatus.PENDING.name())),
+                query("RepairRepositoryImpl.findRepairSummariesByUserId",
+                        () -> repairRepository.findRepairSummariesByUserId(MISSING_ID),
+                        parameters(ID)),
+                query("RepairRepositoryImpl.findRepairsByPropertyId",
+                        () -> repairRepository.findRepairsByPropertyId(missingProperty),
+                        parameters(ID)),
+                query("RepairRepositoryImpl.findInProgressRepairs",
+                        repairRepository::findInProgressRepairs,
+                        parameters(RepairStatus.INPROGRESS.name())),
+                query("RepairRepositoryImpl.findAcceptedRepairs",
+                        repairRepository::findAcceptedRepairs,
+                        parameters()),
+                query("RepairRepositoryImpl.findInprogressRepairSummariesToday",
+                        repairRepository::findInprogressRepairSummariesToday,
+                        parameters(RepairStatus.INPROGRESS.name(), today, now)),
+                query("RepairRepositoryImpl.findRepairSummariesByDates",
+                        () -> repairRepository.findRepairSummariesByDates(weekAgo, weekAgo, null),
+                        parameters(weekAgo, now)),
+                query("RepairRepositoryImpl.findRepairSummariesByDates(userId)",
+                        () -> repairRepository.findRepairSummariesByDates(weekAgo, weekAgo, MISSING_ID),
+                        parameters(weekAgo, now, ID)),
+                query("RepairRepositoryImpl.searchSummaries(status)",
+                        () -> repairRepository.searchSummaries(byStatus),
+                        parameters(RepairStatus.PENDING.name(), LIMIT)),
+                query("RepairRepositoryImpl.searchSummaries(ownerVat)",
+                        () -> repairRepository.searchSummaries(byOwner),
+                        parameters(VAT, ID, LIMIT)),
+                query("RepairRepositoryImpl.searchSummaries(dates)",
+                        () -> repairRepository.searchSummaries(byDates),
+                        parameters(weekAgo, now, now, now, ID, LIMIT)),
+                new PlannedQuery("RepairRepositoryImpl.streamAllSummaries",
+                        () -> drain(repairRepository.streamAllSummaries()),
+                        true, List.of(parameters())),
+                query("RepairRepositoryImpl.streamSummariesByUserId",
+                        () -> drain(repairRepository.streamSummariesByUserId(MISSING_ID)),
+                        parameters(ID)),
+                query("RepairRepositoryImpl.streamSummariesByDates",
+                        () -> drain(repairRepository.streamSummariesByDates(weekAgo, weekAgo, null)),
+                        parameters(weekAgo, now)),
+                query("RepairRepositoryImpl.streamSummariesByDates(userId)",
+                        () -> drain(repairRepository.streamSummariesByDates(weekAgo, weekAgo, MISSING_ID)),
+                        parameters(weekAgo, now, ID)),
+                query("RepairRepositoryImpl.findStatusesForUpdate",
+                        () -> repairRepository.findStatusesForUpdate(List.of(MISSING_ID)),
+                        parameters(ID)),
+                query("RepairRepositoryImpl.transition",
+                        () -> repairRepository.transition(List.of(MISSING_ID), RepairStatus.PENDING,
+                                RepairStatus.INPROGRESS, true, now),
+                        parameters(RepairStatus.INPROGRESS.name(), true, now, ID, RepairStatus.PENDING.name())),
+                query("PropertyRepositoryImpl.getSummaryPage",
+                        () -> propertyRepository.getSummaryPage(MISSING_ID, LIMIT),
+                        parameters(ID, LIMIT)),
+                query("PropertyRepositoryImpl.findEntityTag",
+                        () -> propertyRepository.findEntityTag(MISSING_ID),
+                        parameters(ID)),
+                query("PropertyRepositoryImpl.findPropertyByE9",
+                        () -> propertyRepository.findPropertyByE9(MISSING_E9),
+                        parameters(E9)),
+                query("PropertyRepositoryImpl.findPropertySummariesByVAT",
+                        () -> propertyRepository.findPropertySummariesByVAT(MISSING_VAT),
+                        parameters(VAT)),
+                query("CascadeRepository.setUserDeleted",
+                        () -> cascadeRepository.setUserDeleted(MISSING_VAT, true),
+                        parameters(true, true, true, VAT),
+                        parameters(true, true, true, VAT),
+                        parameters(true, true, VAT)),
+                query("CascadeRepository.setUserDeleted(restore)",
+                        () -> cascadeRepository.setUserDeleted(MISSING_VAT, false),
+                        parameters(false, false, false, VAT),
+                        parameters(false, false, false, VAT),
+                        parameters(false, false, VAT)),
+                query("CascadeRepository.setPropertyDeleted",
+                        () -> cascadeRepository.setPropertyDeleted(MISSING_ID, true),
+                        parameters(true, true, true, ID),
+                        parameters(true, true, ID)),
+                query("CascadeRepository.setPropertyDeleted(restore)",
+                        () -> cascadeRepository.setPropertyDeleted(MISSING_ID, false),
+                        parameters(false, false, false, ID),
+                        parameters(false, false, ID)),
+                query("CascadeRepository.deleteRepairChunkOfOwner",
+                        () -> cascadeRepository.deleteRepairChunkOfOwner(MISSING_VAT),
+                        parameters(VAT, CascadeRepository.DELETE_CHUNK_SIZE)),
+                query("CascadeRepository.deleteRepairChunkOfProperty",
+                        () -> cascadeRepository.deleteRepairChunkOfProperty(MISSING_ID),
+                        parameters(ID, CascadeRepository.DELETE_CHUNK_SIZE)),
+                query("CascadeRepository.deletePropertyChunkOfOwner",
+                        () -> cascadeRepository.deletePropertyChunkOfOwner(MISSING_VAT),
+                        parameters(VAT, CascadeRepository.DELETE_CHUNK_SIZE)),
+                query("CascadeRepository.deleteProperty",
+                        () -> cascadeRepository.deleteProperty(MISSING_ID, MISSING_E9),
+                        parameters(ID),
+                        parameters(ID)),
+                query("CascadeRepository.deleteUser",
+                        () -> cascadeRepository.deleteUser(missingUser),
+                        parameters(VAT),
+                        parameters(VAT),
+                        parameters(VAT))
+        );
+    }
+
+    /**
+     * Calls a repository method and captures the statements it prepares.
+     */
+    private static List<String> capture(PlannedQuery query) {
+        SqlRequestTracker tracker = SqlRequestTracker.record();
+        try {
+            query.call().run();
+        } finally {
+            SqlRequestTracker.end();
+        }
+        return tracker.getRecordedStatements();
+    }
+
+    /**
+     * Explains one statement and reports every table it reads with a full
+     * scan. The first table of a query that reads every row by design may be
+     * scanned, as long as it is not sorted afterwards.
+     */
+    private List<String> explain(PlannedQuery query, String sql, List<Object> parameters) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            List<String> problems = new ArrayList<>();
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+                int placeholders = explain.getParameterMetaData().getParameterCount();
+                if (placeholders != parameters.size()) {
+                    problems.add(query.name() + " has " + placeholders + " parameters instead of "
+                            + parameters.size() + ": " + sql);
+                    return problems;
+                }
+                for (int i = 0; i < parameters.size(); i++) {
+                    explain.setObject(i + 1, parameters.get(i));
+                }
+                try (ResultSet plan = explain.executeQuery()) {
+                    boolean first = true;
+                    while (plan.next()) {
+                        String table = plan.getString("table");
+                        String type = plan.getString("type");
+                        String extra = plan.getString("Extra");
+                        log.info("{}: table={}, type={}, key={}, extra={}", query.name(),
+                                table, type, plan.getString("key"), extra);
+                        if (first && query.readsEveryRow()) {
+                            if (extra != null && extra.contains("Using filesort")) {
+                                problems.add(query.name() + " sorts " + table + ": " + sql);
+                            }
+                        } else if ("ALL".equals(type)) {
+                            problems.add(query.name() + " scans " + table + ": " + sql);
+                        }
+                        first = false;
+                    }
+                }
+            }
+            return problems;
+        });
+    }
+
+    private static void drain(Stream<?> stream) {
+        try (stream) {
+            stream.forEach(row -> {
+            });
+        }
+    }
+
+    @SafeVarargs
+    private static PlannedQuery query(String name, Runnable call, List<Object>... parameters) {
+        return new PlannedQuery(name, call, false, List.of(parameters));
+    }
+
+    private static List<Object> parameters(Object... values) {
+        return Arrays.asList(values);
+    }
+
+    /**
+     * A verified repository method.
+     *
+     * @param name the name to report the method by
+     * @param call calls the method with keys that match no row
+     * @param readsEveryRow whether the method reads every row by design
+     * @param parameters the parameters of each statement the method issues
+     */
+    private record PlannedQuery(String name, Runnable call, boolean readsEveryRow,
+            List<List<Object>> parameters) {
+
+    }
+}
@@ -0,0 +1,8 @@
+package gr.europeandynamics.web.technico.services;
+
+import gr.europeandynamics.web.technico.dtos.SqlStats;
+
+public interface QueryStatisticsService {
+
+    SqlStats getQueryStatistics();
+}
@@ -0,0 +1,57 @@
+package gr.europeandynamics.web.technico.services;
+
+import gr.europeandynamics.web.technico.dtos.QueryStats;
+import gr.europeandynamics.web.technico.dtos.SqlStats;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+@RequestScoped
+public class QueryStatisticsServiceImpl implements QueryStatisticsService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Retrieves the statement, entity and query counts Hibernate has gathered
+     * since the application started, with the statistics of each query.
+     *
+     * @return the SQL statistics, with the queries sorted by the total time
+     * spent executing them
+     */
+    @Override
+    public SqlStats getQueryStatistics() {
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        String[] queries = statistics.getQueries();
+        List<QueryStats> result = new ArrayList<>(queries.length);
+        for (String query : queries) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            result.add(new QueryStats(query,
+                    queryStatistics.getExecutionCount(),
+                    queryStatistics.getExecutionRowCount(),
+                    queryStatistics.getExecutionTotalTime(),
+                    queryStatistics.getExecutionAvgTimeAsDouble(),
+                    queryStatistics.getExecutionMaxTime(),
+                    queryStatistics.getCacheHitCount(),
+                    queryStatistics.getCacheMissCount()));
+        }
+        result.sort(Comparator.comparingLong(QueryStats::totalMillis).reversed());
+        return new SqlStats(statistics.getSessionOpenCount(),
+                statistics.getPrepareStatementCount(),
+                statistics.getQueryExecutionCount(),
+                statistics.getEntityLoadCount(),
+                statistics.getEntityFetchCount(),
+                statistics.getCollectionFetchCount(),
+                statistics.getQueryExecutionMaxTimeQueryString(),
+                statistics.getQueryExecutionMaxTime(),
+                result);
+    }
+}
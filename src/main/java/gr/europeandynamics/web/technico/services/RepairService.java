@@ -1,43 +1,69 @@
 package gr.europeandynamics.web.technico.services;
 
+import gr.europeandynamics.web.technico.dtos.ImportSummary;
+import gr.europeandynamics.web.technico.dtos.Page;
+import gr.europeandynamics.web.technico.dtos.RepairSummary;
+import gr.europeandynamics.web.technico.dtos.RepairTransition;
+import gr.europeandynamics.web.technico.dtos.TransitionSummary;
+import gr.europeandynamics.web.technico.dtos.UpdateResult;
+import gr.europeandynamics.web.technico.importers.ImportFormat;
 import gr.europeandynamics.web.technico.models.Property;
 import gr.europeandynamics.web.technico.models.Repair;
 import gr.europeandynamics.web.technico.models.RepairType;
 import gr.europeandynamics.web.technico.models.User;
+import gr.europeandynamics.web.technico.repositories.RepairQuery;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface RepairService {
 
     Optional<Repair> createRepair(RepairType repairType, String shortDescription,
             String description, Property property);
 
-    Optional<Repair> updateRepair(Repair repair);
+    UpdateResult<Repair> updateRepair(Repair repair, Long version);
 
     Optional<Repair> getRepairById(Long id);
 
+    Optional<String> getRepairEntityTag(Long id);
+
     List<Repair> getAllRepairs();
 
-    List<Repair> getPendingRepairs();
+    Optional<Page<RepairSummary>> getRepairsPage(String after, Integer limit);
+
+    List<RepairSummary> getPendingRepairs();
 
     List<Repair> getPendingRepairsByUser(User user);
 
     List<Repair> getInProgressRepairs();
 
-    List<Repair> getInprogressRepairsToday();
+    List<RepairSummary> getInprogressRepairsToday();
 
-    List<Repair> getRepairsByUserId(Long userId);
+    List<RepairSummary> getRepairsByUserId(Long userId);
 
     List<Repair> getRepairsByProperty(Property property);
 
     List<Repair> getAcceptedRepairs();
 
-    List<Repair> getRepairsByDate(String date, Long userId);
+    List<RepairSummary> getRepairsByDate(String date, Long userId);
+
+    List<RepairSummary> getRepairsByRangeOfDates(String startDate, String endDate, Long userId);
+
+    Optional<Page<RepairSummary>> searchRepairs(RepairQuery repairQuery, String after, Integer limit);
 
-    List<Repair> getRepairsByRangeOfDates(String startDate, String endDate, Long userId);
+    void streamAllRepairs(Consumer<Stream<RepairSummary>> consumer);
+
+    void streamRepairsByUserId(Long userId, Consumer<Stream<RepairSummary>> consumer);
+
+    void streamRepairsByRangeOfDates(String startDate, String endDate, Long userId, Consumer<Stream<RepairSummary>> consumer);
 
     boolean deleteRepairPermantly(Long id);
 
     boolean deleteRepairSafely(Long id);
 
+    Optional<TransitionSummary> transitionRepairs(List<RepairTransition> transitions);
+
+    Optional<ImportSummary> importRepairs(InputStream body, ImportFormat format);
 }
@@ -1,20 +1,43 @@
 package gr.europeandynamics.web.technico.services;
 
+import gr.europeandynamics.web.technico.dtos.Cursor;
+import gr.europeandynamics.web.technico.dtos.ImportSummary;
+import gr.europeandynamics.web.technico.dtos.Page;
+import gr.europeandynamics.web.technico.dtos.RepairSummary;
+import gr.europeandynamics.web.technico.dtos.RepairTransition;
+import gr.europeandynamics.web.technico.dtos.TransitionSummary;
+import gr.europeandynamics.web.technico.dtos.UpdateResult;
 import gr.europeandynamics.web.technico.exceptions.CustomException;
+import gr.europeandynamics.web.technico.importers.ImportFormat;
+import gr.europeandynamics.web.technico.importers.ImportPipeline;
+import gr.europeandynamics.web.technico.importers.ImportReport;
+import gr.europeandynamics.web.technico.importers.RepairCSVImporter;
 import gr.europeandynamics.web.technico.models.Property;
 import gr.europeandynamics.web.technico.models.Repair;
+import gr.europeandynamics.web.technico.models.RepairStatus;
 import gr.europeandynamics.web.technico.models.RepairType;
+import gr.europeandynamics.web.technico.repositories.RepairQuery;
 import gr.europeandynamics.web.technico.repositories.RepairRepositoryImpl;
 import gr.europeandynamics.web.technico.validators.RepairValidator;
 import gr.europeandynamics.web.technico.models.User;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -27,6 +50,12 @@ public class RepairServiceImpl implements RepairService {
     @Inject
     private RepairValidator repairValidator;
 
+    @Inject
+    private RepairCSVImporter repairCSVImporter;
+
+    @Inject
+    private ImportPipeline importPipeline;
+
     /**
      * Creates a new Repair with the provided details.
      *
@@ -59,41 +88,33 @@ public class RepairServiceImpl implements RepairService {
     }
 
     /**
-     * Updates the details of an existing Repair.
+     * Updates the details of an existing Repair in a single UPDATE,
+     * conditioned on its version when one is given. The Repair is only read
+     * afterwards, to return it, or to tell a missing Repair from a version
+     * conflict.
      *
      * @param repair the Repair entity with updated details
-     * @return an Optional containing the updated Repair if successful, or an
-     * empty Optional if the repair does not exist
+     * @param version the version the Repair must have, or null to update
+     * whatever version it has
+     * @return the updated Repair, or the reason it was not updated
      */
     @Override
-    @Transactional
-    public Optional<Repair> updateRepair(Repair repair) {
+    public UpdateResult<Repair> updateRepair(Repair repair, Long version) {
         try {
             repairValidator.validateRepair(repair);
-
-            Optional<Repair> existingRepairOptional = repairRepository.getById(repair.getId());
-            if (existingRepairOptional.isEmpty()) {
-                log.error("Repair with ID {} not found.", repair.getId());
-                throw new CustomException("Repair with ID " + repair.getId() + " not found.");
-            }
-            Repair existingRepair = existingRepairOptional.get();
-            existingRepair.setRepairType(repair.getRepairType());
-            existingRepair.setShortDescription(repair.getShortDescription());
-            existingRepair.setDescription(repair.getDescription());
-            existingRepair.setProposedStartDate(repair.getProposedStartDate());
-            existingRepair.setProposedEndDate(repair.getProposedEndDate());
-            existingRepair.setProposedCost(repair.getProposedCost());
-            existingRepair.setAcceptanceStatus(repair.getAcceptanceStatus());
-            existingRepair.setRepairStatus(repair.getRepairStatus());
-            existingRepair.setActualStartDate(repair.getActualStartDate());
-            existingRepair.setActualEndDate(repair.getActualEndDate());
-
-            Optional<Repair> updatedRepair = repairRepository.save(existingRepair);
-            return updatedRepair;
         } catch (CustomException e) {
             log.error("Error updating repair: {}", e.getMessage(), e);
-            return Optional.empty();
+            return UpdateResult.of(UpdateResult.Outcome.INVALID);
+        }
+        int updated = repairRepository.update(repair, version);
+        Optional<Repair> current = repairRepository.getById(repair.getId());
+        if (current.isEmpty()) {
+            log.error("Repair with ID {} not found.", repair.getId());
+            return UpdateResult.of(UpdateResult.Outcome.NOT_FOUND);
         }
+        return updated == 0
+                ? UpdateResult.of(UpdateResult.Outcome.VERSION_CONFLICT)
+                : UpdateResult.updated(current.get());
     }
 
     /**
@@ -108,6 +129,19 @@ public class RepairServiceImpl implements RepairService {
         return repairRepository.getById(id);
     }
 
+    /**
+     * Retrieves the entity tag of a Repair from its version and the versions
+     * of its property and owner, without loading any of them.
+     *
+     * @param id the ID of the Repair
+     * @return an Optional containing the entity tag if the Repair exists, or
+     * an empty Optional if not
+     */
+    @Override
+    public Optional<String> getRepairEntityTag(Long id) {
+        return repairRepository.findEntityTag(id);
+    }
+
     /**
      * Retrieves all Repairs from the repository.
      *
@@ -119,13 +153,34 @@ public class RepairServiceImpl implements RepairService {
     }
 
     /**
-     * Retrieves all pending Repairs.
+     * Retrieves a page of the summaries of Repairs ordered by ID.
      *
-     * @return a List of pending Repairs
+     * @param after the cursor returned with the previous page, or null for the
+     * first page
+     * @param limit the requested page size, or null for the default
+     * @return an Optional containing the page, or an empty Optional if the
+     * cursor is invalid
      */
     @Override
-    public List<Repair> getPendingRepairs() {
-        return repairRepository.findPendingRepairs();
+    public Optional<Page<RepairSummary>> getRepairsPage(String after, Integer limit) {
+        try {
+            int pageSize = Page.clampLimit(limit);
+            List<RepairSummary> repairs = repairRepository.getSummaryPage(Cursor.decode(after), pageSize + 1);
+            return Optional.of(Page.of(repairs, pageSize, repair -> Cursor.encode(repair.id())));
+        } catch (CustomException e) {
+            log.error("Error retrieving repairs page: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Retrieves the summaries of all pending Repairs.
+     *
+     * @return a List of the summaries of pending Repairs
+     */
+    @Override
+    public List<RepairSummary> getPendingRepairs() {
+        return repairRepository.findPendingRepairSummaries();
     }
 
     /**
@@ -150,14 +205,16 @@ public class RepairServiceImpl implements RepairService {
     }
 
     /**
-     * Retrieves all Repairs associated with a specific User ID.
+     * Retrieves the summaries of all Repairs associated with a specific User
+     * ID.
      *
      * @param userId the ID of the User whose Repairs are to be retrieved
-     * @return a List of Repairs associated with the specified User ID
+     * @return a List of the summaries of the Repairs associated with the
+     * specified User ID
      */
     @Override
-    public List<Repair> getRepairsByUserId(Long userId) {
-        return repairRepository.findRepairsByUserId(userId);
+    public List<RepairSummary> getRepairsByUserId(Long userId) {
+        return repairRepository.findRepairSummariesByUserId(userId);
     }
 
     /**
@@ -182,46 +239,136 @@ public class RepairServiceImpl implements RepairService {
     }
 
     /**
-     * Retrieves all Repairs that are in progress today.
+     * Retrieves the summaries of all Repairs that are in progress today.
      *
-     * @return a List of Repairs that are in progress today
+     * @return a List of the summaries of the Repairs that are in progress
+     * today
      */
     @Override
-    public List<Repair> getInprogressRepairsToday() {
-        return repairRepository.findInprogressRepairsToday();
+    public List<RepairSummary> getInprogressRepairsToday() {
+        return repairRepository.findInprogressRepairSummariesToday();
     }
 
     /**
-     * Retrieves Repairs that were made on a specific date for a User.
+     * Retrieves the summaries of the Repairs that were made on a specific
+     * date for a User.
      *
      * @param date the date to filter Repairs
      * @param userId the ID of the User whose Repairs are to be retrieved
-     * @return a List of Repairs made on the specified date for the User
+     * @return a List of the summaries of the Repairs made on the specified
+     * date for the User
      */
     @Override
-    public List<Repair> getRepairsByDate(String date, Long userId) {
+    public List<RepairSummary> getRepairsByDate(String date, Long userId) {
         LocalDate parsedDate = LocalDate.parse(date, DateTimeFormatter.ISO_DATE);
         LocalDateTime startDate = parsedDate.atStartOfDay();
         LocalDateTime endDate = parsedDate.atTime(23, 59, 59);
 
-        return repairRepository.findRepairsByDates(startDate, endDate, userId);
+        return repairRepository.findRepairSummariesByDates(startDate, endDate, userId);
     }
 
     /**
-     * Retrieves Repairs made within a specified date range for a User.
+     * Retrieves the summaries of the Repairs made within a specified date
+     * range for a User.
      *
      * @param startDateStr the start date of the range
      * @param endDateStr the end date of the range
      * @param userId the ID of the User whose Repairs are to be retrieved
-     * @return a List of Repairs made within the specified date range for the
-     * User
+     * @return a List of the summaries of the Repairs made within the
+     * specified date range for the User
      */
     @Override
-    public List<Repair> getRepairsByRangeOfDates(String startDateStr, String endDateStr, Long userId) {
+    public List<RepairSummary> getRepairsByRangeOfDates(String startDateStr, String endDateStr, Long userId) {
         LocalDateTime startDate = LocalDate.parse(startDateStr, DateTimeFormatter.ISO_DATE).atStartOfDay();
         LocalDateTime endDate = LocalDate.parse(endDateStr, DateTimeFormatter.ISO_DATE).atTime(23, 59, 59);
 
-        return repairRepository.findRepairsByDates(startDate, endDate, userId);
+        return repairRepository.findRepairSummariesByDates(startDate, endDate, userId);
+    }
+
+    /**
+     * Searches Repairs by the given criteria, one page of summaries at a
+     * time.
+     *
+     * @param repairQuery the search criteria and sort order
+     * @param after the cursor returned with the previous page, or null for the
+     * first page
+     * @param limit the requested page size, or null for the default
+     * @return an Optional containing the page, or an empty Optional if the
+     * cursor is invalid or does not match the sort order
+     */
+    @Override
+    public Optional<Page<RepairSummary>> searchRepairs(RepairQuery repairQuery, String after, Integer limit) {
+        try {
+            int pageSize = Page.clampLimit(limit);
+            boolean bySubmissionDate = repairQuery.getSort() == RepairQuery.SortField.SUBMISSION_DATE;
+            RepairQuery.RepairQueryBuilder pageQuery = repairQuery.toBuilder()
+                    .afterId(Cursor.decode(after))
+                    .limit(pageSize + 1);
+            if (bySubmissionDate) {
+                pageQuery.afterSubmissionDate(Cursor.decodeSortValue(after));
+            }
+            List<RepairSummary> repairs = repairRepository.searchSummaries(pageQuery.build());
+            return Optional.of(Page.of(repairs, pageSize, repair -> bySubmissionDate
+                    ? Cursor.encode(repair.submissionDate(), repair.id())
+                    : Cursor.encode(repair.id())));
+        } catch (CustomException e) {
+            log.error("Error searching repairs: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Streams the summaries of all Repairs to the given consumer within a
+     * single transaction.
+     *
+     * @param consumer the consumer of the summaries, which must not keep the
+     * Stream beyond the call
+     */
+    @Override
+    @Transactional
+    public void streamAllRepairs(Consumer<Stream<RepairSummary>> consumer) {
+        try (Stream<RepairSummary> repairs = repairRepository.streamAllSummaries()) {
+            consumer.accept(repairs);
+        }
+    }
+
+    /**
+     * Streams the summaries of the Repairs of a specific User ID to the given
+     * consumer within a single transaction.
+     *
+     * @param userId the ID of the User whose Repairs are to be streamed
+     * @param consumer the consumer of the summaries, which must not keep the
+     * Stream beyond the call
+     */
+    @Override
+    @Transactional
+    public void streamRepairsByUserId(Long userId, Consumer<Stream<RepairSummary>> consumer) {
+        try (Stream<RepairSummary> repairs = repairRepository.streamSummariesByUserId(userId)) {
+            consumer.accept(repairs);
+        }
+    }
+
+    /**
+     * Streams the summaries of the Repairs made within a specified date range,
+     * optionally for a User, to the given consumer within a single
+     * transaction.
+     *
+     * @param startDateStr the start date of the range
+     * @param endDateStr the end date of the range
+     * @param userId the ID of the User whose Repairs are to be streamed, or
+     * null for all Users
+     * @param consumer the consumer of the summaries, which must not keep the
+     * Stream beyond the call
+     */
+    @Override
+    @Transactional
+    public void streamRepairsByRangeOfDates(String startDateStr, String endDateStr, Long userId, Consumer<Stream<RepairSummary>> consumer) {
+        LocalDateTime startDate = LocalDate.parse(startDateStr, DateTimeFormatter.ISO_DATE).atStartOfDay();
+        LocalDateTime endDate = LocalDate.parse(endDateStr, DateTimeFormatter.ISO_DATE).atTime(23, 59, 59);
+
+        try (Stream<RepairSummary> repairs = repairRepository.streamSummariesByDates(startDate, endDate, userId)) {
+            consumer.accept(repairs);
+        }
     }
 
     /**
@@ -254,4 +401,113 @@ public class RepairServiceImpl implements RepairService {
             return false;
         }
     }
+
+    /**
+     * Applies a batch of status transitions with a few set-based statements:
+     * one SELECT that locks the repairs of the batch and reads their
+     * statuses, then one UPDATE per distinct combination of {@code from},
+     * {@code to} and acceptance status. The UPDATEs only match repairs that
+     * still have the {@code from} status, and only legal transitions reach
+     * them.
+     *
+     * @param transitions the transitions, at most {@link RepairTransition#MAX_BATCH}
+     * @return an Optional containing the outcome of each transition, or an
+     * empty Optional if the batch is empty or too large
+     */
+    @Override
+    @Transactional
+    public Optional<TransitionSummary> transitionRepairs(List<RepairTransition> transitions) {
+        if (transitions == null || transitions.isEmpty() || transitions.size() > RepairTransition.MAX_BATCH) {
+            log.error("Rejected a batch of {} transitions.", transitions == null ? 0 : transitions.size());
+            return Optional.empty();
+        }
+        Set<Long> ids = new HashSet<>();
+        for (RepairTransition transition : transitions) {
+            if (transition != null && transition.id() != null) {
+                ids.add(transition.id());
+            }
+        }
+        Map<Long, RepairStatus> statuses = repairRepository.findStatusesForUpdate(ids);
+
+        RepairTransition.Outcome[] outcomes = new RepairTransition.Outcome[transitions.size()];
+        Map<RepairTransition, List<Long>> groups = new LinkedHashMap<>();
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            RepairTransition transition = transitions.get(i);
+            outcomes[i] = outcomeOf(transition, statuses, seen);
+            if (outcomes[i] == RepairTransition.Outcome.APPLIED) {
+                RepairTransition group = new RepairTransition(null, transition.from(), transition.to(),
+                        transition.acceptance());
+                groups.computeIfAbsent(group, key -> new ArrayList<>()).add(transition.id());
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<RepairTransition, List<Long>> group : groups.entrySet()) {
+            RepairTransition transition = group.getKey();
+            int moved = repairRepository.transition(group.getValue(), transition.from(), transition.to(),
+                    transition.acceptance(), now);
+            if (moved != group.getValue().size()) {
+                log.warn("Moved {} of {} locked repairs from {} to {}.", moved, group.getValue().size(),
+                        transition.from(), transition.to());
+            }
+            group.getValue().forEach(id -> statuses.put(id, transition.to()));
+        }
+
+        List<RepairTransition.Result> results = new ArrayList<>(outcomes.length);
+        long applied = 0;
+        for (int i = 0; i < outcomes.length; i++) {
+            RepairTransition transition = transitions.get(i);
+            Long id = transition == null ? null : transition.id();
+            results.add(new RepairTransition.Result(id, outcomes[i], id == null ? null : statuses.get(id)));
+            if (outcomes[i] == RepairTransition.Outcome.APPLIED) {
+                applied++;
+            }
+        }
+        return Optional.of(new TransitionSummary(applied, outcomes.length - applied, results));
+    }
+
+    private static RepairTransition.Outcome outcomeOf(RepairTransition transition, Map<Long, RepairStatus> statuses,
+            Set<Long> seen) {
+        if (transition == null || transition.id() == null || transition.from() == null || transition.to() == null) {
+            return RepairTransition.Outcome.INVALID;
+        }
+        if (!seen.add(transition.id())) {
+            return RepairTransition.Outcome.DUPLICATE;
+        }
+        RepairStatus status = statuses.get(transition.id());
+        if (status == null) {
+            return RepairTransition.Outcome.NOT_FOUND;
+        }
+        if (!transition.from().canTransitionTo(transition.to())) {
+            return RepairTransition.Outcome.ILLEGAL_TRANSITION;
+        }
+        if (status != transition.from()) {
+            return RepairTransition.Outcome.STATUS_MISMATCH;
+        }
+        return RepairTransition.Outcome.APPLIED;
+    }
+
+    /**
+     * Imports repairs from a CSV or NDJSON body. The body is read as a
+     * stream, so its size is not limited by memory, and the valid repairs
+     * are stored in chunks of one transaction each.
+     *
+     * @param body the body to import
+     * @param format the format of the body
+     * @return an Optional containing the accepted and rejected rows, or an
+     * empty Optional if the body could not be read
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Optional<ImportSummary> importRepairs(InputStream body, ImportFormat format) {
+        ImportReport report = new ImportReport();
+        try {
+            importPipeline.run("repairs", Channels.newChannel(body), format, repairCSVImporter, report);
+            return Optional.of(report.toSummary());
+        } catch (IOException e) {
+            log.error("Error importing repairs: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
 }
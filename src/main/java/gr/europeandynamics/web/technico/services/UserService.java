@@ -1,9 +1,16 @@
 package gr.europeandynamics.web.technico.services;
 
+import gr.europeandynamics.web.technico.dtos.AuthenticatedUser;
+import gr.europeandynamics.web.technico.dtos.CascadeSummary;
+import gr.europeandynamics.web.technico.dtos.ImportSummary;
+import gr.europeandynamics.web.technico.dtos.Page;
+import gr.europeandynamics.web.technico.importers.ImportFormat;
 import gr.europeandynamics.web.technico.models.Role;
 import gr.europeandynamics.web.technico.models.User;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 
 public interface UserService {
 
@@ -13,16 +20,21 @@ public interface UserService {
 
     Optional<User> getUserByEmail(String email);
 
-    Optional<User> getUserByEmailAndPassword(String email, String password);
+    CompletionStage<Optional<AuthenticatedUser>> authenticate(String email, String password);
 
     List<User> getAllUsers();
 
+    Optional<Page<User>> getUsersPage(String after, Integer limit);
+
     Role getUserRole(User user);
 
     Optional<User> updateUser(User user);
 
-    boolean deleteUserPermanently(String vat);
+    Optional<CascadeSummary> deleteUserPermanently(String vat);
+
+    Optional<CascadeSummary> deleteUserSafely(String vat);
 
-    boolean deleteUserSafely(String vat);
+    Optional<CascadeSummary> restoreUser(String vat);
 
+    Optional<ImportSummary> importUsers(InputStream body, ImportFormat format);
 }
@@ -1,7 +1,17 @@
 package gr.europeandynamics.web.technico.services;
 
+import gr.europeandynamics.web.technico.dtos.AuthenticatedUser;
+import gr.europeandynamics.web.technico.dtos.CascadeSummary;
+import gr.europeandynamics.web.technico.dtos.Cursor;
+import gr.europeandynamics.web.technico.dtos.ImportSummary;
+import gr.europeandynamics.web.technico.dtos.Page;
 import gr.europeandynamics.web.technico.exceptions.CustomException;
+import gr.europeandynamics.web.technico.importers.ImportFormat;
+import gr.europeandynamics.web.technico.importers.ImportPipeline;
+import gr.europeandynamics.web.technico.importers.ImportReport;
+import gr.europeandynamics.web.technico.importers.UserCSVImporter;
 import gr.europeandynamics.web.technico.models.Role;
+import gr.europeandynamics.web.technico.repositories.CascadeRepository;
 import gr.europeandynamics.web.technico.repositories.UserRepositoryImpl;
 import gr.europeandynamics.web.technico.validators.UserValidator;
 import gr.europeandynamics.web.technico.models.User;
@@ -10,7 +20,13 @@ import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import jakarta.transaction.Transactional;
 import jakarta.inject.Inject;
+import jakarta.persistence.PersistenceException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 @Slf4j
 @RequestScoped
@@ -22,6 +38,18 @@ public class UserServiceImpl implements UserService {
     @Inject
     private UserValidator userValidator;
 
+    @Inject
+    private CascadeRepository cascadeRepository;
+
+    @Inject
+    private CredentialService credentialService;
+
+    @Inject
+    private UserCSVImporter userCSVImporter;
+
+    @Inject
+    private ImportPipeline importPipeline;
+
     /**
      * Creates a new User with the provided details.
      *
@@ -54,10 +82,12 @@ public class UserServiceImpl implements UserService {
             user.setAddress(address);
             user.setPhoneNumber(phoneNumber);
             user.setEmail(email);
-            user.setPassword(password);
+            user.setPasswordHash(credentialService.hashPassword(password));
             user.setRole(role);
             
-            return userRepository.save(user);
+            Optional<User> savedUser = userRepository.save(user);
+            credentialService.invalidate(email);
+            return savedUser;
         } catch (CustomException e) {
             log.error("Error creating user: " + e.getMessage());
             return Optional.empty();
@@ -103,22 +133,25 @@ public class UserServiceImpl implements UserService {
     }
 
     /**
-     * Retrieves a User by their email address and password.
+     * Verifies a login with an email address and password. The password is
+     * checked against the salted hash of the user on a dedicated pool, so the
+     * calling thread is not held while it is hashed.
      *
      * @param email the email address of the user
      * @param password the password of the user
-     * @return an Optional containing the User if found, or an empty Optional if
-     * not
+     * @return a stage completing with the authenticated user, or with an empty
+     * Optional if the email or password is invalid or wrong. The stage fails
+     * with a RejectedExecutionException if too many logins are waiting.
      */
     @Override
-    public Optional<User> getUserByEmailAndPassword(String email, String password) {
+    public CompletionStage<Optional<AuthenticatedUser>> authenticate(String email, String password) {
         try {
             userValidator.validateEmail(email);
             userValidator.validatePassword(password);
-            return userRepository.getUserByEmailAndPassword(email, password);
+            return credentialService.authenticate(email, password);
         } catch (CustomException e) {
-            log.error("Error retrieving user by email and password: " + e.getMessage());
-            return Optional.empty();
+            log.error("Error authenticating user: " + e.getMessage());
+            return CompletableFuture.completedFuture(Optional.empty());
         }
     }
 
@@ -132,6 +165,27 @@ public class UserServiceImpl implements UserService {
         return userRepository.getAll();
     }
 
+    /**
+     * Retrieves a page of Users ordered by ID.
+     *
+     * @param after the cursor returned with the previous page, or null for the
+     * first page
+     * @param limit the requested page size, or null for the default
+     * @return an Optional containing the page, or an empty Optional if the
+     * cursor is invalid
+     */
+    @Override
+    public Optional<Page<User>> getUsersPage(String after, Integer limit) {
+        try {
+            int pageSize = Page.clampLimit(limit);
+            List<User> users = userRepository.getPage(Cursor.decode(after), pageSize + 1);
+            return Optional.of(Page.of(users, pageSize, user -> Cursor.encode(user.getId())));
+        } catch (CustomException e) {
+            log.error("Error retrieving users page: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
     /**
      * Retrieves the role of a specified User.
      *
@@ -147,32 +201,27 @@ public class UserServiceImpl implements UserService {
     }
 
     /**
-     * Updates the details of an existing User.
+     * Updates the details of an existing User. The new password is hashed
+     * before the transaction of the update starts, so that the transaction is
+     * not held open while hashing.
      *
      * @param user the User entity with updated details
      * @return an Optional containing the updated User if successful, or an
      * empty Optional if an error occurs
      */
-    @Transactional
     @Override
     public Optional<User> updateUser(User user) {
         try {
-            Optional<User> existingUserOptional = userRepository.getById(user.getId());
-            if (existingUserOptional.isPresent()) {
-                User existingUser = existingUserOptional.get();
-                userValidator.validateUser(user);
-                existingUser.setVat(user.getVat());
-                existingUser.setName(user.getName());
-                existingUser.setSurname(user.getSurname());
-                existingUser.setAddress(user.getAddress());
-                existingUser.setPhoneNumber(user.getPhoneNumber());
-                existingUser.setEmail(user.getEmail());
-                existingUser.setPassword(user.getPassword());
-                existingUser.setRole(user.getRole());
-                return Optional.ofNullable(userRepository.save(existingUser).orElse(null));
-            } else {
+            Optional<User> existingUser = userRepository.getById(user.getId());
+            if (existingUser.isEmpty()) {
                 return Optional.empty();
             }
+            userValidator.validateUser(user);
+            user.setPasswordHash(credentialService.hashPassword(user.getPassword()));
+            Optional<User> updatedUser = userRepository.update(user);
+            credentialService.invalidate(existingUser.get().getEmail());
+            credentialService.invalidate(user.getEmail());
+            return updatedUser;
         } catch (CustomException e) {
             log.error("Error updating user: " + e.getMessage());
             return Optional.empty();
@@ -180,47 +229,113 @@ public class UserServiceImpl implements UserService {
     }
 
     /**
-     * Permanently deletes a User by their VAT number.
+     * Permanently deletes a User by their VAT number, along with their
+     * properties and the repairs of those properties. The rows are deleted
+     * with bulk DELETEs, repairs first, in chunks of
+     * {@link CascadeRepository#DELETE_CHUNK_SIZE} that commit one at a
+     * time, so no lock is held for the whole cascade. If a chunk fails, the
+     * chunks before it stay deleted and the delete can be repeated.
      *
      * @param vat the VAT number of the user to be deleted
-     * @return true if the User was successfully deleted, false otherwise
+     * @return an Optional containing the number of rows deleted in each
+     * table, or an empty Optional if the user does not exist or could not be
+     * deleted
      */
-    @Transactional
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     @Override
-    public boolean deleteUserPermanently(String vat) {
+    public Optional<CascadeSummary> deleteUserPermanently(String vat) {
         try {
             userValidator.validateVat(vat);
-            return userRepository.deleteUserPermanentlyByVat(vat);
-        } catch (CustomException e) {
+            Optional<User> user = userRepository.getUserByVat(vat);
+            if (user.isEmpty()) {
+                return Optional.empty();
+            }
+            CascadeSummary deleted = CascadeSummary.NONE;
+            CascadeSummary chunk;
+            do {
+                chunk = cascadeRepository.deleteRepairChunkOfOwner(vat);
+                deleted = deleted.plus(chunk);
+            } while (chunk.repairs() == CascadeRepository.DELETE_CHUNK_SIZE);
+            do {
+                chunk = cascadeRepository.deletePropertyChunkOfOwner(vat);
+                deleted = deleted.plus(chunk);
+            } while (chunk.properties() == CascadeRepository.DELETE_CHUNK_SIZE);
+            deleted = deleted.plus(cascadeRepository.deleteUser(user.get()));
+            credentialService.invalidate(user.get().getEmail());
+            return Optional.of(deleted);
+        } catch (CustomException | PersistenceException e) {
             log.error("Error deleting user permanently: " + e.getMessage());
-            return false;
+            return Optional.empty();
         }
     }
 
     /**
-     * Safely deletes a User by marking them as deleted.
+     * Safely deletes a User by marking them, their properties and the
+     * repairs of those properties as deleted, with one bulk UPDATE per
+     * table.
      *
      * @param vat the VAT number of the user to be deleted
-     * @return true if the User was successfully marked as deleted, false
-     * otherwise
+     * @return an Optional containing the number of rows marked in each
+     * table, or an empty Optional if the user does not exist
+     */
+    @Transactional
+    @Override
+    public Optional<CascadeSummary> deleteUserSafely(String vat) {
+        return setUserDeleted(vat, true);
+    }
+
+    /**
+     * Restores a safely deleted User along with their properties and the
+     * repairs of those properties, with one bulk UPDATE per table. Only the
+     * properties and repairs deleted along with the user are restored; those
+     * deleted on their own before the user stay deleted.
+     *
+     * @param vat the VAT number of the user to be restored
+     * @return an Optional containing the number of rows restored in each
+     * table, or an empty Optional if the user does not exist
      */
     @Transactional
     @Override
-    public boolean deleteUserSafely(String vat) {
+    public Optional<CascadeSummary> restoreUser(String vat) {
+        return setUserDeleted(vat, false);
+    }
+
+    private Optional<CascadeSummary> setUserDeleted(String vat, boolean deleted) {
         try {
             userValidator.validateVat(vat);
-            Optional<User> userOptional = userRepository.getUserByVat(vat);
-            
-            if (userOptional.isPresent()) {
-                User user = userOptional.get();
-                user.setDeleted(true);
-                userRepository.save(user);
-                return true;
+            Optional<User> user = userRepository.getUserByVat(vat);
+            if (user.isEmpty()) {
+                return Optional.empty();
             }
-            return false;
+            CascadeSummary summary = cascadeRepository.setUserDeleted(vat, deleted);
+            credentialService.invalidate(user.get().getEmail());
+            return Optional.of(summary);
         } catch (CustomException e) {
-            log.error("Error deleting user safely: " + e.getMessage());
-            return false;
+            log.error("Error changing the deleted status of user: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Imports users from a CSV or NDJSON body. The body is read as a
+     * stream, so its size is not limited by memory, and the valid users
+     * are stored in chunks of one transaction each.
+     *
+     * @param body the body to import
+     * @param format the format of the body
+     * @return an Optional containing the accepted and rejected rows, or an
+     * empty Optional if the body could not be read
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Optional<ImportSummary> importUsers(InputStream body, ImportFormat format) {
+        ImportReport report = new ImportReport();
+        try {
+            importPipeline.run("users", Channels.newChannel(body), format, userCSVImporter, report);
+            return Optional.of(report.toSummary());
+        } catch (IOException e) {
+            log.error("Error importing users: " + e.getMessage());
+            return Optional.empty();
         }
     }
 }
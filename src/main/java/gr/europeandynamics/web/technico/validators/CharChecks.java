@@ -0,0 +1,112 @@
+package gr.europeandynamics.web.technico.validators;
+
+/**
+ * Character class checks written out by hand, for the formats the validators
+ * used to match with regular expressions.
+ */
+final class CharChecks {
+
+    private CharChecks() {
+    }
+
+    static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Checks for {@code \d+}.
+     */
+    static boolean isDigits(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!isAsciiDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks for {@code .*\d.*} and {@code .*[A-Za-z].*}: at least one ASCII
+     * digit and at least one ASCII letter, and no line terminator, which
+     * {@code .} does not match.
+     */
+    static boolean hasDigitAndLetter(String value) {
+        boolean digit = false;
+        boolean letter = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isLineTerminator(c)) {
+                return false;
+            }
+            digit |= isAsciiDigit(c);
+            letter |= isAsciiLetter(c);
+        }
+        return digit && letter;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Checks for
+     * {@code ^[a-zA-Z0-9_+&*-]+(?:\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\.)+[a-zA-Z]{2,7}$}:
+     * a local part of dot separated atoms, then domain labels each followed
+     * by a dot, then a top level domain of 2 to 7 letters.
+     */
+    static boolean isEmail(String value) {
+        int at = value.indexOf('@');
+        if (at <= 0 || value.indexOf('@', at + 1) >= 0) {
+            return false;
+        }
+        boolean previousDot = true;
+        for (int i = 0; i < at; i++) {
+            char c = value.charAt(i);
+            if (c == '.') {
+                if (previousDot) {
+                    return false;
+                }
+                previousDot = true;
+            } else if (isAsciiLetter(c) || isAsciiDigit(c) || c == '_' || c == '+' || c == '&' || c == '*' || c == '-') {
+                previousDot = false;
+            } else {
+                return false;
+            }
+        }
+        if (previousDot) {
+            return false;
+        }
+        int lastDot = value.lastIndexOf('.');
+        int tldLength = value.length() - lastDot - 1;
+        if (lastDot <= at + 1 || tldLength < 2 || tldLength > 7) {
+            return false;
+        }
+        for (int i = lastDot + 1; i < value.length(); i++) {
+            if (!isAsciiLetter(value.charAt(i))) {
+                return false;
+            }
+        }
+        previousDot = true;
+        for (int i = at + 1; i <= lastDot; i++) {
+            char c = value.charAt(i);
+            if (c == '.') {
+                if (previousDot) {
+                    return false;
+                }
+                previousDot = true;
+            } else if (isAsciiLetter(c) || isAsciiDigit(c) || c == '-') {
+                previousDot = false;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -2,9 +2,17 @@ package gr.europeandynamics.web.technico.validators;
 
 import gr.europeandynamics.web.technico.exceptions.CustomException;
 import gr.europeandynamics.web.technico.models.Property;
+import java.util.List;
 
 public class PropertyValidator {
 
+    private static final RuleSet<Property> RULES = RuleSet.<Property>builder()
+            .rule("e9", (property, now) -> checkE9(property.getE9()))
+            .rule("propertyAddress", (property, now) -> checkPropertyAddress(property.getPropertyAddress()))
+            .rule("constructionYear", (property, now) -> checkConstructionYear(property.getConstructionYear()))
+            .rule("propertyType", (property, now) -> checkPropertyType(property.getPropertyType()))
+            .build();
+
     /**
      * Validates the E9 identifier for a property.
      *
@@ -12,9 +20,7 @@ public class PropertyValidator {
      * @throws CustomException if the E9 does not contain exactly 20 characters
      */
     public void validateE9(String e9) throws CustomException {
-        if (e9 == null || e9.length() != 20) {
-            throw new CustomException("E9 must contain exactly 20 characters.");
-        }
+        RuleSet.failIfPresent(checkE9(e9));
     }
 
     /**
@@ -24,9 +30,7 @@ public class PropertyValidator {
      * @throws CustomException if the address exceeds 50 characters
      */
     public void validatePropertyAddress(String address) throws CustomException {
-        if (address != null && address.length() > 50) {
-            throw new CustomException("Property address must be at most 50 characters.");
-        }
+        RuleSet.failIfPresent(checkPropertyAddress(address));
     }
 
     /**
@@ -36,9 +40,7 @@ public class PropertyValidator {
      * @throws CustomException if the year is not a valid 4-digit year
      */
     public void validateConstructionYear(int year) throws CustomException {
-        if (year < 1000 || year > 9999) {
-            throw new CustomException("Construction year must be a valid 4-digit year.");
-        }
+        RuleSet.failIfPresent(checkConstructionYear(year));
     }
 
     /**
@@ -48,9 +50,7 @@ public class PropertyValidator {
      * @throws CustomException if the property type is null
      */
     public void validatePropertyType(Enum<?> propertyType) throws CustomException {
-        if (propertyType == null) {
-            throw new CustomException("Property type cannot be null.");
-        }
+        RuleSet.failIfPresent(checkPropertyType(propertyType));
     }
 
     /**
@@ -60,9 +60,55 @@ public class PropertyValidator {
      * @throws CustomException if any property validation fails
      */
     public void validateProperty(Property property) throws CustomException {
-        validateE9(property.getE9());
-        validatePropertyAddress(property.getPropertyAddress());
-        validateConstructionYear(property.getConstructionYear());
-        validatePropertyType(property.getPropertyType());
+        RULES.validate(property, null);
+    }
+
+    /**
+     * Validates all properties of a given Property object and collects every
+     * violation instead of stopping at the first.
+     *
+     * @param property the Property object to validate
+     * @return the violations, or an empty list if the property is valid
+     */
+    public List<Violation> validateAll(Property property) {
+        return RULES.validateAll(property, null);
+    }
+
+    /**
+     * Validates a batch of properties, such as a block of an import.
+     *
+     * @param properties the properties to validate
+     * @return the violations of each property, in the order of the properties
+     */
+    public List<List<Violation>> validateAll(List<? extends Property> properties) {
+        return RULES.validateAll(properties, null);
+    }
+
+    private static String checkE9(String e9) {
+        if (e9 == null || e9.length() != 20) {
+            return "E9 must contain exactly 20 characters.";
+        }
+        return null;
+    }
+
+    private static String checkPropertyAddress(String address) {
+        if (address != null && address.length() > 50) {
+            return "Property address must be at most 50 characters.";
+        }
+        return null;
+    }
+
+    private static String checkConstructionYear(int year) {
+        if (year < 1000 || year > 9999) {
+            return "Construction year must be a valid 4-digit year.";
+        }
+        return null;
+    }
+
+    private static String checkPropertyType(Enum<?> propertyType) {
+        if (propertyType == null) {
+            return "Property type cannot be null.";
+        }
+        return null;
     }
 }
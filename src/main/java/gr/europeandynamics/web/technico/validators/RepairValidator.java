@@ -3,10 +3,40 @@ package gr.europeandynamics.web.technico.validators;
 import gr.europeandynamics.web.technico.exceptions.CustomException;
 import gr.europeandynamics.web.technico.models.Repair;
 import java.math.BigDecimal;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class RepairValidator {
 
+    private static final RuleSet<Repair> RULES = RuleSet.<Repair>builder()
+            .rule("repairType", (repair, now) -> checkRepairType(repair.getRepairType()))
+            .rule("submissionDate", (repair, now) -> checkSubmissionDate(repair.getSubmissionDate(), now))
+            .rule("proposedStartDate", (repair, now) -> checkProposedStartDate(repair.getProposedStartDate(), now))
+            .rule("proposedEndDate", (repair, now) -> checkProposedEndDate(repair.getProposedEndDate(),
+                    repair.getProposedStartDate(), now))
+            .rule("proposedCost", (repair, now) -> checkProposedCost(repair.getProposedCost()))
+            .rule("repairStatus", (repair, now) -> checkRepairStatus(repair.getRepairStatus()))
+            .rule("actualStartDate", (repair, now) -> checkActualStartDate(repair.getActualStartDate(), now))
+            .rule("actualEndDate", (repair, now) -> checkActualEndDate(repair.getActualEndDate(),
+                    repair.getActualStartDate(), now))
+            .build();
+
+    private final Clock clock;
+
+    public RepairValidator() {
+        this(Clock.systemDefaultZone());
+    }
+
+    /**
+     * Creates a validator that reads the current time from the given clock.
+     *
+     * @param clock the clock dates are compared against
+     */
+    public RepairValidator(Clock clock) {
+        this.clock = clock;
+    }
+
     /**
      * Validates the type of the repair.
      *
@@ -14,9 +44,7 @@ public class RepairValidator {
      * @throws CustomException if the repair type is null
      */
     public void validateRepairType(Enum<?> repairType) throws CustomException {
-        if (repairType == null) {
-            throw new CustomException("Repair type cannot be null.");
-        }
+        RuleSet.failIfPresent(checkRepairType(repairType));
     }
 
     /**
@@ -27,9 +55,7 @@ public class RepairValidator {
      * future
      */
     public void validateSubmissionDate(LocalDateTime submissionDate) throws CustomException {
-        if (submissionDate == null || submissionDate.isAfter(LocalDateTime.now())) {
-            throw new CustomException("Submission date must be in the past or present.");
-        }
+        RuleSet.failIfPresent(checkSubmissionDate(submissionDate, LocalDateTime.now(clock)));
     }
 
     /**
@@ -39,9 +65,7 @@ public class RepairValidator {
      * @throws CustomException if the proposed start date is in the past
      */
     public void validateProposedStartDate(LocalDateTime proposedStartDate) throws CustomException {
-        if (proposedStartDate != null && proposedStartDate.isBefore(LocalDateTime.now())) {
-            throw new CustomException("Proposed start date must be in the future or present.");
-        }
+        RuleSet.failIfPresent(checkProposedStartDate(proposedStartDate, LocalDateTime.now(clock)));
     }
 
     /**
@@ -53,14 +77,7 @@ public class RepairValidator {
      * the proposed start date
      */
     public void validateProposedEndDate(LocalDateTime proposedEndDate, LocalDateTime proposedStartDate) throws CustomException {
-        if (proposedEndDate != null) {
-            if (proposedEndDate.isBefore(LocalDateTime.now())) {
-                throw new CustomException("Proposed end date must be in the future or present.");
-            }
-            if (proposedStartDate != null && proposedEndDate.isBefore(proposedStartDate)) {
-                throw new CustomException("Proposed end date must be after proposed start date.");
-            }
-        }
+        RuleSet.failIfPresent(checkProposedEndDate(proposedEndDate, proposedStartDate, LocalDateTime.now(clock)));
     }
 
     /**
@@ -70,9 +87,7 @@ public class RepairValidator {
      * @throws CustomException if the proposed cost is negative
      */
     public void validateProposedCost(BigDecimal proposedCost) throws CustomException {
-        if (proposedCost != null && proposedCost.compareTo(BigDecimal.ZERO) < 0) {
-            throw new CustomException("Proposed cost must be zero or more.");
-        }
+        RuleSet.failIfPresent(checkProposedCost(proposedCost));
     }
 
     /**
@@ -82,9 +97,7 @@ public class RepairValidator {
      * @throws CustomException if the repair status is null
      */
     public void validateRepairStatus(Enum<?> repairStatus) throws CustomException {
-        if (repairStatus == null) {
-            throw new CustomException("Repair status cannot be null.");
-        }
+        RuleSet.failIfPresent(checkRepairStatus(repairStatus));
     }
 
     /**
@@ -96,32 +109,109 @@ public class RepairValidator {
      * actual end date is before the actual start date
      */
     public void validateActualDates(LocalDateTime actualStartDate, LocalDateTime actualEndDate) throws CustomException {
-        if (actualStartDate != null && actualStartDate.isBefore(LocalDateTime.now())) {
-            throw new CustomException("Actual start date must be in the future or present.");
-        }
-        if (actualEndDate != null) {
-            if (actualEndDate.isBefore(LocalDateTime.now())) {
-                throw new CustomException("Actual end date must be in the future or present.");
-            }
-            if (actualStartDate != null && actualEndDate.isBefore(actualStartDate)) {
-                throw new CustomException("Actual end date must be after actual start date.");
-            }
-        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        RuleSet.failIfPresent(checkActualStartDate(actualStartDate, now));
+        RuleSet.failIfPresent(checkActualEndDate(actualEndDate, actualStartDate, now));
     }
 
     /**
-     * Validates all properties of a given Repair object.
+     * Validates all properties of a given Repair object. The current time is
+     * read once, so every date is compared against the same instant.
      *
      * @param repair the Repair object to validate
      * @throws CustomException if any property validation fails
      */
     public void validateRepair(Repair repair) throws CustomException {
-        validateRepairType(repair.getRepairType());
-        validateSubmissionDate(repair.getSubmissionDate());
-        validateProposedStartDate(repair.getProposedStartDate());
-        validateProposedEndDate(repair.getProposedEndDate(), repair.getProposedStartDate());
-        validateProposedCost(repair.getProposedCost());
-        validateRepairStatus(repair.getRepairStatus());
-        validateActualDates(repair.getActualStartDate(), repair.getActualEndDate());
+        RULES.validate(repair, LocalDateTime.now(clock));
+    }
+
+    /**
+     * Validates all properties of a given Repair object and collects every
+     * violation instead of stopping at the first.
+     *
+     * @param repair the Repair object to validate
+     * @return the violations, or an empty list if the repair is valid
+     */
+    public List<Violation> validateAll(Repair repair) {
+        return RULES.validateAll(repair, LocalDateTime.now(clock));
+    }
+
+    /**
+     * Validates a batch of repairs, such as a block of an import, against a
+     * single reading of the current time.
+     *
+     * @param repairs the repairs to validate
+     * @return the violations of each repair, in the order of the repairs
+     */
+    public List<List<Violation>> validateAll(List<? extends Repair> repairs) {
+        return RULES.validateAll(repairs, LocalDateTime.now(clock));
+    }
+
+    private static String checkRepairType(Enum<?> repairType) {
+        if (repairType == null) {
+            return "Repair type cannot be null.";
+        }
+        return null;
+    }
+
+    private static String checkSubmissionDate(LocalDateTime submissionDate, LocalDateTime now) {
+        if (submissionDate == null || submissionDate.isAfter(now)) {
+            return "Submission date must be in the past or present.";
+        }
+        return null;
+    }
+
+    private static String checkProposedStartDate(LocalDateTime proposedStartDate, LocalDateTime now) {
+        if (proposedStartDate != null && proposedStartDate.isBefore(now)) {
+            return "Proposed start date must be in the future or present.";
+        }
+        return null;
+    }
+
+    private static String checkProposedEndDate(LocalDateTime proposedEndDate, LocalDateTime proposedStartDate,
+            LocalDateTime now) {
+        if (proposedEndDate != null) {
+            if (proposedEndDate.isBefore(now)) {
+                return "Proposed end date must be in the future or present.";
+            }
+            if (proposedStartDate != null && proposedEndDate.isBefore(proposedStartDate)) {
+                return "Proposed end date must be after proposed start date.";
+            }
+        }
+        return null;
+    }
+
+    private static String checkProposedCost(BigDecimal proposedCost) {
+        if (proposedCost != null && proposedCost.signum() < 0) {
+            return "Proposed cost must be zero or more.";
+        }
+        return null;
+    }
+
+    private static String checkRepairStatus(Enum<?> repairStatus) {
+        if (repairStatus == null) {
+            return "Repair status cannot be null.";
+        }
+        return null;
+    }
+
+    private static String checkActualStartDate(LocalDateTime actualStartDate, LocalDateTime now) {
+        if (actualStartDate != null && actualStartDate.isBefore(now)) {
+            return "Actual start date must be in the future or present.";
+        }
+        return null;
+    }
+
+    private static String checkActualEndDate(LocalDateTime actualEndDate, LocalDateTime actualStartDate,
+            LocalDateTime now) {
+        if (actualEndDate != null) {
+            if (actualEndDate.isBefore(now)) {
+                return "Actual end date must be in the future or present.";
+            }
+            if (actualStartDate != null && actualEndDate.isBefore(actualStartDate)) {
+                return "Actual end date must be after actual start date.";
+            }
+        }
+        return null;
     }
 }
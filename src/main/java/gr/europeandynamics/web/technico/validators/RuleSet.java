@@ -0,0 +1,143 @@
+package gr.europeandynamics.web.technico.validators;
+
+import gr.europeandynamics.web.technico.exceptions.CustomException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An ordered, immutable set of rules over one type, built once per validator.
+ * Every rule of a validation sees the same current time, captured once when
+ * the validation starts. A valid value is checked without allocating.
+ *
+ * @param <T> the type of the validated values
+ */
+public final class RuleSet<T> {
+
+    /**
+     * A single rule.
+     *
+     * @param <T> the type of the validated values
+     */
+    @FunctionalInterface
+    public interface Rule<T> {
+
+        /**
+         * Checks a value.
+         *
+         * @param value the value to check
+         * @param now the current time of the validation
+         * @return the message of the broken rule, or null if the value
+         * satisfies it
+         */
+        String check(T value, LocalDateTime now);
+    }
+
+    private final String[] fields;
+    private final Rule<? super T>[] rules;
+
+    private RuleSet(List<String> fields, List<Rule<? super T>> rules) {
+        this.fields = fields.toArray(new String[0]);
+        @SuppressWarnings("unchecked")
+        Rule<? super T>[] array = rules.toArray(new Rule[0]);
+        this.rules = array;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Checks a value against the rules in order and stops at the first one
+     * it breaks.
+     *
+     * @param value the value to check
+     * @param now the current time of the validation
+     * @throws CustomException with the message of the first broken rule
+     */
+    public void validate(T value, LocalDateTime now) throws CustomException {
+        for (Rule<? super T> rule : rules) {
+            failIfPresent(rule.check(value, now));
+        }
+    }
+
+    /**
+     * Checks a value against every rule.
+     *
+     * @param value the value to check
+     * @param now the current time of the validation
+     * @return the broken rules, in rule order, or an empty list if the value
+     * is valid
+     */
+    public List<Violation> validateAll(T value, LocalDateTime now) {
+        List<Violation> violations = null;
+        for (int i = 0; i < rules.length; i++) {
+            String message = rules[i].check(value, now);
+            if (message != null) {
+                if (violations == null) {
+                    violations = new ArrayList<>(2);
+                }
+                violations.add(new Violation(fields[i], message));
+            }
+        }
+        return violations == null ? List.of() : violations;
+    }
+
+    /**
+     * Checks a batch of values against every rule, all at the same time.
+     *
+     * @param values the values to check
+     * @param now the current time of the validation
+     * @return the broken rules of each value, in the order of the values
+     */
+    public List<List<Violation>> validateAll(List<? extends T> values, LocalDateTime now) {
+        List<List<Violation>> result = new ArrayList<>(values.size());
+        for (T value : values) {
+            result.add(validateAll(value, now));
+        }
+        return result;
+    }
+
+    /**
+     * Throws the message of a broken rule, if there is one.
+     *
+     * @param message the message of a broken rule, or null
+     * @throws CustomException with the message if it is not null
+     */
+    public static void failIfPresent(String message) throws CustomException {
+        if (message != null) {
+            throw new CustomException(message);
+        }
+    }
+
+    /**
+     * Collects the rules of a {@link RuleSet}, in the order they are checked.
+     *
+     * @param <T> the type of the validated values
+     */
+    public static final class Builder<T> {
+
+        private final List<String> fields = new ArrayList<>();
+        private final List<Rule<? super T>> rules = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a rule.
+         *
+         * @param field the name of the field the rule checks
+         * @param rule the rule
+         * @return this builder
+         */
+        public Builder<T> rule(String field, Rule<? super T> rule) {
+            fields.add(field);
+            rules.add(rule);
+            return this;
+        }
+
+        public RuleSet<T> build() {
+            return new RuleSet<>(fields, rules);
+        }
+    }
+}
@@ -3,10 +3,23 @@ package gr.europeandynamics.web.technico.validators;
 import gr.europeandynamics.web.technico.exceptions.CustomException;
 import gr.europeandynamics.web.technico.models.Role;
 import gr.europeandynamics.web.technico.models.User;
-import java.util.regex.Pattern;
+import java.util.List;
 
 public class UserValidator {
 
+    private static final RuleSet<User> RULES = RuleSet.<User>builder()
+            .rule("vat", (user, now) -> checkVat(user.getVat()))
+            .rule("name", (user, now) -> checkName(user.getName()))
+            .rule("surname", (user, now) -> checkSurname(user.getSurname()))
+            .rule("address", (user, now) -> checkAddress(user.getAddress()))
+            .rule("phoneNumber", (user, now) -> checkPhoneNumber(user.getPhoneNumber()))
+            .rule("email", (user, now) -> checkEmail(user.getEmail()))
+            .rule("password", (user, now) -> user.getPassword() == null && user.getPasswordHash() != null
+                    ? null
+                    : checkPassword(user.getPassword()))
+            .rule("role", (user, now) -> checkRole(user.getRole()))
+            .build();
+
     /**
      * Validates the VAT number of the user.
      *
@@ -15,12 +28,7 @@ public class UserValidator {
      * contains non-numeric characters
      */
     public void validateVat(String vat) throws CustomException {
-        if (vat == null || vat.length() != 9) {
-            throw new CustomException("VAT must be exactly 9 characters.");
-        }
-        if (!vat.matches("\\d+")) {
-            throw new CustomException("VAT must contain only numeric characters.");
-        }
+        RuleSet.failIfPresent(checkVat(vat));
     }
 
     /**
@@ -31,12 +39,7 @@ public class UserValidator {
      * 50 characters
      */
     public void validateName(String name) throws CustomException {
-        if (name == null || name.isBlank()) {
-            throw new CustomException("Name cannot be null or blank.");
-        }
-        if (name.length() < 1 || name.length() > 50) {
-            throw new CustomException("Name must be between 1 and 50 characters.");
-        }
+        RuleSet.failIfPresent(checkName(name));
     }
 
     /**
@@ -47,12 +50,7 @@ public class UserValidator {
      * and 50 characters
      */
     public void validateSurname(String surname) throws CustomException {
-        if (surname == null || surname.isBlank()) {
-            throw new CustomException("Surname cannot be null or blank.");
-        }
-        if (surname.length() < 1 || surname.length() > 50) {
-            throw new CustomException("Surname must be between 1 and 50 characters.");
-        }
+        RuleSet.failIfPresent(checkSurname(surname));
     }
 
     /**
@@ -62,9 +60,7 @@ public class UserValidator {
      * @throws CustomException if the address exceeds 50 characters
      */
     public void validateAddress(String address) throws CustomException {
-        if (address != null && address.length() > 50) {
-            throw new CustomException("Address must be at most 50 characters.");
-        }
+        RuleSet.failIfPresent(checkAddress(address));
     }
 
     /**
@@ -75,9 +71,7 @@ public class UserValidator {
      * contains non-numeric characters
      */
     public void validatePhoneNumber(String phoneNumber) throws CustomException {
-        if (phoneNumber != null && (phoneNumber.length() > 14 || !phoneNumber.matches("\\d+"))) {
-            throw new CustomException("Phone number must contain only digits and be at most 14 characters long.");
-        }
+        RuleSet.failIfPresent(checkPhoneNumber(phoneNumber));
     }
 
     /**
@@ -88,14 +82,7 @@ public class UserValidator {
      * valid email format
      */
     public void validateEmail(String email) throws CustomException {
-        if (email == null || email.isBlank()) {
-            throw new CustomException("Email cannot be null or blank.");
-        }
-        String emailRegex = "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$";
-        Pattern pattern = Pattern.compile(emailRegex);
-        if (!pattern.matcher(email).matches()) {
-            throw new CustomException("Invalid email format.");
-        }
+        RuleSet.failIfPresent(checkEmail(email));
     }
 
     /**
@@ -106,12 +93,7 @@ public class UserValidator {
      * characters, or does not contain both letters and digits
      */
     public void validatePassword(String password) throws CustomException {
-        if (password == null || password.length() < 8 || password.length() > 50) {
-            throw new CustomException("Password must be between 8 and 50 characters.");
-        }
-        if (!password.matches(".*\\d.*") || !password.matches(".*[A-Za-z].*")) {
-            throw new CustomException("Password must contain at least one letter and one digit.");
-        }
+        RuleSet.failIfPresent(checkPassword(password));
     }
 
     /**
@@ -121,9 +103,7 @@ public class UserValidator {
      * @throws CustomException if the role is null
      */
     public void validateRole(Role role) throws CustomException {
-        if (role == null) {
-            throw new CustomException("Role cannot be null.");
-        }
+        RuleSet.failIfPresent(checkRole(role));
     }
 
     /**
@@ -133,13 +113,98 @@ public class UserValidator {
      * @throws CustomException if any property validation fails
      */
     public void validateUser(User user) throws CustomException {
-        validateVat(user.getVat());
-        validateName(user.getName());
-        validateSurname(user.getSurname());
-        validateAddress(user.getAddress());
-        validatePhoneNumber(user.getPhoneNumber());
-        validateEmail(user.getEmail());
-        validatePassword(user.getPassword());
-        validateRole(user.getRole());
+        RULES.validate(user, null);
+    }
+
+    /**
+     * Validates all properties of a given User object and collects every
+     * violation instead of stopping at the first.
+     *
+     * @param user the User object to validate
+     * @return the violations, or an empty list if the user is valid
+     */
+    public List<Violation> validateAll(User user) {
+        return RULES.validateAll(user, null);
+    }
+
+    /**
+     * Validates a batch of users, such as a block of an import.
+     *
+     * @param users the users to validate
+     * @return the violations of each user, in the order of the users
+     */
+    public List<List<Violation>> validateAll(List<? extends User> users) {
+        return RULES.validateAll(users, null);
+    }
+
+    private static String checkVat(String vat) {
+        if (vat == null || vat.length() != 9) {
+            return "VAT must be exactly 9 characters.";
+        }
+        if (!CharChecks.isDigits(vat)) {
+            return "VAT must contain only numeric characters.";
+        }
+        return null;
+    }
+
+    private static String checkName(String name) {
+        if (name == null || name.isBlank()) {
+            return "Name cannot be null or blank.";
+        }
+        if (name.length() > 50) {
+            return "Name must be between 1 and 50 characters.";
+        }
+        return null;
+    }
+
+    private static String checkSurname(String surname) {
+        if (surname == null || surname.isBlank()) {
+            return "Surname cannot be null or blank.";
+        }
+        if (surname.length() > 50) {
+            return "Surname must be between 1 and 50 characters.";
+        }
+        return null;
+    }
+
+    private static String checkAddress(String address) {
+        if (address != null && address.length() > 50) {
+            return "Address must be at most 50 characters.";
+        }
+        return null;
+    }
+
+    private static String checkPhoneNumber(String phoneNumber) {
+        if (phoneNumber != null && (phoneNumber.length() > 14 || !CharChecks.isDigits(phoneNumber))) {
+            return "Phone number must contain only digits and be at most 14 characters long.";
+        }
+        return null;
+    }
+
+    private static String checkEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return "Email cannot be null or blank.";
+        }
+        if (!CharChecks.isEmail(email)) {
+            return "Invalid email format.";
+        }
+        return null;
+    }
+
+    private static String checkPassword(String password) {
+        if (password == null || password.length() < 8 || password.length() > 50) {
+            return "Password must be between 8 and 50 characters.";
+        }
+        if (!CharChecks.hasDigitAndLetter(password)) {
+            return "Password must contain at least one letter and one digit.";
+        }
+        return null;
+    }
+
+    private static String checkRole(Role role) {
+        if (role == null) {
+            return "Role cannot be null.";
+        }
+        return null;
     }
 }
@@ -0,0 +1,10 @@
+package gr.europeandynamics.web.technico.validators;
+
+/**
+ * A rule a value breaks.
+ *
+ * @param field the name of the field that breaks the rule
+ * @param message what is wrong with the field
+ */
+public record Violation(String field, String message) {
+}
@@ -0,0 +1,84 @@
+package gr.europeandynamics.web.technico.importers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CsvTokenizerTest {
+
+    @Test
+    void quotedFieldKeepsCommasLineBreaksAndEscapedQuotes() throws IOException {
+        List<List<String>> records = tokenize("\"a,b\nc \"\"d\"\"\",e\n");
+
+        assertEquals(List.of(List.of("a,b\nc \"d\"", "e")), records);
+    }
+
+    @Test
+    void quoteInsideUnquotedFieldIsLiteral() throws IOException {
+        List<List<String>> records = tokenize("ab\"c,d\ne,f\n");
+
+        assertEquals(List.of(List.of("ab\"c", "d"), List.of("e", "f")), records);
+    }
+
+    @Test
+    void crlfEndsRecords() throws IOException {
+        List<List<String>> records = tokenize("a,b\r\n\"c\r\nd\",e\r\n");
+
+        assertEquals(List.of(List.of("a", "b"), List.of("c\r\nd", "e")), records);
+    }
+
+    @Test
+    void lastRecordNeedsNoLineBreak() throws IOException {
+        List<List<String>> records = tokenize("a,b\nc,\"d\"");
+
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), records);
+    }
+
+    @Test
+    void recordSpanningReadsFromChannelIsComplete() throws IOException {
+        String input = "first,second,\"thi\nrd \"\"quoted\"\"\"\nx,y\n";
+        CsvTokenizer tokenizer = new CsvTokenizer(Channels.newChannel(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))), 4);
+
+        assertEquals(List.of(List.of("first", "second", "thi\nrd \"quoted\""), List.of("x", "y")),
+                records(tokenizer));
+        assertEquals(2, tokenizer.recordNumber());
+    }
+
+    @Test
+    void emptyFieldsAreEmpty() throws IOException {
+        CsvTokenizer tokenizer = new CsvTokenizer(ByteBuffer.wrap(",\"\",x\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(tokenizer.next());
+        assertEquals(3, tokenizer.fieldCount());
+        assertTrue(tokenizer.isEmpty(0));
+        assertTrue(tokenizer.isEmpty(1));
+        assertFalse(tokenizer.isEmpty(2));
+        assertTrue(tokenizer.isEmpty(3));
+    }
+
+    private static List<List<String>> tokenize(String input) throws IOException {
+        return records(new CsvTokenizer(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static List<List<String>> records(CsvTokenizer tokenizer) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        while (tokenizer.next()) {
+            List<String> fields = new ArrayList<>();
+            for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                fields.add(tokenizer.getString(i));
+            }
+            records.add(fields);
+        }
+        return records;
+    }
+}
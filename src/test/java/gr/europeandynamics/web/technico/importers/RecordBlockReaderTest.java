@@ -0,0 +1,116 @@
+package gr.europeandynamics.web.technico.importers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import gr.europeandynamics.web.technico.importers.RecordBlockReader.RecordBlock;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RecordBlockReaderTest {
+
+    private static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private final List<Long> tooLong = new ArrayList<>();
+
+    @Test
+    void quoteAtFieldStartHidesLineBreaks() throws IOException {
+        List<String> blocks = read("1,\"a\nb\"\n2,c\n", 8, NO_LIMIT);
+
+        assertEquals(List.of("1:1,\"a\nb\"\n", "2:2,c\n"), blocks);
+    }
+
+    @Test
+    void quoteInsideFieldIsLiteral() throws IOException {
+        List<String> blocks = read("1,ab\"c\n2,d\n3,e\n", 10, NO_LIMIT);
+
+        assertEquals(List.of("1:1,ab\"c\n", "2:2,d\n3,e\n"), blocks);
+    }
+
+    @Test
+    void quoteAfterClosingQuoteIsLiteral() throws IOException {
+        List<String> blocks = read("1,\"a\"b\"c\n2,d\n", 10, NO_LIMIT);
+
+        assertEquals(List.of("1:1,\"a\"b\"c\n", "2:2,d\n"), blocks);
+    }
+
+    @Test
+    void escapedQuoteKeepsFieldQuoted() throws IOException {
+        List<String> blocks = read("1,\"a\"\"\nb\"\n2,c\n", 6, NO_LIMIT);
+
+        assertEquals(List.of("1:1,\"a\"\"\nb\"\n", "2:2,c\n"), blocks);
+    }
+
+    @Test
+    void crlfRecordsEndAtTheLineFeed() throws IOException {
+        List<String> blocks = read("1,a\r\n2,\"b\r\nc\"\r\n3,d\r\n", 8, NO_LIMIT);
+
+        assertEquals(List.of("1:1,a\r\n", "2:2,\"b\r\nc\"\r\n3,d\r\n"), blocks);
+    }
+
+    @Test
+    void recordLongerThanBlockIsNotSplit() throws IOException {
+        String longRecord = "1," + "x".repeat(100) + "\n";
+
+        List<String> blocks = read(longRecord + "2,y\n", 16, NO_LIMIT);
+
+        assertEquals(List.of("1:" + longRecord + "2,y\n"), blocks);
+    }
+
+    @Test
+    void lastRecordNeedsNoLineBreak() throws IOException {
+        List<String> blocks = read("1,a\n2,b", 64, NO_LIMIT);
+
+        assertEquals(List.of("1:1,a\n2,b"), blocks);
+    }
+
+    @Test
+    void recordLongerThanMaximumIsSkippedAndReported() throws IOException {
+        String unbalanced = "2,\"" + "x\n".repeat(20) + "\"\n";
+
+        List<String> blocks = read("1,a\n" + unbalanced + "3,b\n", 8, 16);
+
+        assertEquals(List.of("1:1,a\n", "3:3,b\n"), blocks);
+        assertEquals(List.of(2L), tooLong);
+    }
+
+    @Test
+    void skippedRecordEndsAfterEscapedQuoteSplitAcrossReads() throws IOException {
+        List<String> blocks = read("1,\"aaaa\"\"\n3,b\"\n4,c\n", 8, 8);
+
+        assertEquals(List.of("2:4,c\n"), blocks);
+        assertEquals(List.of(1L), tooLong);
+    }
+
+    @Test
+    void ndjsonIgnoresQuotes() throws IOException {
+        List<String> blocks = readJson("{\"a\":\"\"}\n\"\n{}\n", 12);
+
+        assertEquals(List.of("1:{\"a\":\"\"}\n\"\n", "3:{}\n"), blocks);
+    }
+
+    private List<String> read(String input, int blockSize, int maxRecordLength) throws IOException {
+        return read(input, ImportFormat.CSV, blockSize, maxRecordLength);
+    }
+
+    private List<String> readJson(String input, int blockSize) throws IOException {
+        return read(input, ImportFormat.NDJSON, blockSize, NO_LIMIT);
+    }
+
+    private List<String> read(String input, ImportFormat format, int blockSize, int maxRecordLength)
+            throws IOException {
+        RecordBlockReader reader = new RecordBlockReader(Channels.newChannel(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))),
+                format, blockSize, maxRecordLength, tooLong::add);
+        List<String> blocks = new ArrayList<>();
+        RecordBlock block;
+        while ((block = reader.next()) != null) {
+            blocks.add(block.firstRecord() + ":" + new String(block.bytes(), StandardCharsets.UTF_8));
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,194 @@
+package gr.europeandynamics.web.technico.security;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import org.junit.jupiter.api.Test;
+
+class CompressingOutputStreamTest {
+
+    private static final int THRESHOLD = 64;
+    private static final int GZIP_HEADER_SIZE = 10;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+
+    @Test
+    void bodyBelowThresholdIsWrittenAsIs() throws IOException {
+        byte[] body = body(THRESHOLD - 1);
+
+        write(new CompressingOutputStream(ContentCoding.GZIP, Deflater.DEFAULT_COMPRESSION, THRESHOLD), body);
+
+        assertArrayEquals(body, out.toByteArray());
+        assertNull(headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void bodyAtThresholdIsWrittenAsIs() throws IOException {
+        byte[] body = body(THRESHOLD);
+        CompressingOutputStream stream
+                = new CompressingOutputStream(ContentCoding.GZIP, Deflater.DEFAULT_COMPRESSION, THRESHOLD);
+
+        write(stream, body);
+
+        assertArrayEquals(body, out.toByteArray());
+        assertFalse(stream.isCompressed());
+    }
+
+    @Test
+    void gzipBodyAboveThresholdRoundTrips() throws IOException {
+        byte[] body = body(10_000);
+        CompressingOutputStream stream
+                = new CompressingOutputStream(ContentCoding.GZIP, Deflater.DEFAULT_COMPRESSION, THRESHOLD);
+
+        write(stream, body);
+
+        assertArrayEquals(body, gunzip(out.toByteArray()));
+        assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(body.length, stream.getInputBytes());
+        assertEquals(out.size(), stream.getOutputBytes());
+    }
+
+    @Test
+    void deflateBodyAboveThresholdRoundTrips() throws IOException {
+        byte[] body = body(10_000);
+
+        write(new CompressingOutputStream(ContentCoding.DEFLATE, Deflater.DEFAULT_COMPRESSION, THRESHOLD), body);
+
+        assertArrayEquals(body, inflate(out.toByteArray()));
+        assertEquals("deflate", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void thresholdIsCrossedWithinOneWrite() throws IOException {
+        byte[] body = body(THRESHOLD + 1);
+        CompressingOutputStream stream
+                = new CompressingOutputStream(ContentCoding.GZIP, Deflater.DEFAULT_COMPRESSION, THRESHOLD);
+        stream.reset(out, headers);
+
+        stream.write(body, 0, THRESHOLD - 10);
+        assertEquals(0, out.size());
+        stream.write(body, THRESHOLD - 10, 11);
+        stream.finish();
+
+        assertArrayEquals(body, gunzip(out.toByteArray()));
+    }
+
+    @Test
+    void flushEmitsEverythingWrittenSoFar() throws IOException, DataFormatException {
+        byte[] body = body(5_000);
+        CompressingOutputStream stream
+                = new CompressingOutputStream(ContentCoding.GZIP, Deflater.DEFAULT_COMPRESSION, THRESHOLD);
+        stream.reset(out, headers);
+
+        stream.write(body, 0, 10);
+        stream.flush();
+        assertEquals(0, out.size());
+
+        for (int written = 10; written < body.length; written += 700) {
+            int length = Math.min(700, body.length - written);
+            stream.write(body, written, length);
+            stream.flush();
+            byte[] sent = Arrays.copyOfRange(out.toByteArray(), GZIP_HEADER_SIZE, out.size());
+            assertArrayEquals(Arrays.copyOf(body, written + length), inflateRaw(sent, written + length));
+        }
+        stream.finish();
+
+        assertArrayEquals(body, gunzip(out.toByteArray()));
+    }
+
+    @Test
+    void releasedStreamServesAnotherBody() throws IOException {
+        CompressingOutputStream stream
+                = new CompressingOutputStream(ContentCoding.GZIP, Deflater.DEFAULT_COMPRESSION, THRESHOLD);
+        byte[] first = body(3_000);
+        write(stream, first);
+        assertArrayEquals(first, gunzip(out.toByteArray()));
+        stream.release();
+
+        ByteArrayOutputStream secondOut = new ByteArrayOutputStream();
+        MultivaluedMap<String, Object> secondHeaders = new MultivaluedHashMap<>();
+        byte[] second = "second body ".repeat(200).getBytes(StandardCharsets.UTF_8);
+        stream.reset(secondOut, secondHeaders);
+        stream.write(second);
+        stream.finish();
+
+        assertArrayEquals(second, gunzip(secondOut.toByteArray()));
+        assertEquals("gzip", secondHeaders.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(second.length, stream.getInputBytes());
+
+        stream.release();
+        ByteArrayOutputStream thirdOut = new ByteArrayOutputStream();
+        stream.reset(thirdOut, new MultivaluedHashMap<>());
+        stream.write(first, 0, 10);
+        stream.finish();
+
+        assertArrayEquals(Arrays.copyOf(first, 10), thirdOut.toByteArray());
+    }
+
+    private void write(CompressingOutputStream stream, byte[] body) throws IOException {
+        stream.reset(out, headers);
+        stream.write(body);
+        stream.finish();
+    }
+
+    /**
+     * Builds a body of repetitive text with some variation, so it compresses
+     * without being trivial.
+     */
+    private static byte[] body(int length) {
+        StringBuilder text = new StringBuilder(length + 32);
+        for (int i = 0; text.length() < length; i++) {
+            text.append("{\"id\":").append(i).append(",\"cost\":").append(i * 7919 % 1000).append("},");
+        }
+        return text.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) throws IOException {
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Inflates a raw DEFLATE stream that is not finished yet, as far as it
+     * goes.
+     */
+    private static byte[] inflateRaw(byte[] compressed, int expectedLength) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] result = new byte[expectedLength + 1];
+            int length = 0;
+            int inflated;
+            while ((inflated = inflater.inflate(result, length, result.length - length)) > 0) {
+                length += inflated;
+            }
+            return Arrays.copyOf(result, length);
+        } finally {
+            inflater.end();
+        }
+    }
+}
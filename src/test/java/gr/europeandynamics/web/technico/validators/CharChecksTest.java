@@ -0,0 +1,50 @@
+package gr.europeandynamics.web.technico.validators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class CharChecksTest {
+
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+    private static final Pattern HAS_DIGIT = Pattern.compile(".*\\d.*");
+    private static final Pattern HAS_LETTER = Pattern.compile(".*[A-Za-z].*");
+    private static final Pattern EMAIL
+            = Pattern.compile("^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$");
+
+    @Test
+    void isDigitsMatchesPattern() {
+        for (String value : List.of("", "0", "123456789", "12a", " 12", "12 ", "-1", "+1", "1.0",
+                "١٢٣", "12٣", "１２", "12\n", "\n12")) {
+            assertEquals(DIGITS.matcher(value).matches(), CharChecks.isDigits(value), value);
+        }
+    }
+
+    @Test
+    void hasDigitAndLetterMatchesPatterns() {
+        for (String value : List.of("", "password", "12345678", "password1", "1password", "pass word 1",
+                "p١", "ééé1", "αβγδεζηθ1",
+                "a\n1", "a1\n", "\na1", "a\r1", "a 1", "a\u00851", "a\u20281", "_-+1")) {
+            assertEquals(HAS_DIGIT.matcher(value).matches() && HAS_LETTER.matcher(value).matches(),
+                    CharChecks.hasDigitAndLetter(value), value);
+        }
+    }
+
+    @Test
+    void isEmailMatchesPattern() {
+        for (String value : List.of(
+                "user@example.com", "first.last@example.com", "a_b+c&d*e-f@example.com",
+                ".user@example.com", "user.@example.com", "us..er@example.com", "@example.com",
+                "userexample.com", "user@@example.com", "user@exa@mple.com", "user@",
+                "user@example", "user@.example.com", "user@example..com", "user@example.com.",
+                "user@sub.example.co.uk", "user@-example.com", "user@example-.com", "user@ex-ample.com",
+                "user@example.c", "user@example.co", "user@example.abcdefg", "user@example.abcdefgh",
+                "user@example.c0m", "user@exa_mple.com", "user@example.com\n", "us er@example.com",
+                "user@ex ample.com", "üser@example.com", "user@exämple.com", "user@example.çom",
+                "user@123.com", "user@1.2.3.com", "a@b.cd")) {
+            assertEquals(EMAIL.matcher(value).matches(), CharChecks.isEmail(value), value);
+        }
+    }
+}